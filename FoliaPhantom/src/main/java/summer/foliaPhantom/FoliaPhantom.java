@@ -11,18 +11,25 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitScheduler;
 
 import java.io.File; // Retained for File operations like getDataFolder()
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 // sun.misc.Unsafe removed
 // java.lang.reflect.Field, Method, Proxy removed
 // java.net.URL, URLClassLoader removed
 // java.util.concurrent.TimeUnit removed
 // java.util.jar.* removed
 // io.papermc.paper.threadedregions.scheduler.* removed as they are not directly used by FoliaPhantom class
+import summer.foliaPhantom.command.PhantomCommand;
+import summer.foliaPhantom.config.PluginConfig;
 import summer.foliaPhantom.jar.JarPatcher;
+import summer.foliaPhantom.jar.PatchCache;
+import summer.foliaPhantom.plugin.ClassLoaderLeakDetector;
 import summer.foliaPhantom.plugin.PluginLoader;
+import summer.foliaPhantom.plugin.PluginReloader;
 import summer.foliaPhantom.plugin.WrappedPlugin;
+import summer.foliaPhantom.plugin.WrappedPluginBootstrap;
 // summer.foliaPhantom.scheduler.FoliaSchedulerAdapter import is not directly used by FoliaPhantom
 // summer.foliaPhantom.scheduler.FoliaSchedulerProxy import is not directly used by FoliaPhantom
 import summer.foliaPhantom.scheduler.SchedulerManager;
@@ -38,10 +45,12 @@ public class FoliaPhantom extends JavaPlugin {
     private static boolean isFoliaServer;
     private SchedulerManager schedulerManager;
 
-    // 設定から読み込んだ各プラグインのインスタンスを保持
-    private final Map<String, WrappedPlugin> wrappedPlugins = new ConcurrentHashMap<>();
-    // 各プラグイン用に作成した URLClassLoader を保持（後で close() するため）
+    // 設定から読み込んだ各プラグインのインスタンスを保持 (ロード順)
+    private final Map<String, WrappedPlugin> wrappedPlugins = new LinkedHashMap<>();
+    // 各プラグインの ClassLoader を追跡（無効化後に close() するため）
     private PluginLoader pluginLoader;
+    private PatchCache patchCache;
+    private ClassLoaderLeakDetector leakDetector; // Null when disabled in config.yml
 
     @Override
     public void onLoad() {
@@ -53,7 +62,7 @@ public class FoliaPhantom extends JavaPlugin {
         saveDefaultConfig();
 
         try {
-            this.pluginLoader = new PluginLoader(this);
+            this.patchCache = new PatchCache(new File(getDataFolder(), "cache/patch-index.properties"), getLogger());
             // まず Folia Scheduler を差し替える
             this.schedulerManager = new SchedulerManager(this);
             if (!this.schedulerManager.installProxy()) {
@@ -64,42 +73,34 @@ public class FoliaPhantom extends JavaPlugin {
             } else {
                 getLogger().info("[Phantom] SchedulerManager initialized and proxy installed.");
             }
+            // 無効化・リロード後に解放されない ClassLoader を検出する
+            if (getConfig().getBoolean("leak-detector.enabled", true)) {
+                this.leakDetector = new ClassLoaderLeakDetector(getLogger(), this.schedulerManager.getTaskRegistry(),
+                        this.schedulerManager.getMetrics(),
+                        getConfig().getInt("leak-detector.gc-cycles", 3),
+                        getConfig().getLong("leak-detector.check-interval-seconds", 5L) * 1000L,
+                        getConfig().getBoolean("leak-detector.force-gc", false));
+            }
+            this.pluginLoader = new PluginLoader(this, this.leakDetector);
 
             // config.yml の wrapped-plugins セクションを読み込む
             List<Map<?, ?>> wrappedList = getConfig().getMapList("wrapped-plugins");
             if (wrappedList == null || wrappedList.isEmpty()) {
                 getLogger().warning("[Phantom] config.yml に wrapped-plugins が見つかりません。ラップ対象がありません。");
             } else {
+                List<PluginConfig> configs = new ArrayList<>();
                 for (Map<?, ?> rawEntry : wrappedList) {
                     if (rawEntry == null) continue;
-                    String name = (rawEntry.get("name") instanceof String)
-                            ? (String) rawEntry.get("name")
-                            : "<Unknown>";
-                    String originalPath = (rawEntry.get("original-jar-path") instanceof String)
-                            ? (String) rawEntry.get("original-jar-path")
-                            : "";
-                    String patchedPath = (rawEntry.get("patched-jar-path") instanceof String)
-                            ? (String) rawEntry.get("patched-jar-path")
-                            : originalPath;
-                    Boolean foliaEnabled = (rawEntry.get("folia-enabled") instanceof Boolean)
-                            ? (Boolean) rawEntry.get("folia-enabled")
-                            : Boolean.TRUE;
-
-                    // PluginConfig was introduced in a previous step, assuming it's still relevant here.
-                    // If loadWrappedPlugin was removed and PluginConfig is not used elsewhere in onLoad,
-                    // this part might need adjustment based on where PluginConfig is now instantiated.
-                    // For this specific step, we focus on replacing loadWrappedPlugin with WrappedPlugin instantiation.
-                    summer.foliaPhantom.config.PluginConfig config = new summer.foliaPhantom.config.PluginConfig(name, originalPath, patchedPath, foliaEnabled);
-
-                    getLogger().info("[Phantom][" + config.name() + "] Processing plugin configuration...");
-                    WrappedPlugin wrappedPlugin = new WrappedPlugin(config, pluginLoader, getDataFolder(), getLogger());
-                    if (wrappedPlugin.getBukkitPlugin() != null) {
-                        wrappedPlugins.put(config.name(), wrappedPlugin);
-                    } else {
-                        // If plugin failed to load, WrappedPlugin constructor would have logged it.
-                        // PluginLoader also attempts to clean up its classloader for this plugin on failure.
-                        // No need to add to wrappedPlugins map.
-                        getLogger().severe("[Phantom][" + config.name() + "] Was not added to the list of active wrapped plugins due to loading failure.");
+                    configs.add(PluginConfig.fromMap(rawEntry));
+                }
+                // Patch JARs in parallel, then load them one by one in dependency order.
+                WrappedPluginBootstrap bootstrap = new WrappedPluginBootstrap(pluginLoader, getDataFolder(), getLogger(), patchCache,
+                        getConfig().getInt("loading.parallelism", 0),
+                        getConfig().getBoolean("loading.thread-safety-report", true) ? new File(getDataFolder(), "reports") : null);
+                wrappedPlugins.putAll(bootstrap.loadAll(configs));
+                if (this.schedulerManager != null) {
+                    for (WrappedPlugin wrappedPlugin : wrappedPlugins.values()) {
+                        this.schedulerManager.configurePlugin(wrappedPlugin.getBukkitPlugin(), wrappedPlugin.getConfig());
                     }
                 }
             }
@@ -115,6 +116,18 @@ public class FoliaPhantom extends JavaPlugin {
     public void onEnable() {
         getLogger().info("[Phantom] === FoliaPhantom onEnable ===");
 
+        if (this.schedulerManager != null) {
+            // Starts the scheduler's world listeners and tick clock, which need FoliaPhantom to be enabled.
+            this.schedulerManager.enable();
+        }
+        if (getCommand("phantom") != null) {
+            PluginReloader reloader = new PluginReloader(wrappedPlugins, pluginLoader, patchCache, this.schedulerManager, getDataFolder(), getLogger());
+            PhantomCommand phantomCommand = new PhantomCommand(this.schedulerManager, reloader, this.leakDetector, wrappedPlugins.keySet(),
+                    getDataFolder());
+            getCommand("phantom").setExecutor(phantomCommand);
+            getCommand("phantom").setTabCompleter(phantomCommand);
+        }
+
         if (wrappedPlugins.isEmpty()) {
             getLogger().warning("[Phantom] ラップ対象プラグインが存在しません。FoliaPhantom を無効化します。");
             getServer().getPluginManager().disablePlugin(this);
@@ -0,0 +1,218 @@
+package summer.foliaPhantom.command;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.plugin.Plugin;
+import summer.foliaPhantom.metrics.SchedulerMetrics;
+import summer.foliaPhantom.plugin.ClassLoaderLeakDetector;
+import summer.foliaPhantom.plugin.PluginReloader;
+import summer.foliaPhantom.scheduler.SchedulerManager;
+import summer.foliaPhantom.scheduler.TaskWatchdog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * /phantom – diagnostics for FoliaPhantom and its wrapped plugins.
+ */
+public class PhantomCommand implements TabExecutor {
+    private static final List<String> SUBCOMMANDS = Arrays.asList("metrics", "watchdog", "reload", "leaks");
+
+    private final SchedulerManager schedulerManager;
+    private final PluginReloader reloader;
+    private final ClassLoaderLeakDetector leakDetector; // Null when disabled
+    private final Collection<String> wrappedPluginNames; // Live view of the wrapped plugins, for tab completion
+    private final File dataFolder;
+
+    public PhantomCommand(SchedulerManager schedulerManager, PluginReloader reloader, ClassLoaderLeakDetector leakDetector,
+                          Collection<String> wrappedPluginNames, File dataFolder) {
+        this.schedulerManager = schedulerManager;
+        this.reloader = reloader;
+        this.leakDetector = leakDetector;
+        this.wrappedPluginNames = wrappedPluginNames;
+        this.dataFolder = dataFolder;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) {
+            sender.sendMessage("[Phantom] Usage: /" + label + " <" + String.join("|", SUBCOMMANDS) + ">");
+            return true;
+        }
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "metrics":
+                handleMetrics(sender, label, Arrays.copyOfRange(args, 1, args.length));
+                return true;
+            case "watchdog":
+                handleWatchdog(sender, Arrays.copyOfRange(args, 1, args.length));
+                return true;
+            case "reload":
+                handleReload(sender, Arrays.copyOfRange(args, 1, args.length));
+                return true;
+            case "leaks":
+                handleLeaks(sender);
+                return true;
+            default:
+                sender.sendMessage("[Phantom] Unknown subcommand: " + args[0]);
+                return true;
+        }
+    }
+
+    /**
+     * /phantom metrics [plugin] | reset | dump
+     */
+    private void handleMetrics(CommandSender sender, String label, String[] args) {
+        SchedulerMetrics metrics = schedulerManager != null ? schedulerManager.getMetrics() : null;
+        if (metrics == null) {
+            sender.sendMessage("[Phantom] Scheduler metrics are disabled (scheduler.metrics.enabled in config.yml).");
+            return;
+        }
+        if (args.length == 1 && args[0].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            sender.sendMessage("[Phantom] Scheduler metrics reset.");
+            return;
+        }
+        if (args.length == 1 && args[0].equalsIgnoreCase("dump")) {
+            File file = new File(dataFolder, "metrics/scheduler-metrics-" + System.currentTimeMillis() + ".txt");
+            try {
+                metrics.dump(file);
+                sender.sendMessage("[Phantom] Scheduler metrics written to " + file.getPath());
+            } catch (Exception e) {
+                sender.sendMessage("[Phantom] Failed to write scheduler metrics: " + e.getMessage());
+            }
+            return;
+        }
+        String pluginFilter = args.length >= 1 ? args[0] : null;
+        for (String line : metrics.report(pluginFilter, pluginFilter != null)) {
+            sender.sendMessage(line);
+        }
+    }
+
+    /**
+     * /phantom watchdog [clear|&lt;n&gt;] – lists recent overruns, or shows the full stack of report n.
+     */
+    private void handleWatchdog(CommandSender sender, String[] args) {
+        TaskWatchdog watchdog = schedulerManager != null ? schedulerManager.getWatchdog() : null;
+        if (watchdog == null) {
+            sender.sendMessage("[Phantom] The task watchdog is disabled (scheduler.watchdog.enabled in config.yml).");
+            return;
+        }
+        if (args.length == 1 && args[0].equalsIgnoreCase("clear")) {
+            watchdog.clearReports();
+            sender.sendMessage("[Phantom] Watchdog reports cleared.");
+            return;
+        }
+        List<TaskWatchdog.Report> reports = watchdog.getReports();
+        if (args.length == 1) {
+            int index;
+            try {
+                index = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                sender.sendMessage("[Phantom] Usage: /phantom watchdog [clear|<n>]");
+                return;
+            }
+            if (index < 1 || index > reports.size()) {
+                sender.sendMessage("[Phantom] No watchdog report #" + index + ".");
+                return;
+            }
+            TaskWatchdog.Report report = reports.get(index - 1);
+            sender.sendMessage(formatReport(index, report));
+            for (StackTraceElement frame : report.stack()) {
+                sender.sendMessage("    at " + frame);
+            }
+            return;
+        }
+        sender.sendMessage("[Phantom] Tasks that exceeded " + watchdog.getBudgetMillis() + "ms (most recent first):");
+        if (reports.isEmpty()) {
+            sender.sendMessage("None.");
+        }
+        for (int i = 0; i < reports.size(); i++) {
+            sender.sendMessage(formatReport(i + 1, reports.get(i)));
+        }
+    }
+
+    /**
+     * /phantom reload &lt;plugin&gt; – swaps one wrapped plugin for the current version of its JAR.
+     */
+    private void handleReload(CommandSender sender, String[] args) {
+        if (args.length != 1) {
+            sender.sendMessage("[Phantom] Usage: /phantom reload <plugin>");
+            return;
+        }
+        String name = null;
+        for (String wrapped : wrappedPluginNames) {
+            if (wrapped.equalsIgnoreCase(args[0])) name = wrapped;
+        }
+        if (name == null) {
+            sender.sendMessage("[Phantom] Not a wrapped plugin: " + args[0]);
+            return;
+        }
+        sender.sendMessage("[Phantom] Reloading " + name + "...");
+        Plugin plugin = reloader.reload(name);
+        sender.sendMessage(plugin != null
+                ? "[Phantom] Reloaded " + plugin.getName() + " v" + plugin.getDescription().getVersion() + "."
+                : "[Phantom] Reload of " + name + " failed; see the server log.");
+    }
+
+    /**
+     * /phantom leaks – lists released class loaders that have not been collected yet and the leaks reported so far.
+     */
+    private void handleLeaks(CommandSender sender) {
+        if (leakDetector == null) {
+            sender.sendMessage("[Phantom] The leak detector is disabled (leak-detector.enabled in config.yml).");
+            return;
+        }
+        List<String> pending = leakDetector.getPending();
+        sender.sendMessage("[Phantom] Released class loaders not yet collected: " + (pending.isEmpty() ? "none" : String.join(", ", pending)));
+        List<ClassLoaderLeakDetector.Leak> leaks = leakDetector.getLeaks();
+        sender.sendMessage("[Phantom] Leak reports (most recent first):");
+        if (leaks.isEmpty()) {
+            sender.sendMessage("None.");
+        }
+        for (ClassLoaderLeakDetector.Leak leak : leaks) {
+            long ageSeconds = (System.currentTimeMillis() - leak.releasedAtMillis()) / 1000L;
+            sender.sendMessage(leak.pluginName() + ": released " + ageSeconds + "s ago, survived " + leak.gcCycles() + " major GC cycles");
+            for (String retainer : leak.retainers()) {
+                sender.sendMessage("    " + retainer);
+            }
+        }
+    }
+
+    private static String formatReport(int index, TaskWatchdog.Report report) {
+        String top = report.stack().length > 0 ? report.stack()[0].toString() : "?";
+        long ageSeconds = (System.currentTimeMillis() - report.timestampMillis()) / 1000L;
+        return "#" + index + " " + report.pluginName() + " task " + report.taskId() + " (" + report.taskClass() + ") "
+                + report.elapsedMillis() + "ms on " + report.threadName() + ", " + ageSeconds + "s ago at " + top;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length == 1) {
+            return filter(SUBCOMMANDS, args[0]);
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("metrics")) {
+            return filter(Arrays.asList("reset", "dump"), args[1]);
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("watchdog")) {
+            return filter(Collections.singletonList("clear"), args[1]);
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("reload")) {
+            return filter(new ArrayList<>(wrappedPluginNames), args[1]);
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<String> filter(List<String> options, String prefix) {
+        List<String> matches = new ArrayList<>();
+        for (String option : options) {
+            if (option.regionMatches(true, 0, prefix, 0, prefix.length())) matches.add(option);
+        }
+        return matches;
+    }
+}
@@ -1,16 +1,76 @@
 package summer.foliaPhantom.config;
 
+import java.util.Map;
+
 public class PluginConfig {
     private final String name;
     private final String originalJarPath;
     private final String patchedJarPath;
     private final boolean foliaEnabled;
+    private final String syncRouting;
+    private final String asyncBackend;
+    private final int asyncMaxConcurrency;
+    private final boolean rewriteSchedulerCalls;
+    private final int tickWeight;
+    private final boolean batchOneShotTasks;
 
     public PluginConfig(String name, String originalJarPath, String patchedJarPath, Boolean foliaEnabled) {
-        this.name = name;
-        this.originalJarPath = originalJarPath;
-        this.patchedJarPath = patchedJarPath;
-        this.foliaEnabled = (foliaEnabled != null) ? foliaEnabled : true; // Default to true if null
+        this(builder(name, originalJarPath, patchedJarPath).foliaEnabled(foliaEnabled));
+    }
+
+    private PluginConfig(Builder builder) {
+        this.name = builder.name;
+        this.originalJarPath = builder.originalJarPath;
+        this.patchedJarPath = builder.patchedJarPath;
+        this.foliaEnabled = (builder.foliaEnabled != null) ? builder.foliaEnabled : true; // Default to true if null
+        this.syncRouting = (builder.syncRouting != null) ? builder.syncRouting : "spawn";
+        this.asyncBackend = (builder.asyncBackend != null) ? builder.asyncBackend : "folia";
+        this.asyncMaxConcurrency = (builder.asyncMaxConcurrency != null && builder.asyncMaxConcurrency > 0) ? builder.asyncMaxConcurrency : 64;
+        this.rewriteSchedulerCalls = (builder.rewriteSchedulerCalls != null) ? builder.rewriteSchedulerCalls : false;
+        this.tickWeight = (builder.tickWeight != null && builder.tickWeight > 0) ? builder.tickWeight : 1;
+        this.batchOneShotTasks = (builder.batchOneShotTasks != null) ? builder.batchOneShotTasks : false;
+    }
+
+    /**
+     * Starts a config with every optional field at its default; null or out-of-range values also mean the default.
+     */
+    public static Builder builder(String name, String originalJarPath, String patchedJarPath) {
+        return new Builder(name, originalJarPath, patchedJarPath);
+    }
+
+    /**
+     * Builds a config from one entry of the {@code wrapped-plugins} list in config.yml.
+     * Missing or mistyped fields fall back to their defaults.
+     */
+    public static PluginConfig fromMap(Map<?, ?> rawEntry) {
+        String name = (rawEntry.get("name") instanceof String)
+                ? (String) rawEntry.get("name")
+                : "<Unknown>";
+        String originalPath = (rawEntry.get("original-jar-path") instanceof String)
+                ? (String) rawEntry.get("original-jar-path")
+                : "";
+        String patchedPath = (rawEntry.get("patched-jar-path") instanceof String)
+                ? (String) rawEntry.get("patched-jar-path")
+                : originalPath;
+        return builder(name, originalPath, patchedPath)
+                .foliaEnabled(valueOf(rawEntry, "folia-enabled", Boolean.class))
+                .syncRouting(valueOf(rawEntry, "sync-routing", String.class))
+                .asyncBackend(valueOf(rawEntry, "async-backend", String.class))
+                .asyncMaxConcurrency(intValueOf(rawEntry, "async-max-concurrency"))
+                .rewriteSchedulerCalls(valueOf(rawEntry, "rewrite-scheduler-calls", Boolean.class))
+                .tickWeight(intValueOf(rawEntry, "tick-weight"))
+                .batchOneShotTasks(valueOf(rawEntry, "batch-one-shot-tasks", Boolean.class))
+                .build();
+    }
+
+    private static <T> T valueOf(Map<?, ?> rawEntry, String key, Class<T> type) {
+        Object value = rawEntry.get(key);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    private static Integer intValueOf(Map<?, ?> rawEntry, String key) {
+        Object value = rawEntry.get(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : null;
     }
 
     public String name() {
@@ -28,4 +88,104 @@ public class PluginConfig {
     public boolean foliaEnabled() {
         return foliaEnabled;
     }
+
+    /**
+     * How this plugin's sync tasks are routed to Folia regions: spawn, global, hashed, context or entity.
+     */
+    public String syncRouting() {
+        return syncRouting;
+    }
+
+    /**
+     * Where this plugin's async tasks run: folia (Folia's AsyncScheduler) or virtual (dedicated virtual threads).
+     */
+    public String asyncBackend() {
+        return asyncBackend;
+    }
+
+    /**
+     * Maximum number of this plugin's async tasks running at once on the virtual-thread backend.
+     */
+    public int asyncMaxConcurrency() {
+        return asyncMaxConcurrency;
+    }
+
+    /**
+     * Whether the patched JAR has its BukkitScheduler call sites redirected to FoliaPhantom at patch time.
+     */
+    public boolean rewriteSchedulerCalls() {
+        return rewriteSchedulerCalls;
+    }
+
+    /**
+     * This plugin's weight when a region tick's budget is split into fair shares (scheduler.tick-budget).
+     */
+    public int tickWeight() {
+        return tickWeight;
+    }
+
+    /**
+     * Whether this plugin's one-shot sync tasks due on the same region and tick share one Folia task.
+     */
+    public boolean batchOneShotTasks() {
+        return batchOneShotTasks;
+    }
+
+    public static final class Builder {
+        private final String name;
+        private final String originalJarPath;
+        private final String patchedJarPath;
+        private Boolean foliaEnabled;
+        private String syncRouting;
+        private String asyncBackend;
+        private Integer asyncMaxConcurrency;
+        private Boolean rewriteSchedulerCalls;
+        private Integer tickWeight;
+        private Boolean batchOneShotTasks;
+
+        private Builder(String name, String originalJarPath, String patchedJarPath) {
+            this.name = name;
+            this.originalJarPath = originalJarPath;
+            this.patchedJarPath = patchedJarPath;
+        }
+
+        public Builder foliaEnabled(Boolean foliaEnabled) {
+            this.foliaEnabled = foliaEnabled;
+            return this;
+        }
+
+        public Builder syncRouting(String syncRouting) {
+            this.syncRouting = syncRouting;
+            return this;
+        }
+
+        public Builder asyncBackend(String asyncBackend) {
+            this.asyncBackend = asyncBackend;
+            return this;
+        }
+
+        public Builder asyncMaxConcurrency(Integer asyncMaxConcurrency) {
+            this.asyncMaxConcurrency = asyncMaxConcurrency;
+            return this;
+        }
+
+        public Builder rewriteSchedulerCalls(Boolean rewriteSchedulerCalls) {
+            this.rewriteSchedulerCalls = rewriteSchedulerCalls;
+            return this;
+        }
+
+        public Builder tickWeight(Integer tickWeight) {
+            this.tickWeight = tickWeight;
+            return this;
+        }
+
+        public Builder batchOneShotTasks(Boolean batchOneShotTasks) {
+            this.batchOneShotTasks = batchOneShotTasks;
+            return this;
+        }
+
+        public PluginConfig build() {
+            return new PluginConfig(this);
+        }
+    }
 }
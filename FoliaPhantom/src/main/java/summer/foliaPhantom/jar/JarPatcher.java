@@ -1,11 +1,39 @@
 package summer.foliaPhantom.jar;
 
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
 
 public class JarPatcher {
+    /**
+     * Bumped whenever the patched output changes for the same input, so {@link PatchCache} discards older patches.
+     */
+    public static final int PATCHER_VERSION = 4;
+
+    /**
+     * Describes the patch applied by {@link #createFoliaSupportedJar}, for {@link PatchCache}.
+     */
+    public static final String PATCH_OPTIONS = "folia-supported";
 
     /**
      * Creates a new JAR file with a modified plugin.yml to support Folia.
@@ -15,43 +43,166 @@ public class JarPatcher {
      * @throws Exception If any error occurs during patching.
      */
     public static void createFoliaSupportedJar(File originalJar, File patchedJar) throws Exception {
-        try (JarInputStream jis = new JarInputStream(new FileInputStream(originalJar));
+        createFoliaSupportedJar(originalJar, patchedJar, false);
+    }
+
+    /**
+     * Creates a new JAR file with a modified plugin.yml to support Folia and, optionally, with its
+     * {@code BukkitScheduler} call sites redirected to FoliaPhantom's scheduler shim.
+     * <p>
+     * Every other entry is copied as raw compressed bytes; the result is written to a temporary
+     * file and moved into place, so a crash never leaves a half-written patched JAR behind.
+     *
+     * @param rewriteSchedulerCalls whether to rewrite class files with {@link SchedulerCallRewriter}
+     * @throws Exception If any error occurs during patching.
+     */
+    public static void createFoliaSupportedJar(File originalJar, File patchedJar, boolean rewriteSchedulerCalls) throws Exception {
+        SchedulerCallRewriter rewriter = rewriteSchedulerCalls ? new SchedulerCallRewriter(originalJar) : null;
+        AtomicBoolean pluginYmlFound = new AtomicBoolean();
+        Predicate<String> wantsContent = name -> "plugin.yml".equals(name) || (rewriter != null && name.endsWith(".class"));
+        BiFunction<String, byte[], byte[]> transformer = (name, content) -> {
+            if ("plugin.yml".equals(name)) {
+                pluginYmlFound.set(true);
+                String originalContent = new String(content, StandardCharsets.UTF_8);
+                String modifiedContent = addFoliaSupport(originalContent);
+                if (rewriter != null) {
+                    modifiedContent = addShimDependency(modifiedContent);
+                }
+                return modifiedContent.equals(originalContent) ? null : modifiedContent.getBytes(StandardCharsets.UTF_8);
+            }
+            return rewriter.rewrite(content);
+        };
+
+        File tempJar = new File(patchedJar.getPath() + ".tmp");
+        try {
+            try {
+                ZipRewriter.rewrite(originalJar, tempJar, wantsContent, transformer);
+            } catch (java.util.zip.ZipException e) {
+                // ZIP64 or otherwise unusual archive; re-encode every entry instead.
+                reencodeJar(originalJar, tempJar, wantsContent, transformer);
+            }
+            if (!pluginYmlFound.get()) {
+                throw new Exception("patch: plugin.yml was not found in " + originalJar.getName());
+            }
+            try {
+                Files.move(tempJar.toPath(), patchedJar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempJar.toPath(), patchedJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempJar.toPath());
+        }
+    }
+
+    /**
+     * @return the {@link PatchCache} options describing {@link #createFoliaSupportedJar(File, File, boolean)}
+     */
+    public static String patchOptions(boolean rewriteSchedulerCalls) {
+        return rewriteSchedulerCalls ? PATCH_OPTIONS + ",rewrite-scheduler-calls" : PATCH_OPTIONS;
+    }
+
+    /**
+     * Fallback for archives {@link ZipRewriter} cannot copy raw: inflates and re-deflates every entry.
+     * Package-private for the raw copy versus re-encode benchmark.
+     */
+    static void reencodeJar(File originalJar, File patchedJar, Predicate<String> wantsContent,
+                                    BiFunction<String, byte[], byte[]> transformer) throws Exception {
+        try (JarInputStream jis = new JarInputStream(new FileInputStream(originalJar), false);
              JarOutputStream jos = new JarOutputStream(new FileOutputStream(patchedJar))) {
+            Manifest manifest = jis.getManifest();
+            if (manifest != null) { // JarInputStream consumes the manifest entry itself
+                jos.putNextEntry(new JarEntry(JarFile.MANIFEST_NAME));
+                manifest.write(jos);
+                jos.closeEntry();
+            }
 
             JarEntry entry;
-            byte[] buffer = new byte[1024];
-            boolean pluginYmlFound = false;
-
+            byte[] buffer = new byte[64 * 1024];
             while ((entry = jis.getNextJarEntry()) != null) {
                 String entryName = entry.getName();
-                if ("plugin.yml".equals(entryName)) {
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    int len;
-                    while ((len = jis.read(buffer)) > 0) {
-                        baos.write(buffer, 0, len);
-                    }
-                    String originalContent = baos.toString("UTF-8");
-                    String modifiedContent = addFoliaSupport(originalContent);
-                    JarEntry newEntry = new JarEntry("plugin.yml");
-                    jos.putNextEntry(newEntry);
-                    jos.write(modifiedContent.getBytes("UTF-8"));
-                    jos.closeEntry();
-                    pluginYmlFound = true;
+                jos.putNextEntry(new JarEntry(entryName));
+                if (wantsContent.test(entryName)) {
+                    byte[] content = jis.readAllBytes();
+                    byte[] replacement = transformer.apply(entryName, content);
+                    jos.write(replacement != null ? replacement : content);
                 } else {
-                    jos.putNextEntry(new JarEntry(entryName));
                     int len;
                     while ((len = jis.read(buffer)) > 0) {
                         jos.write(buffer, 0, len);
                     }
-                    jos.closeEntry();
                 }
+                jos.closeEntry();
                 jis.closeEntry();
             }
+        }
+    }
 
-            if (!pluginYmlFound) {
-                throw new Exception("patch: plugin.yml was not found in " + originalJar.getName());
+    /**
+     * Lets the plugin's class loader resolve the scheduler shim without "not a depend" warnings.
+     * The plugin.yml is parsed to read an existing softdepend list; that entry alone is replaced by the same list
+     * plus FoliaPhantom, so the rest of the file keeps its formatting and comments.
+     */
+    private static String addShimDependency(String content) {
+        Object parsed;
+        try {
+            parsed = new Yaml(new SafeConstructor(new LoaderOptions())).load(content);
+        } catch (YAMLException e) {
+            return content; // Bukkit will reject this plugin.yml itself; leave it as it is
+        }
+        if (!(parsed instanceof Map<?, ?> root)) {
+            return content;
+        }
+        Object existing = root.get("softdepend");
+        List<String> softDepends = new ArrayList<>();
+        if (existing instanceof List<?> list) {
+            for (Object name : list) {
+                softDepends.add(String.valueOf(name));
+            }
+        } else if (existing != null) {
+            return content; // Not a list, which Bukkit rejects; do not make it parse
+        }
+        if (softDepends.contains("FoliaPhantom")) {
+            return content;
+        }
+        softDepends.add("FoliaPhantom");
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.FLOW);
+        options.setWidth(Integer.MAX_VALUE);
+        String entry = "softdepend: " + new Yaml(options).dump(softDepends).trim();
+        if (existing == null) {
+            return content + (content.endsWith("\n") ? "" : "\n") + entry + "\n";
+        }
+        return replaceTopLevelEntry(content, "softdepend", entry);
+    }
+
+    /**
+     * Replaces the lines of the top-level {@code key} (its own line and the indented or {@code -} lines that continue
+     * it) with {@code entry}. Comments and blank lines after the value are kept.
+     */
+    private static String replaceTopLevelEntry(String content, String key, String entry) {
+        List<String> lines = new ArrayList<>(List.of(content.split("(?<=\n)")));
+        Pattern keyLine = Pattern.compile(Pattern.quote(key) + "\\s*:.*", Pattern.DOTALL);
+        int start = 0;
+        while (start < lines.size() && !keyLine.matcher(lines.get(start)).matches()) {
+            start++;
+        }
+        if (start == lines.size()) {
+            return content; // Written in a form this does not recognise (e.g. a quoted key); leave it as it is
+        }
+        int end = start + 1;
+        for (int i = start + 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.startsWith(" ") || line.startsWith("\t") || line.startsWith("-")) {
+                end = i + 1;
+            } else if (!line.isBlank() && !line.startsWith("#")) {
+                break;
             }
         }
+        String original = lines.get(start);
+        String lineEnd = original.endsWith("\r\n") ? "\r\n" : original.endsWith("\n") ? "\n" : "";
+        lines.subList(start, end).clear();
+        lines.add(start, entry + lineEnd);
+        return String.join("", lines);
     }
 
     /**
@@ -77,12 +228,13 @@ public class JarPatcher {
 
     public static void main(String[] args) {
         if (args.length < 2) {
-            System.err.println("Usage: java -jar <jar-file-name>.jar <original-jar-path> <patched-jar-path>");
+            System.err.println("Usage: java -jar <jar-file-name>.jar <original-jar-path> <patched-jar-path> [--rewrite-scheduler-calls]");
             System.exit(1);
         }
 
         File originalJar = new File(args[0]);
         File patchedJar = new File(args[1]);
+        boolean rewriteSchedulerCalls = args.length > 2 && "--rewrite-scheduler-calls".equals(args[2]);
 
         if (!originalJar.exists()) {
             System.err.println("Error: Original JAR file not found at " + originalJar.getAbsolutePath());
@@ -91,8 +243,12 @@ public class JarPatcher {
 
         try {
             System.out.println("Patching " + originalJar.getName() + " to " + patchedJar.getName() + "...");
-            createFoliaSupportedJar(originalJar, patchedJar);
+            long start = System.nanoTime();
+            createFoliaSupportedJar(originalJar, patchedJar, rewriteSchedulerCalls);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
             System.out.println("Successfully patched JAR: " + patchedJar.getAbsolutePath());
+            // Lets patch time be compared across versions on the same input JAR.
+            System.out.println("Patched " + originalJar.length() + " bytes in " + elapsedMillis + "ms");
         } catch (Exception e) {
             System.err.println("Error during patching: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,184 @@
+package summer.foliaPhantom.jar;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Remembers which original jar each patched jar was generated from, so unchanged jars are never re-read or re-patched.
+ * <p>
+ * Entries are keyed by the patched jar and record the SHA-256 of the original jar, the patcher version and patch options
+ * that produced it, and cheap file fingerprints (size, mtime and, where available, ctime) of both files. A matching
+ * fingerprint means no I/O at all; a changed fingerprint (touch, rsync) falls back to hashing the original, and only a
+ * changed hash, version or option set triggers a new patch. The index is a properties file under the data folder.
+ */
+public class PatchCache {
+    private static final String SUFFIX_SOURCE = ".source";
+    private static final String SUFFIX_PATCHED = ".patched";
+    private static final String SUFFIX_HASH = ".sha256";
+    private static final String SUFFIX_OPTIONS = ".options";
+
+    private final File indexFile;
+    private final Logger logger;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Patches {@code originalJar} into {@code patchedJar}.
+     */
+    @FunctionalInterface
+    public interface Patch {
+        void apply(File originalJar, File patchedJar) throws Exception;
+    }
+
+    private record Entry(String source, String patched, String sha256, String options) {
+    }
+
+    public PatchCache(File indexFile, Logger logger) {
+        this.indexFile = indexFile;
+        this.logger = logger;
+        load();
+    }
+
+    /**
+     * Makes sure {@code patchedJar} holds the result of patching the current {@code originalJar} with {@code options}.
+     *
+     * @param options describes everything besides the original jar that affects the patched output
+     * @return true if the patch was (re)applied, false if the cached jar was reused
+     */
+    public boolean ensurePatched(File originalJar, File patchedJar, String options, Patch patch) throws Exception {
+        String key = patchedJar.getAbsolutePath();
+        String optionsKey = "v" + JarPatcher.PATCHER_VERSION + ";" + options;
+        String sourceFingerprint = fingerprint(originalJar);
+        Entry cached = entries.get(key);
+        String sha256 = null;
+        if (cached != null && cached.options().equals(optionsKey) && patchedJar.isFile()
+                && cached.patched().equals(fingerprint(patchedJar))) {
+            if (cached.source().equals(sourceFingerprint)) {
+                return false;
+            }
+            sha256 = sha256(originalJar);
+            if (sha256.equals(cached.sha256())) {
+                // Touched or copied with new timestamps, same content: remember the new fingerprint only.
+                entries.put(key, new Entry(sourceFingerprint, cached.patched(), sha256, optionsKey));
+                save();
+                return false;
+            }
+        }
+        if (sha256 == null) {
+            sha256 = sha256(originalJar);
+        }
+        patch.apply(originalJar, patchedJar);
+        entries.put(key, new Entry(sourceFingerprint, fingerprint(patchedJar), sha256, optionsKey));
+        save();
+        return true;
+    }
+
+    /**
+     * Forgets the entry for {@code patchedJar}, forcing the next {@link #ensurePatched} to patch again.
+     */
+    public void invalidate(File patchedJar) {
+        if (entries.remove(patchedJar.getAbsolutePath()) != null) {
+            save();
+        }
+    }
+
+    private void load() {
+        if (!indexFile.isFile()) return;
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(indexFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("[Phantom] Could not read patch cache index " + indexFile + ", starting empty: " + e.getMessage());
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.endsWith(SUFFIX_SOURCE)) continue;
+            String key = name.substring(0, name.length() - SUFFIX_SOURCE.length());
+            String patched = properties.getProperty(key + SUFFIX_PATCHED);
+            String sha256 = properties.getProperty(key + SUFFIX_HASH);
+            String options = properties.getProperty(key + SUFFIX_OPTIONS);
+            if (patched != null && sha256 != null && options != null) {
+                entries.put(key, new Entry(properties.getProperty(name), patched, sha256, options));
+            }
+        }
+    }
+
+    private synchronized void save() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            properties.setProperty(e.getKey() + SUFFIX_SOURCE, entry.source());
+            properties.setProperty(e.getKey() + SUFFIX_PATCHED, entry.patched());
+            properties.setProperty(e.getKey() + SUFFIX_HASH, entry.sha256());
+            properties.setProperty(e.getKey() + SUFFIX_OPTIONS, entry.options());
+        }
+        File parent = indexFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            logger.warning("[Phantom] Could not create " + parent + " for the patch cache index.");
+            return;
+        }
+        File temp = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "FoliaPhantom patched-jar cache; safe to delete");
+            }
+            try {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warning("[Phantom] Could not write patch cache index " + indexFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Size, mtime and (on Unix) ctime. Copying a file with a preserved mtime still changes its ctime.
+     */
+    private static String fingerprint(File file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        long ctime = -1L;
+        try {
+            ctime = ((FileTime) Files.getAttribute(file.toPath(), "unix:ctime")).toMillis();
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // Not a Unix file system; size and mtime have to do.
+        }
+        return attributes.size() + ":" + attributes.lastModifiedTime().toMillis() + ":" + ctime;
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JRE ships SHA-256
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,221 @@
+package summer.foliaPhantom.jar;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Rewrites {@code invokeinterface org/bukkit/scheduler/BukkitScheduler.m(args)} call sites into
+ * {@code invokestatic SchedulerShim.m(BukkitScheduler, args)}, so a wrapped plugin's scheduler calls reach
+ * FoliaPhantom directly instead of going through whatever scheduler the server has installed.
+ * <p>
+ * {@code runTask*(...)} and {@code cancel()} calls on {@code BukkitRunnable} and its subclasses inside the jar are
+ * redirected the same way, since the originals call {@code Bukkit.getScheduler()} internally. A runnable method
+ * that any class in the jar overrides is left as a virtual call, so overrides keep working; {@code super.m()}
+ * calls from such overrides are still redirected. Subclasses that live outside the jar are not recognized.
+ * <p>
+ * The receiver simply becomes the first argument, so the operand stack, max stack and stack map frames are
+ * unchanged and the class is copied through {@link ClassWriter}'s constant-pool-preserving fast path.
+ * Which methods exist on the shim is read from its class file, so patching never loads Bukkit classes.
+ */
+final class SchedulerCallRewriter {
+    static final String SCHEDULER = "org/bukkit/scheduler/BukkitScheduler";
+    static final String RUNNABLE = "org/bukkit/scheduler/BukkitRunnable";
+    static final String SHIM = "summer/foliaPhantom/scheduler/SchedulerShim";
+    private static final byte[] SCHEDULER_UTF8 = SCHEDULER.getBytes(StandardCharsets.UTF_8);
+    private static final String RECEIVER = "(L" + SCHEDULER + ";";
+    private static final String RUNNABLE_RECEIVER = "(L" + RUNNABLE + ";";
+
+    private final Set<String> shimMethods; // name + descriptor of every public static shim method
+    private final Set<String> runnableSubclasses = new HashSet<>(); // Internal names, BukkitRunnable included
+    private final Map<String, String> superClasses = new HashMap<>();
+    private final Map<String, Set<String>> declaredMethods = new HashMap<>(); // Redirectable runnable methods only
+    private final Set<String> overriddenRunnableMethods = new HashSet<>();
+
+    /**
+     * @param jar the jar whose classes will be rewritten; scanned once for {@code BukkitRunnable} subclasses
+     */
+    SchedulerCallRewriter(File jar) throws IOException {
+        this.shimMethods = readShimMethods();
+        indexRunnableSubclasses(jar);
+    }
+
+    /**
+     * @return the rewritten class, or null if it has no redirectable call sites
+     */
+    byte[] rewrite(byte[] classFile) {
+        if (!contains(classFile, SCHEDULER_UTF8) && !mayCallRunnable(classFile)) {
+            return null; // The class never names BukkitScheduler or a runnable class; skip parsing it
+        }
+        try {
+            ClassReader reader = new ClassReader(classFile);
+            ClassWriter writer = new ClassWriter(reader, 0);
+            RedirectingClassVisitor visitor = new RedirectingClassVisitor(writer);
+            reader.accept(visitor, 0);
+            return visitor.rewritten > 0 ? writer.toByteArray() : null;
+        } catch (RuntimeException e) {
+            return null; // A class file ASM cannot parse (e.g. a newer class version) is copied unchanged
+        }
+    }
+
+    private final class RedirectingClassVisitor extends ClassVisitor {
+        int rewritten;
+
+        RedirectingClassVisitor(ClassVisitor next) {
+            super(Opcodes.ASM9, next);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            MethodVisitor next = super.visitMethod(access, name, descriptor, signature, exceptions);
+            return new MethodVisitor(Opcodes.ASM9, next) {
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String methodName, String methodDescriptor, boolean isInterface) {
+                    if (opcode == Opcodes.INVOKEINTERFACE && SCHEDULER.equals(owner)) {
+                        String shimDescriptor = RECEIVER + methodDescriptor.substring(1);
+                        if (shimMethods.contains(methodName + shimDescriptor)) {
+                            rewritten++;
+                            super.visitMethodInsn(Opcodes.INVOKESTATIC, SHIM, methodName, shimDescriptor, false);
+                            return;
+                        }
+                    } else if ((opcode == Opcodes.INVOKEVIRTUAL || opcode == Opcodes.INVOKESPECIAL) && runnableSubclasses.contains(owner)) {
+                        String shimDescriptor = RUNNABLE_RECEIVER + methodDescriptor.substring(1);
+                        String method = methodName + methodDescriptor;
+                        boolean resolvesToBukkit = (opcode == Opcodes.INVOKESPECIAL)
+                                ? !overriddenBetween(owner, method)
+                                : !overriddenRunnableMethods.contains(method);
+                        if (resolvesToBukkit && shimMethods.contains(methodName + shimDescriptor)) {
+                            rewritten++;
+                            super.visitMethodInsn(Opcodes.INVOKESTATIC, SHIM, methodName, shimDescriptor, false);
+                            return;
+                        }
+                    }
+                    super.visitMethodInsn(opcode, owner, methodName, methodDescriptor, isInterface);
+                }
+            };
+        }
+    }
+
+    /**
+     * Records every class in {@code jar} that extends {@code BukkitRunnable} (directly or not) and which of the
+     * redirectable runnable methods each one declares.
+     */
+    private void indexRunnableSubclasses(File jar) throws IOException {
+        Set<String> runnableMethods = new HashSet<>();
+        for (String method : shimMethods) {
+            int descriptorStart = method.indexOf('(');
+            if (method.startsWith(RUNNABLE_RECEIVER, descriptorStart)) {
+                runnableMethods.add(method.substring(0, descriptorStart) + "(" + method.substring(descriptorStart + RUNNABLE_RECEIVER.length()));
+            }
+        }
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")) continue;
+                byte[] classFile;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    classFile = in.readAllBytes();
+                }
+                ClassReader reader;
+                try {
+                    reader = new ClassReader(classFile);
+                } catch (RuntimeException e) {
+                    continue; // Not a class file we understand (e.g. a multi-release or obfuscated oddity)
+                }
+                String name = reader.getClassName();
+                superClasses.put(name, reader.getSuperName());
+                reader.accept(new ClassVisitor(Opcodes.ASM9) {
+                    @Override
+                    public MethodVisitor visitMethod(int access, String methodName, String descriptor, String signature, String[] exceptions) {
+                        if (runnableMethods.contains(methodName + descriptor)) {
+                            declaredMethods.computeIfAbsent(name, k -> new HashSet<>()).add(methodName + descriptor);
+                        }
+                        return null;
+                    }
+                }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            }
+        }
+        runnableSubclasses.add(RUNNABLE);
+        for (String name : superClasses.keySet()) {
+            if (extendsRunnable(name)) {
+                runnableSubclasses.add(name);
+                overriddenRunnableMethods.addAll(declaredMethods.getOrDefault(name, Set.of()));
+            }
+        }
+    }
+
+    private boolean extendsRunnable(String name) {
+        for (int depth = 0; name != null && depth < 64; depth++) { // Depth bound guards against malformed cycles
+            if (RUNNABLE.equals(name)) return true;
+            name = superClasses.get(name);
+        }
+        return false;
+    }
+
+    /**
+     * @return whether a class from {@code owner} up to (excluding) {@code BukkitRunnable} declares {@code method}
+     */
+    private boolean overriddenBetween(String owner, String method) {
+        for (String name = owner; name != null && !RUNNABLE.equals(name); name = superClasses.get(name)) {
+            Set<String> methods = declaredMethods.get(name);
+            if (methods != null && methods.contains(method)) return true;
+        }
+        return false;
+    }
+
+    private boolean mayCallRunnable(byte[] classFile) {
+        if (runnableSubclasses.size() > 64) {
+            return true; // Too many names to search for; let ASM look at the constant pool instead
+        }
+        for (String name : runnableSubclasses) {
+            if (contains(classFile, name.getBytes(StandardCharsets.UTF_8))) return true;
+        }
+        return false;
+    }
+
+    private static Set<String> readShimMethods() throws IOException {
+        Set<String> methods = new HashSet<>();
+        try (InputStream in = SchedulerCallRewriter.class.getClassLoader().getResourceAsStream(SHIM + ".class")) {
+            if (in == null) {
+                throw new IOException("missing " + SHIM + ".class");
+            }
+            new ClassReader(in).accept(new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    int required = Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC;
+                    if ((access & required) == required && (descriptor.startsWith(RECEIVER) || descriptor.startsWith(RUNNABLE_RECEIVER))) {
+                        methods.add(name + descriptor);
+                    }
+                    return null;
+                }
+            }, ClassReader.SKIP_CODE);
+        }
+        return methods;
+    }
+
+    private static boolean contains(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0, last = haystack.length - needle.length; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+}
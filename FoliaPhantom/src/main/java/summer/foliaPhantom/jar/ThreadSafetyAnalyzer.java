@@ -0,0 +1,265 @@
+package summer.foliaPhantom.jar;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Scans a plugin jar for calls into Bukkit APIs that must run on the thread owning the entity, chunk or world
+ * they touch, which on Folia is the region thread and not "the main thread" legacy plugins assume.
+ * <p>
+ * Class files are read straight from the jar and parsed in parallel; classes that never mention
+ * {@code org/bukkit/} are skipped without parsing. The result is a {@link Report} that can be written as JSON.
+ * This is an analysis only: call sites are not changed.
+ */
+public final class ThreadSafetyAnalyzer {
+    private static final byte[] BUKKIT_UTF8 = "org/bukkit/".getBytes(StandardCharsets.UTF_8);
+    private static final Set<String> ITERATION_METHODS = Set.of("iterator", "forEach", "stream", "parallelStream", "toArray", "spliterator");
+
+    public enum Category {
+        /** Reads or mutates an entity, which only its owning region may do. */
+        ENTITY,
+        /** Reads or mutates blocks or chunks. */
+        CHUNK,
+        /** World-wide queries that span regions. */
+        WORLD,
+        /** Iterates every online player, touching entities owned by every region. */
+        GLOBAL_ITERATION
+    }
+
+    /**
+     * One call site of a thread-sensitive API.
+     */
+    public record Finding(Category category, String api, String className, String methodName, int line) {
+    }
+
+    /**
+     * @param findings sorted by class, then line
+     */
+    public record Report(String jarName, int classesScanned, long durationMillis, List<Finding> findings) {
+        public Map<Category, Integer> countsByCategory() {
+            Map<Category, Integer> counts = new EnumMap<>(Category.class);
+            for (Finding finding : findings) {
+                counts.merge(finding.category(), 1, Integer::sum);
+            }
+            return counts;
+        }
+
+        /**
+         * Writes this report as JSON, replacing {@code file} atomically.
+         */
+        public void writeJson(File file) throws IOException {
+            StringBuilder sb = new StringBuilder(256 + findings.size() * 128);
+            sb.append("{\n  \"jar\": ").append(quote(jarName))
+                    .append(",\n  \"classesScanned\": ").append(classesScanned)
+                    .append(",\n  \"durationMillis\": ").append(durationMillis)
+                    .append(",\n  \"counts\": {");
+            boolean first = true;
+            for (Map.Entry<Category, Integer> entry : countsByCategory().entrySet()) {
+                sb.append(first ? "" : ", ").append(quote(entry.getKey().name())).append(": ").append(entry.getValue());
+                first = false;
+            }
+            sb.append("},\n  \"findings\": [");
+            for (int i = 0; i < findings.size(); i++) {
+                Finding f = findings.get(i);
+                sb.append(i == 0 ? "\n" : ",\n")
+                        .append("    {\"category\": ").append(quote(f.category().name()))
+                        .append(", \"api\": ").append(quote(f.api()))
+                        .append(", \"class\": ").append(quote(f.className()))
+                        .append(", \"method\": ").append(quote(f.methodName()))
+                        .append(", \"line\": ").append(f.line()).append('}');
+            }
+            sb.append(findings.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create " + parent);
+            }
+            File temp = new File(file.getPath() + ".tmp");
+            Files.writeString(temp.toPath(), sb, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private ThreadSafetyAnalyzer() {
+    }
+
+    public static Report analyze(File jar) throws IOException {
+        long start = System.nanoTime();
+        List<Finding> findings;
+        int classes;
+        try (ZipFile zip = new ZipFile(jar)) {
+            List<ZipEntry> classEntries = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (entry.getName().endsWith(".class")) classEntries.add(entry);
+            }
+            classes = classEntries.size();
+            // ZipFile is safe for concurrent reads; each entry is inflated and parsed independently.
+            findings = classEntries.parallelStream()
+                    .flatMap(entry -> scan(zip, entry).stream())
+                    .sorted((a, b) -> a.className().equals(b.className())
+                            ? Integer.compare(a.line(), b.line())
+                            : a.className().compareTo(b.className()))
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new Report(jar.getName(), classes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), findings);
+    }
+
+    private static List<Finding> scan(ZipFile zip, ZipEntry entry) {
+        byte[] classFile;
+        try (InputStream in = zip.getInputStream(entry)) {
+            classFile = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!contains(classFile, BUKKIT_UTF8)) {
+            return List.of();
+        }
+        List<Finding> findings = new ArrayList<>();
+        try {
+            ClassReader reader = new ClassReader(classFile);
+            String className = reader.getClassName().replace('/', '.');
+            reader.accept(new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    return new CallSiteVisitor(className, name, findings);
+                }
+            }, ClassReader.SKIP_FRAMES);
+        } catch (RuntimeException e) {
+            // A class file ASM cannot parse; nothing to report for it.
+        }
+        return findings;
+    }
+
+    private static final class CallSiteVisitor extends MethodVisitor {
+        private final String className;
+        private final String methodName;
+        private final List<Finding> findings;
+        private int line = -1;
+        private int onlinePlayersLine = Integer.MIN_VALUE; // Line of a getOnlinePlayers() result still on the stack
+
+        CallSiteVisitor(String className, String methodName, List<Finding> findings) {
+            super(Opcodes.ASM9);
+            this.className = className;
+            this.methodName = methodName;
+            this.findings = findings;
+        }
+
+        @Override
+        public void visitLineNumber(int line, Label start) {
+            this.line = line;
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            if (onlinePlayersLine != Integer.MIN_VALUE) {
+                if (ITERATION_METHODS.contains(name)) {
+                    findings.add(new Finding(Category.GLOBAL_ITERATION, "getOnlinePlayers()." + name, className, methodName, onlinePlayersLine));
+                }
+                onlinePlayersLine = Integer.MIN_VALUE;
+            }
+            if (!owner.startsWith("org/bukkit/")) return;
+            if (name.equals("getOnlinePlayers") && (owner.equals("org/bukkit/Bukkit") || owner.equals("org/bukkit/Server"))) {
+                onlinePlayersLine = line;
+                return;
+            }
+            Category category = classify(owner, name);
+            if (category != null) {
+                findings.add(new Finding(category, simpleName(owner) + "#" + name, className, methodName, line));
+            }
+        }
+    }
+
+    /**
+     * @return the category of {@code owner.name}, or null if it is not known to be thread-sensitive
+     */
+    private static Category classify(String owner, String name) {
+        if (owner.startsWith("org/bukkit/entity/")) {
+            return switch (name) {
+                case "teleport", "remove", "getNearbyEntities", "setVelocity", "addPassenger", "removePassenger",
+                     "eject", "setHealth", "damage", "addPotionEffect", "removePotionEffect", "setFireTicks",
+                     "openInventory", "setGameMode", "launchProjectile" -> Category.ENTITY;
+                default -> null;
+            };
+        }
+        return switch (owner) {
+            case "org/bukkit/World" -> switch (name) {
+                case "getEntities", "getLivingEntities", "getEntitiesByClass", "getEntitiesByClasses",
+                     "getNearbyEntities", "getPlayers", "getLoadedChunks" -> Category.WORLD;
+                case "spawn", "spawnEntity", "dropItem", "dropItemNaturally", "createExplosion", "strikeLightning",
+                     "getBlockAt", "getHighestBlockAt", "getChunkAt", "loadChunk", "unloadChunk", "regenerateChunk",
+                     "refreshChunk", "generateTree", "setBlockData" -> Category.CHUNK;
+                default -> null;
+            };
+            case "org/bukkit/Chunk" -> switch (name) {
+                case "load", "unload", "getEntities", "getTileEntities", "getBlock" -> Category.CHUNK;
+                default -> null;
+            };
+            case "org/bukkit/block/Block" -> switch (name) {
+                case "setType", "setBlockData", "breakNaturally", "getState", "applyBoneMeal" -> Category.CHUNK;
+                default -> null;
+            };
+            case "org/bukkit/block/BlockState" -> name.equals("update") ? Category.CHUNK : null;
+            case "org/bukkit/Location" -> name.equals("getBlock") || name.equals("getChunk") ? Category.CHUNK : null;
+            default -> null;
+        };
+    }
+
+    private static String simpleName(String internalName) {
+        return internalName.substring(internalName.lastIndexOf('/') + 1);
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static boolean contains(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0, last = haystack.length - needle.length; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,279 @@
+package summer.foliaPhantom.jar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Copies a zip/jar file entry by entry using its central directory, transferring the compressed bytes of
+ * untouched entries verbatim (timestamps, compression method and extra fields included) and only
+ * inflating, transforming and re-deflating the entries a caller asks for.
+ * <p>
+ * ZIP64 archives, multi-disk archives and compression methods other than stored/deflated are rejected
+ * with a {@link ZipException}; callers fall back to a plain stream copy for those.
+ */
+final class ZipRewriter {
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIZE = 30;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private ZipRewriter() {
+    }
+
+    /**
+     * @param wantsContent decides, by entry name, which entries are handed to {@code transformer}
+     * @param transformer  receives the entry name and uncompressed bytes and returns the new content,
+     *                     or null to keep the entry unchanged
+     * @return the number of entries that were rewritten
+     */
+    static int rewrite(File source, File target, Predicate<String> wantsContent,
+                       BiFunction<String, byte[], byte[]> transformer) throws IOException {
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer eocd = findEndOfCentralDirectory(in);
+            int entries = Short.toUnsignedInt(eocd.getShort(10));
+            long cenSize = Integer.toUnsignedLong(eocd.getInt(12));
+            long cenOffset = Integer.toUnsignedLong(eocd.getInt(16));
+            if (Short.toUnsignedInt(eocd.getShort(4)) != 0 || entries != Short.toUnsignedInt(eocd.getShort(8))) {
+                throw new ZipException("multi-disk archives are not supported");
+            }
+            if (entries == 0xFFFF || cenSize == 0xFFFFFFFFL || cenOffset == 0xFFFFFFFFL) {
+                throw new ZipException("ZIP64 archives are not supported");
+            }
+            ByteBuffer cen = read(in, cenOffset, (int) cenSize);
+            ByteArrayOutputStream newCen = new ByteArrayOutputStream((int) cenSize + 256);
+            ByteBuffer localHeader = ByteBuffer.allocate(LOC_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int rewritten = 0;
+
+            int pos = 0;
+            for (int i = 0; i < entries; i++) {
+                if (cen.getInt(pos) != CEN_SIGNATURE) {
+                    throw new ZipException("invalid central directory header at entry " + i);
+                }
+                int flags = Short.toUnsignedInt(cen.getShort(pos + 8));
+                int method = Short.toUnsignedInt(cen.getShort(pos + 10));
+                long compressedSize = Integer.toUnsignedLong(cen.getInt(pos + 20));
+                long size = Integer.toUnsignedLong(cen.getInt(pos + 24));
+                int nameLength = Short.toUnsignedInt(cen.getShort(pos + 28));
+                int extraLength = Short.toUnsignedInt(cen.getShort(pos + 30));
+                int commentLength = Short.toUnsignedInt(cen.getShort(pos + 32));
+                long localOffset = Integer.toUnsignedLong(cen.getInt(pos + 42));
+                int recordLength = CEN_SIZE + nameLength + extraLength + commentLength;
+                if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localOffset == 0xFFFFFFFFL) {
+                    throw new ZipException("ZIP64 entries are not supported");
+                }
+                byte[] nameBytes = new byte[nameLength];
+                cen.get(pos + CEN_SIZE, nameBytes);
+                String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+                localHeader.clear();
+                readFully(in, localHeader, localOffset);
+                if (localHeader.getInt(0) != LOC_SIGNATURE) {
+                    throw new ZipException("invalid local header for " + name);
+                }
+                long dataStart = localOffset + LOC_SIZE + Short.toUnsignedInt(localHeader.getShort(26))
+                        + Short.toUnsignedInt(localHeader.getShort(28));
+                long dataEnd = dataStart + compressedSize;
+
+                byte[] replacement = null;
+                if (wantsContent.test(name)) {
+                    byte[] content = inflate(read(in, dataStart, (int) compressedSize), method, size, name);
+                    replacement = transformer.apply(name, content);
+                }
+
+                long newOffset = out.position();
+                requireNoZip64(newOffset);
+                byte[] record = new byte[recordLength];
+                cen.get(pos, record);
+                ByteBuffer newRecord = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+                if (replacement == null) {
+                    long end = dataEnd;
+                    if ((flags & FLAG_DATA_DESCRIPTOR) != 0) {
+                        end += (read(in, dataEnd, 4).getInt(0) == DESCRIPTOR_SIGNATURE) ? 16 : 12;
+                    }
+                    transfer(in, localOffset, end - localOffset, out);
+                } else {
+                    writeDeflated(out, newRecord, nameBytes, flags & ~FLAG_DATA_DESCRIPTOR, replacement);
+                    rewritten++;
+                }
+                newRecord.putInt(42, (int) newOffset);
+                newCen.write(record);
+                pos += recordLength;
+            }
+
+            long newCenOffset = out.position();
+            requireNoZip64(newCenOffset);
+            byte[] newCenBytes = newCen.toByteArray();
+            writeFully(out, ByteBuffer.wrap(newCenBytes));
+            eocd.putInt(12, newCenBytes.length);
+            eocd.putInt(16, (int) newCenOffset);
+            eocd.position(0);
+            writeFully(out, eocd);
+            return rewritten;
+        }
+    }
+
+    /**
+     * Writes a deflated local entry for {@code content} and updates {@code cenRecord} (a copy of the original
+     * central directory record) with the new method, CRC and sizes. Timestamps, name and comment are kept.
+     */
+    private static void writeDeflated(FileChannel out, ByteBuffer cenRecord, byte[] nameBytes, int flags, byte[] content)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        byte[] compressed = deflate(content);
+
+        cenRecord.putShort(8, (short) flags);
+        cenRecord.putShort(10, (short) METHOD_DEFLATED);
+        cenRecord.putInt(16, (int) crc.getValue());
+        cenRecord.putInt(20, compressed.length);
+        cenRecord.putInt(24, content.length);
+
+        ByteBuffer header = ByteBuffer.allocate(LOC_SIZE + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOC_SIGNATURE);
+        header.putShort(cenRecord.getShort(6));  // Version needed to extract
+        header.putShort((short) flags);
+        header.putShort((short) METHOD_DEFLATED);
+        header.putShort(cenRecord.getShort(12)); // Time
+        header.putShort(cenRecord.getShort(14)); // Date
+        header.putInt((int) crc.getValue());
+        header.putInt(compressed.length);
+        header.putInt(content.length);
+        header.putShort((short) nameBytes.length);
+        header.putShort((short) 0);              // No local extra field
+        header.put(nameBytes);
+        header.flip();
+        writeFully(out, header);
+        writeFully(out, ByteBuffer.wrap(compressed));
+    }
+
+    /**
+     * Offsets are stored as 32-bit fields, and 0xFFFFFFFF itself marks a ZIP64 extra field, so anything from there
+     * up cannot be written without ZIP64.
+     */
+    static void requireNoZip64(long offset) throws ZipException {
+        if (offset >= 0xFFFFFFFFL) {
+            throw new ZipException("rewritten archive would need ZIP64 (offset " + offset + ")");
+        }
+    }
+
+    private static ByteBuffer findEndOfCentralDirectory(FileChannel in) throws IOException {
+        long fileSize = in.size();
+        if (fileSize < EOCD_SIZE) {
+            throw new ZipException("not a zip file");
+        }
+        int tailLength = (int) Math.min(fileSize, EOCD_SIZE + MAX_COMMENT);
+        ByteBuffer tail = read(in, fileSize - tailLength, tailLength);
+        for (int pos = tailLength - EOCD_SIZE; pos >= 0; pos--) {
+            if (tail.getInt(pos) == EOCD_SIGNATURE
+                    && pos + EOCD_SIZE + Short.toUnsignedInt(tail.getShort(pos + 20)) == tailLength) {
+                byte[] record = new byte[tailLength - pos];
+                tail.get(pos, record);
+                return ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        throw new ZipException("end of central directory not found");
+    }
+
+    private static byte[] inflate(ByteBuffer compressed, int method, long size, String name) throws IOException {
+        byte[] data = new byte[compressed.remaining()];
+        compressed.get(data);
+        if (method == METHOD_STORED) {
+            return data;
+        }
+        if (method != METHOD_DEFLATED) {
+            throw new ZipException("unsupported compression method " + method + " for " + name);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] content = new byte[(int) size];
+            int length = 0;
+            while (length < content.length && !inflater.finished()) {
+                int n = inflater.inflate(content, length, content.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += n;
+            }
+            if (length != content.length) {
+                throw new ZipException("truncated entry " + name);
+            }
+            return content;
+        } catch (DataFormatException e) {
+            throw new ZipException("corrupt entry " + name + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(byte[] content) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer read(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(in, buffer, position);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = in.read(buffer, position);
+            if (n < 0) throw new EOFException("unexpected end of zip file");
+            position += n;
+        }
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        while (count > 0) {
+            long n = in.transferTo(position, count, out);
+            if (n <= 0) {
+                if (position >= in.size()) throw new EOFException("unexpected end of zip file");
+                continue;
+            }
+            position += n;
+            count -= n;
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package summer.foliaPhantom.metrics;
+
+/**
+ * Which kind of executor a task was handed to.
+ */
+public enum ExecutionTarget {
+    REGION,
+    ENTITY,
+    GLOBAL,
+    FOLIA_ASYNC,
+    VIRTUAL_THREAD
+}
@@ -0,0 +1,164 @@
+package summer.foliaPhantom.metrics;
+
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-plugin and per-task-class statistics for every task scheduled through FoliaPhantom's scheduler.
+ * <p>
+ * Stats objects are resolved once when a task is scheduled and stored on the task handle, so running a
+ * task only touches counters and histograms, never these maps.
+ */
+public class SchedulerMetrics {
+    private static final int TOP_TASK_CLASSES = 5;
+
+    private final ConcurrentHashMap<String, PluginStats> plugins = new ConcurrentHashMap<>();
+    private volatile long resetAtMillis = System.currentTimeMillis();
+
+    private static final class PluginStats {
+        final TaskStats total;
+        final ConcurrentHashMap<String, TaskStats> byTaskClass = new ConcurrentHashMap<>(); // By class name, so no plugin class is pinned
+
+        PluginStats(String pluginName) {
+            this.total = new TaskStats(pluginName, null);
+        }
+    }
+
+    /**
+     * @return the stats to record a task of {@code taskClass} owned by {@code plugin} into
+     */
+    public TaskStats statsFor(Plugin plugin, Class<?> taskClass) {
+        PluginStats pluginStats = plugins.computeIfAbsent(plugin.getName(), PluginStats::new);
+        String className = taskClass.getName();
+        TaskStats stats = pluginStats.byTaskClass.get(className);
+        if (stats == null) {
+            stats = pluginStats.byTaskClass.computeIfAbsent(className, name -> new TaskStats(name, pluginStats.total));
+        }
+        return stats;
+    }
+
+    /**
+     * @return whether stats for {@code pluginName} are still kept, i.e. its tasks were never cancelled through the proxy
+     */
+    public boolean isTracking(String pluginName) {
+        return plugins.containsKey(pluginName);
+    }
+
+    /**
+     * Forgets everything recorded for {@code pluginName}; called when its tasks are cancelled on disable or reload.
+     * Tasks that are still running keep counting into the detached stats.
+     */
+    public void remove(String pluginName) {
+        plugins.remove(pluginName);
+    }
+
+    public void reset() {
+        for (PluginStats pluginStats : plugins.values()) {
+            pluginStats.total.reset();
+            for (TaskStats stats : pluginStats.byTaskClass.values()) {
+                stats.reset();
+            }
+        }
+        resetAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Builds a plain-text report, busiest plugin (by total run time) first.
+     *
+     * @param pluginFilter only report this plugin (case-insensitive), or null for all plugins
+     * @param detailed     include the busiest task classes of each plugin
+     */
+    public List<String> report(String pluginFilter, boolean detailed) {
+        List<String> lines = new ArrayList<>();
+        double elapsedSeconds = Math.max(1.0, (System.currentTimeMillis() - resetAtMillis) / 1000.0);
+        lines.add(String.format("Scheduler metrics over the last %.0fs (latency/run in ms: p50 / p99 / max)", elapsedSeconds));
+
+        List<PluginStats> sorted = new ArrayList<>(plugins.values());
+        sorted.sort(Comparator.comparingLong((PluginStats p) -> p.total.runDuration().sum()).reversed());
+        for (PluginStats pluginStats : sorted) {
+            TaskStats total = pluginStats.total;
+            if (pluginFilter != null && !total.name().equalsIgnoreCase(pluginFilter)) continue;
+            lines.add(formatStats(total, elapsedSeconds));
+            lines.add("    targets: " + formatTargets(total) + "  threads: " + formatThreads(total));
+            if (detailed) {
+                List<TaskStats> classes = new ArrayList<>(pluginStats.byTaskClass.values());
+                classes.sort(Comparator.comparingLong((TaskStats s) -> s.runDuration().sum()).reversed());
+                for (int i = 0; i < Math.min(TOP_TASK_CLASSES, classes.size()); i++) {
+                    lines.add("    - " + formatStats(classes.get(i), elapsedSeconds));
+                }
+            }
+        }
+        if (lines.size() == 1) {
+            lines.add("No tasks recorded" + (pluginFilter != null ? " for " + pluginFilter : "") + ".");
+        }
+        return lines;
+    }
+
+    /**
+     * Writes a detailed report to {@code file}, replacing it atomically.
+     */
+    public void dump(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add("# FoliaPhantom scheduler metrics, written " + Instant.now());
+        lines.addAll(report(null, true));
+        File temp = new File(file.getPath() + ".tmp");
+        Files.write(temp.toPath(), lines, StandardCharsets.UTF_8);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String formatStats(TaskStats stats, double elapsedSeconds) {
+        LatencyHistogram latency = stats.startLatency();
+        LatencyHistogram run = stats.runDuration();
+        return String.format("%s: scheduled=%d (%.1f/s) executed=%d failed=%d%s%s latency=%s run=%s total=%.1fms",
+                stats.name(), stats.scheduled(), stats.scheduled() / elapsedSeconds, stats.executed(), stats.failures(),
+                stats.deferred() > 0 ? " deferred=" + stats.deferred() : "",
+                stats.blockingGets() > 0 ? " blocking-gets=" + stats.blockingGets() : "",
+                formatHistogram(latency), formatHistogram(run), run.sum() / 1_000_000.0);
+    }
+
+    private static String formatHistogram(LatencyHistogram histogram) {
+        return String.format("%.2f/%.2f/%.2f",
+                histogram.percentile(50) / 1_000_000.0,
+                histogram.percentile(99) / 1_000_000.0,
+                histogram.max() / 1_000_000.0);
+    }
+
+    private static String formatTargets(TaskStats stats) {
+        StringBuilder sb = new StringBuilder();
+        for (ExecutionTarget target : ExecutionTarget.values()) {
+            long count = stats.scheduledOn(target);
+            if (count == 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(target.name().toLowerCase()).append('=').append(count);
+        }
+        return sb.length() == 0 ? "-" : sb.toString();
+    }
+
+    private static String formatThreads(TaskStats stats) {
+        List<Map.Entry<String, LongAdder>> entries = new ArrayList<>(stats.threads().entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed());
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(3, entries.size()); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(entries.get(i).getKey()).append('=').append(entries.get(i).getValue().sum());
+        }
+        if (entries.size() > 3) sb.append(", +").append(entries.size() - 3).append(" more");
+        return sb.length() == 0 ? "-" : sb.toString();
+    }
+}
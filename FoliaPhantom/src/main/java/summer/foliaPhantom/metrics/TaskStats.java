@@ -0,0 +1,130 @@
+package summer.foliaPhantom.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms for one plugin, or for one task class of a plugin.
+ * A task class's stats forward every sample to the owning plugin's stats as well.
+ */
+public final class TaskStats {
+    private final String name;
+    private final TaskStats parent;
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder blockingGets = new LongAdder();
+    private final LongAdder[] targets = new LongAdder[ExecutionTarget.values().length];
+    private final ConcurrentHashMap<String, LongAdder> threads = new ConcurrentHashMap<>();
+    private final LatencyHistogram startLatency = new LatencyHistogram();
+    private final LatencyHistogram runDuration = new LatencyHistogram();
+
+    TaskStats(String name, TaskStats parent) {
+        this.name = name;
+        this.parent = parent;
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new LongAdder();
+        }
+    }
+
+    public void recordScheduled(ExecutionTarget target) {
+        scheduled.increment();
+        targets[target.ordinal()].increment();
+        if (parent != null) parent.recordScheduled(target);
+    }
+
+    /**
+     * @param latencyNanos how late the run started compared to when it was due
+     * @param thread       the thread running the task
+     */
+    public void recordStart(long latencyNanos, Thread thread) {
+        startLatency.record(latencyNanos);
+        // Region and pool threads are long-lived, so this only allocates the first time a thread is seen.
+        // Virtual threads are one-per-run and are counted under a single key.
+        String threadName = thread.isVirtual() ? "virtual-threads" : thread.getName();
+        LongAdder perThread = threads.get(threadName);
+        if (perThread == null) {
+            perThread = threads.computeIfAbsent(threadName, k -> new LongAdder());
+        }
+        perThread.increment();
+        if (parent != null) parent.recordStart(latencyNanos, thread);
+    }
+
+    public void recordRun(long durationNanos, boolean failed) {
+        executed.increment();
+        runDuration.record(durationNanos);
+        if (failed) failures.increment();
+        if (parent != null) parent.recordRun(durationNanos, failed);
+    }
+
+    /**
+     * Records that a run was pushed to the next tick because its plugin was over its tick budget.
+     */
+    public void recordDeferred() {
+        deferred.increment();
+        if (parent != null) parent.recordDeferred();
+    }
+
+    /**
+     * Records that a tick thread waited for a {@code callSyncMethod} result that was not ready yet.
+     */
+    public void recordBlockingGet() {
+        blockingGets.increment();
+        if (parent != null) parent.recordBlockingGet();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long scheduled() {
+        return scheduled.sum();
+    }
+
+    public long executed() {
+        return executed.sum();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long deferred() {
+        return deferred.sum();
+    }
+
+    public long blockingGets() {
+        return blockingGets.sum();
+    }
+
+    public long scheduledOn(ExecutionTarget target) {
+        return targets[target.ordinal()].sum();
+    }
+
+    public ConcurrentHashMap<String, LongAdder> threads() {
+        return threads;
+    }
+
+    public LatencyHistogram startLatency() {
+        return startLatency;
+    }
+
+    public LatencyHistogram runDuration() {
+        return runDuration;
+    }
+
+    void reset() {
+        scheduled.reset();
+        executed.reset();
+        failures.reset();
+        deferred.reset();
+        blockingGets.reset();
+        for (LongAdder target : targets) {
+            target.reset();
+        }
+        threads.clear();
+        startLatency.reset();
+        runDuration.reset();
+    }
+}
@@ -0,0 +1,290 @@
+package summer.foliaPhantom.plugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.RegisteredServiceProvider;
+import summer.foliaPhantom.metrics.SchedulerMetrics;
+import summer.foliaPhantom.scheduler.FoliaBukkitTask;
+import summer.foliaPhantom.scheduler.TaskRegistry;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Watches the class loaders of released wrapped plugins and reports those that survive several major GC cycles.
+ * <p>
+ * Each released loader is held through a {@link WeakReference} registered with a {@link ReferenceQueue}, so
+ * collected loaders are noticed without keeping them alive. A loader still reachable after {@code gcCycles} major
+ * collections is reported once, with the retainers that could be identified cheaply: FoliaPhantom's task registry
+ * and scheduler metrics, the plugin manager, event listeners, services, live threads and thread locals. Anything else (a static field in
+ * another plugin, a JDK cache) needs a heap dump to find.
+ * <p>
+ * The checking thread only runs while some loader is waiting to be collected or reported, and stops on its own afterwards.
+ */
+public class ClassLoaderLeakDetector {
+    private static final int MAX_REPORTS = 32;
+
+    public enum Retainer {
+        SCHEDULER_TASKS, SCHEDULER_METRICS, PLUGIN_MANAGER, LISTENERS, SERVICES, THREADS, THREAD_LOCALS, UNKNOWN
+    }
+
+    /**
+     * A class loader that was still reachable {@code gcCycles} major collections after its plugin was released.
+     *
+     * @param retainers what still references it, most specific first
+     */
+    public record Leak(String pluginName, long releasedAtMillis, long gcCycles, List<String> retainers) {
+    }
+
+    private static final class Tracked extends WeakReference<ClassLoader> {
+        final String pluginName;
+        final long releasedAtMillis = System.currentTimeMillis();
+        final long gcCountAtRelease;
+        boolean reported;
+
+        Tracked(String pluginName, ClassLoader loader, ReferenceQueue<ClassLoader> queue, long gcCountAtRelease) {
+            super(loader, queue);
+            this.pluginName = pluginName;
+            this.gcCountAtRelease = gcCountAtRelease;
+        }
+    }
+
+    private final Logger logger;
+    private final TaskRegistry taskRegistry; // Null if the scheduler proxy is not installed
+    private final SchedulerMetrics metrics; // Null if scheduler metrics are disabled
+    private final int gcCycles;
+    private final long checkIntervalMillis;
+    private final boolean forceGc;
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+    private final List<Tracked> pending = new ArrayList<>(); // Guarded by this
+    private final Deque<Leak> leaks = new ArrayDeque<>(); // Guarded by this, most recent first
+    private final List<GarbageCollectorMXBean> majorCollectors = new ArrayList<>();
+    private Thread thread; // Guarded by this
+
+    /**
+     * @param gcCycles major GC cycles a released loader may survive before it is reported
+     * @param forceGc  whether to request a GC before each check while loaders are pending
+     */
+    public ClassLoaderLeakDetector(Logger logger, TaskRegistry taskRegistry, SchedulerMetrics metrics, int gcCycles,
+                                   long checkIntervalMillis, boolean forceGc) {
+        this.logger = logger;
+        this.taskRegistry = taskRegistry;
+        this.metrics = metrics;
+        this.gcCycles = Math.max(1, gcCycles);
+        this.checkIntervalMillis = Math.max(100L, checkIntervalMillis);
+        this.forceGc = forceGc;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (isMajorCollector(collector.getName())) majorCollectors.add(collector);
+        }
+        if (majorCollectors.isEmpty()) {
+            majorCollectors.addAll(ManagementFactory.getGarbageCollectorMXBeans());
+        }
+    }
+
+    /**
+     * Starts watching {@code loader}, which must no longer be needed by its plugin.
+     */
+    public synchronized void release(String pluginName, ClassLoader loader) {
+        pending.add(new Tracked(pluginName, loader, queue, majorGcCount()));
+        if (thread == null) {
+            thread = new Thread(this::runChecks, "FoliaPhantom-LeakDetector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * @return the most recent leak reports, most recent first
+     */
+    public synchronized List<Leak> getLeaks() {
+        return new ArrayList<>(leaks);
+    }
+
+    /**
+     * @return the names of released plugins whose class loaders have not been collected yet
+     */
+    public synchronized List<String> getPending() {
+        List<String> names = new ArrayList<>(pending.size());
+        for (Tracked tracked : pending) {
+            names.add(tracked.pluginName);
+        }
+        return names;
+    }
+
+    private void runChecks() {
+        while (true) {
+            try {
+                if (forceGc) {
+                    System.gc();
+                }
+                Thread.sleep(checkIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            List<Tracked> suspects = new ArrayList<>();
+            synchronized (this) {
+                Reference<? extends ClassLoader> collected;
+                while ((collected = queue.poll()) != null) {
+                    Tracked tracked = (Tracked) collected;
+                    pending.remove(tracked);
+                    if (tracked.reported) {
+                        logger.info("[Phantom][" + tracked.pluginName + "] Leaked class loader was eventually collected.");
+                    }
+                }
+                long gcCount = majorGcCount();
+                boolean waiting = false;
+                for (Tracked tracked : pending) {
+                    if (tracked.reported) continue;
+                    waiting = true;
+                    if (gcCount - tracked.gcCountAtRelease >= gcCycles) suspects.add(tracked);
+                }
+                if (!waiting) {
+                    // Reported loaders stay pending so a later run can notice their collection, but are not worth
+                    // forcing more GCs for.
+                    thread = null;
+                    return;
+                }
+            }
+            for (Tracked tracked : suspects) {
+                report(tracked); // Outside the lock: inspecting threads and listeners can take a while
+            }
+        }
+    }
+
+    private void report(Tracked tracked) {
+        ClassLoader loader = tracked.get();
+        if (loader == null) return; // Collected since the check; the queue will drop it
+        List<String> retainers = findRetainers(tracked.pluginName, loader);
+        loader = null;
+        Leak leak = new Leak(tracked.pluginName, tracked.releasedAtMillis, majorGcCount() - tracked.gcCountAtRelease, retainers);
+        synchronized (this) {
+            tracked.reported = true;
+            leaks.addFirst(leak);
+            while (leaks.size() > MAX_REPORTS) leaks.removeLast();
+        }
+        logger.warning("[Phantom][" + tracked.pluginName + "] Class loader still reachable after " + leak.gcCycles()
+                + " major GC cycles since release. Retained by: " + String.join("; ", retainers));
+    }
+
+    /**
+     * Looks for the usual ways a disabled plugin's classes stay reachable. Each entry starts with its {@link Retainer}.
+     */
+    private List<String> findRetainers(String pluginName, ClassLoader loader) {
+        List<String> retainers = new ArrayList<>();
+        if (taskRegistry != null) {
+            int tasks = 0;
+            for (FoliaBukkitTask task : taskRegistry.snapshot()) {
+                if (isFrom(task.getOwner(), loader) || task.getTaskClass().getClassLoader() == loader) tasks++;
+            }
+            if (tasks > 0) retainers.add(Retainer.SCHEDULER_TASKS + ": " + tasks + " task(s) in the scheduler proxy's registry");
+        }
+        if (metrics != null && metrics.isTracking(pluginName)) {
+            // Metrics only keep names, but their stats outliving the release means cancelTasks never ran for the
+            // plugin, so its tasks' handles (and the task objects) may still be referenced from Folia's queues.
+            retainers.add(Retainer.SCHEDULER_METRICS + ": stats for " + pluginName + " were never dropped; its tasks were not"
+                    + " cancelled through the scheduler proxy");
+        }
+        try {
+            for (Plugin plugin : Bukkit.getPluginManager().getPlugins()) {
+                if (isFrom(plugin, loader)) retainers.add(Retainer.PLUGIN_MANAGER + ": " + plugin.getName() + " is still registered");
+            }
+            int listeners = 0;
+            for (HandlerList handlers : HandlerList.getHandlerLists()) {
+                for (RegisteredListener listener : handlers.getRegisteredListeners()) {
+                    if (isFrom(listener.getPlugin(), loader) || isFrom(listener.getListener(), loader)) listeners++;
+                }
+            }
+            if (listeners > 0) retainers.add(Retainer.LISTENERS + ": " + listeners + " registered listener(s)");
+            for (Class<?> service : Bukkit.getServicesManager().getKnownServices()) {
+                for (RegisteredServiceProvider<?> provider : Bukkit.getServicesManager().getRegistrations(service)) {
+                    if (isFrom(provider.getPlugin(), loader) || isFrom(provider.getProvider(), loader)) {
+                        retainers.add(Retainer.SERVICES + ": provider of " + service.getName());
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // The server is shutting down or the API is unavailable; report what the other checks found
+        }
+        boolean threadLocalsReadable = true;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getClass().getClassLoader() == loader) {
+                retainers.add(Retainer.THREADS + ": thread '" + thread.getName() + "' is a " + thread.getClass().getName());
+            } else if (thread.getContextClassLoader() == loader) {
+                retainers.add(Retainer.THREADS + ": thread '" + thread.getName() + "' uses it as context class loader");
+            }
+            if (threadLocalsReadable) {
+                Boolean holds = holdsThreadLocalFrom(thread, loader);
+                if (holds == null) {
+                    threadLocalsReadable = false;
+                } else if (holds) {
+                    retainers.add(Retainer.THREAD_LOCALS + ": a thread local of thread '" + thread.getName() + "'");
+                }
+            }
+        }
+        if (retainers.isEmpty()) {
+            retainers.add(Retainer.UNKNOWN + ": no known retainer" + (threadLocalsReadable ? "" : " (thread locals unreadable without"
+                    + " --add-opens java.base/java.lang=ALL-UNNAMED)") + "; take a heap dump and look for paths to the class loader");
+        }
+        return retainers;
+    }
+
+    private static boolean isFrom(Object object, ClassLoader loader) {
+        return object != null && object.getClass().getClassLoader() == loader;
+    }
+
+    /**
+     * @return whether one of the thread's thread-local values comes from {@code loader}, or null if they cannot be read
+     */
+    private static Boolean holdsThreadLocalFrom(Thread thread, ClassLoader loader) {
+        try {
+            Field threadLocals = Thread.class.getDeclaredField("threadLocals");
+            threadLocals.setAccessible(true);
+            Object map = threadLocals.get(thread);
+            if (map == null) return false;
+            Field tableField = map.getClass().getDeclaredField("table");
+            tableField.setAccessible(true);
+            Object[] table = (Object[]) tableField.get(map);
+            Field valueField = null;
+            for (Object entry : table) {
+                if (entry == null) continue;
+                if (valueField == null) {
+                    valueField = entry.getClass().getDeclaredField("value");
+                    valueField.setAccessible(true);
+                }
+                if (isFrom(valueField.get(entry), loader)) return true;
+            }
+            return false;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // java.base is not opened to us (InaccessibleObjectException) or the layout changed
+        }
+    }
+
+    private long majorGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : majorCollectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Class unloading only happens in old-generation or full collections, so young collections are not counted.
+     */
+    private static boolean isMajorCollector(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return !(lower.contains("young") || lower.contains("scavenge") || lower.contains("parnew")
+                || lower.equals("copy") || lower.contains("minor") || lower.contains("pauses"));
+    }
+}
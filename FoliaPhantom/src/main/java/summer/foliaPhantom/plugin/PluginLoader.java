@@ -4,10 +4,9 @@ import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin; // For getLogger, or pass Logger instance
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
@@ -17,18 +16,31 @@ public class PluginLoader {
     private final Logger logger;
     private final File dataFolder; // To resolve relative paths for JARs if needed, though PluginConfig has full paths
 
-    // Each loaded plugin will have its own classloader
-    private final Map<String, URLClassLoader> pluginClassLoaders = new ConcurrentHashMap<>();
+    // The class loader the server created for each loaded plugin, kept until the plugin is released
+    private final Map<String, ClassLoader> pluginClassLoaders = new ConcurrentHashMap<>();
+
+    private final ClassLoaderLeakDetector leakDetector; // Null when disabled in config.yml
 
     public PluginLoader(JavaPlugin hostingPlugin) {
+        this(hostingPlugin, null);
+    }
+
+    /**
+     * @param leakDetector watches every class loader released by {@link #closeClassLoader}, or null
+     */
+    public PluginLoader(JavaPlugin hostingPlugin, ClassLoaderLeakDetector leakDetector) {
         this.pluginManager = hostingPlugin.getServer().getPluginManager();
         this.logger = hostingPlugin.getLogger();
         this.dataFolder = hostingPlugin.getDataFolder(); // Useful for context if ever needed
+        this.leakDetector = leakDetector;
     }
 
     /**
-     * Loads a plugin JAR using a dedicated URLClassLoader.
-     * The ClassLoader is stored for later cleanup.
+     * Loads a plugin JAR through the server's PluginManager.
+     * <p>
+     * The server defines the plugin's classes in its own plugin class loader, which already indexes the JAR and
+     * resolves classes shared between plugins, so no loader of our own is created: a second one would only hold
+     * another open handle on the same JAR. The server's loader is recorded for {@link #closeClassLoader}.
      */
     public Plugin loadPlugin(String pluginName, File jarFile) {
         if (!jarFile.exists()) {
@@ -36,63 +48,52 @@ public class PluginLoader {
             return null;
         }
 
-        URLClassLoader loader = null;
         try {
-            URL url = jarFile.toURI().toURL();
-            // Parent classloader should be the FoliaPhantom's classloader to allow access to Bukkit/Paper APIs
-            loader = new URLClassLoader(new URL[]{url}, getClass().getClassLoader());
-            pluginClassLoaders.put(pluginName, loader);
-
-            ClassLoader previousContextClassLoader = Thread.currentThread().getContextClassLoader();
-            Thread.currentThread().setContextClassLoader(loader);
             Plugin plugin = pluginManager.loadPlugin(jarFile);
-            Thread.currentThread().setContextClassLoader(previousContextClassLoader);
-
             if (plugin != null) {
+                pluginClassLoaders.put(pluginName, plugin.getClass().getClassLoader());
                 logger.info("[Phantom][" + pluginName + "] Plugin loaded successfully: " + plugin.getName() + " v" + plugin.getDescription().getVersion());
             } else {
                 logger.severe("[Phantom][" + pluginName + "] Failed to load plugin from JAR: " + jarFile.getName());
-                // If loadPlugin returns null, but no exception, cleanup classloader
-                closeClassLoader(pluginName);
             }
             return plugin;
         } catch (Exception e) {
             logger.severe("[Phantom][" + pluginName + "] Exception during PluginManager.loadPlugin(): " + e.getMessage());
             e.printStackTrace();
-            closeClassLoader(pluginName); // Ensure cleanup on failure
             return null;
         }
     }
 
     /**
-     * Closes and removes the ClassLoader for a specific plugin.
+     * Forgets the class loader of a specific plugin, closing it if the server has not already done so.
+     * Must only be called once the plugin is disabled, since a closed loader can no longer load its classes.
      */
     public void closeClassLoader(String pluginName) {
-        URLClassLoader loader = pluginClassLoaders.remove(pluginName);
-        if (loader != null) {
+        ClassLoader loader = pluginClassLoaders.remove(pluginName);
+        if (loader instanceof Closeable closeable) {
             try {
-                loader.close();
+                closeable.close(); // Closing an already closed URLClassLoader is a no-op
                 logger.info("[Phantom][" + pluginName + "] ClassLoader closed.");
             } catch (IOException e) {
                 logger.warning("[Phantom][" + pluginName + "] Error closing ClassLoader: " + e.getMessage());
             }
         }
+        if (loader != null && leakDetector != null) {
+            leakDetector.release(pluginName, loader);
+        }
     }
 
     /**
-     * Closes all managed ClassLoaders.
+     * Closes all tracked ClassLoaders.
      */
     public void closeAllClassLoaders() {
         for (String pluginName : pluginClassLoaders.keySet()) {
-            // Create a copy of keys to avoid ConcurrentModificationException if closeClassLoader modifies the map
-            closeClassLoader(new String(pluginName));
+            closeClassLoader(pluginName); // ConcurrentHashMap key views tolerate removal while iterating
         }
-        // Ensure map is clear, though closeClassLoader should remove entries
-        pluginClassLoaders.clear();
         logger.info("[Phantom] All managed plugin ClassLoaders have been requested to close.");
     }
 
-    public Map<String, URLClassLoader> getPluginClassLoaders() {
+    public Map<String, ClassLoader> getPluginClassLoaders() {
          return pluginClassLoaders;
     }
 }
@@ -0,0 +1,169 @@
+package summer.foliaPhantom.plugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import summer.foliaPhantom.jar.PatchCache;
+import summer.foliaPhantom.scheduler.SchedulerManager;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Replaces one wrapped plugin with a freshly patched and loaded copy of its JAR, without restarting the server.
+ * <p>
+ * The new JAR is prepared before anything is torn down, so a missing or unpatchable JAR leaves the running plugin
+ * untouched. Releasing the old class loader hands it to the {@link ClassLoaderLeakDetector}, if enabled, which
+ * reports it if it is still reachable, since every reload would then leak the old plugin's classes.
+ */
+public class PluginReloader {
+    private final Map<String, WrappedPlugin> wrappedPlugins;
+    private final PluginLoader pluginLoader;
+    private final PatchCache patchCache;
+    private final SchedulerManager schedulerManager; // Null if the scheduler proxy failed to install
+    private final File dataFolder;
+    private final Logger logger;
+
+    /**
+     * @param wrappedPlugins the live wrapped plugins by name; reloaded entries are replaced in place
+     */
+    public PluginReloader(Map<String, WrappedPlugin> wrappedPlugins, PluginLoader pluginLoader, PatchCache patchCache,
+                          SchedulerManager schedulerManager, File dataFolder, Logger logger) {
+        this.wrappedPlugins = wrappedPlugins;
+        this.pluginLoader = pluginLoader;
+        this.patchCache = patchCache;
+        this.schedulerManager = schedulerManager;
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+    }
+
+    /**
+     * Cancels the plugin's tasks, disables and unregisters it, releases its class loader, re-patches the JAR if it
+     * changed and loads and enables the new version. Must run where plugins may be enabled and disabled.
+     *
+     * @return the reloaded plugin, or null if the reload failed (the log says at which step)
+     */
+    public Plugin reload(String name) {
+        WrappedPlugin current = wrappedPlugins.get(name);
+        if (current == null) {
+            logger.warning("[Phantom][" + name + "] Reload requested for a plugin that is not wrapped.");
+            return null;
+        }
+        WrappedPlugin replacement = new WrappedPlugin(current.getConfig(), pluginLoader, dataFolder, logger, patchCache);
+        if (!replacement.prepare()) {
+            logger.severe("[Phantom][" + name + "] Reload aborted: the JAR could not be prepared. The running version is kept.");
+            return null;
+        }
+
+        Plugin oldPlugin = current.getBukkitPlugin();
+        if (oldPlugin != null) {
+            warnAboutDependents(oldPlugin);
+            if (schedulerManager != null) {
+                schedulerManager.cancelTasks(oldPlugin);
+            } else {
+                Bukkit.getScheduler().cancelTasks(oldPlugin);
+            }
+            PluginManager pluginManager = Bukkit.getPluginManager();
+            if (oldPlugin.isEnabled()) {
+                pluginManager.disablePlugin(oldPlugin);
+            }
+            unregister(pluginManager, oldPlugin);
+        }
+        current.unload(); // Releases the old class loader to the leak detector
+        oldPlugin = null;
+
+        Plugin plugin = replacement.load();
+        wrappedPlugins.put(name, replacement);
+        if (plugin == null) {
+            return null;
+        }
+        if (schedulerManager != null) {
+            schedulerManager.configurePlugin(plugin, replacement.getConfig());
+        }
+        Bukkit.getPluginManager().enablePlugin(plugin);
+        if (!plugin.isEnabled()) {
+            logger.severe("[Phantom][" + name + "] Reloaded plugin failed to enable.");
+            return null;
+        }
+        logger.info("[Phantom][" + name + "] Reloaded " + plugin.getName() + " v" + plugin.getDescription().getVersion()
+                + " (" + replacement.getTimingSummary() + ")");
+        return plugin;
+    }
+
+    /**
+     * Plugins that depend on the reloaded one keep references to its old classes until they are reloaded too.
+     */
+    private void warnAboutDependents(Plugin plugin) {
+        for (Plugin other : Bukkit.getPluginManager().getPlugins()) {
+            if (other == plugin || other.getDescription() == null) continue;
+            List<String> depend = other.getDescription().getDepend();
+            List<String> softDepend = other.getDescription().getSoftDepend();
+            if ((depend != null && depend.contains(plugin.getName())) || (softDepend != null && softDepend.contains(plugin.getName()))) {
+                logger.warning("[Phantom][" + plugin.getName() + "] " + other.getName() + " depends on this plugin and still references its old classes.");
+            }
+        }
+    }
+
+    /**
+     * Removes a disabled plugin from the plugin manager and drops its commands, so the same name can be loaded again.
+     * Bukkit has no API for this; the plugin manager's collections are found by reflection, which covers both
+     * Spigot's SimplePluginManager and the plugin instance manager Paper keeps behind it.
+     */
+    private void unregister(PluginManager pluginManager, Plugin plugin) {
+        removeReferences(pluginManager, plugin, 0);
+        try {
+            CommandMap commandMap = Bukkit.getServer().getCommandMap();
+            commandMap.getKnownCommands().values().removeIf(command -> {
+                if (command instanceof PluginCommand pluginCommand && pluginCommand.getPlugin() == plugin) {
+                    pluginCommand.unregister(commandMap);
+                    return true;
+                }
+                return false;
+            });
+            // Paper only resends the command tree to players when asked; CraftServer.syncCommands() is not API.
+            Bukkit.getServer().getClass().getMethod("syncCommands").invoke(Bukkit.getServer());
+        } catch (ReflectiveOperationException ignored) {
+            // Not a CraftBukkit server; clients see the old commands until they reconnect.
+        } catch (RuntimeException e) {
+            logger.warning("[Phantom][" + plugin.getName() + "] Could not unregister commands: " + e.getMessage());
+        }
+    }
+
+    private void removeReferences(Object holder, Plugin plugin, int depth) {
+        for (Class<?> type = holder.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) continue;
+                Object value;
+                try {
+                    field.setAccessible(true);
+                    value = field.get(holder);
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    continue; // Inaccessible in this runtime; other fields may still hold the plugin
+                }
+                try {
+                    if (value instanceof Collection<?> collection) {
+                        collection.removeIf(element -> element == plugin);
+                    } else if (value instanceof Map<?, ?> map) {
+                        map.entrySet().removeIf(entry -> entry.getKey() == plugin || entry.getValue() == plugin);
+                    } else if (value != null && depth < 2 && isPluginManagerPart(value.getClass())) {
+                        removeReferences(value, plugin, depth + 1);
+                    }
+                } catch (UnsupportedOperationException e) {
+                    // An immutable view; the backing collection is reached through another field
+                }
+            }
+        }
+    }
+
+    private static boolean isPluginManagerPart(Class<?> type) {
+        String name = type.getSimpleName();
+        return name.contains("Plugin") && name.contains("Manager");
+    }
+}
@@ -1,10 +1,17 @@
 package summer.foliaPhantom.plugin;
 
 import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
 import summer.foliaPhantom.config.PluginConfig;
 import summer.foliaPhantom.jar.JarPatcher; // Assuming JarPatcher is in this package
+import summer.foliaPhantom.jar.PatchCache;
+import summer.foliaPhantom.jar.ThreadSafetyAnalyzer;
 
 import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
 import java.util.logging.Logger;
 
 public class WrappedPlugin {
@@ -12,17 +19,95 @@ public class WrappedPlugin {
     private final PluginLoader pluginLoader;
     private final File dataFolder; // For resolving JAR paths
     private final Logger logger;
+    private final PatchCache patchCache; // Null to decide by file timestamps only
     private Plugin bukkitPlugin; // The actual loaded Bukkit/Paper plugin instance
+    private File jarToLoad; // Set by prepare()
+    private PluginDescriptionFile description; // plugin.yml of jarToLoad, null if unreadable
+    private boolean patched; // Whether prepare() had to (re)generate the patched JAR
+    private long prepareNanos;
+    private long loadNanos;
+    private long analysisNanos;
 
+    /**
+     * Creates the wrapper and immediately prepares and loads the plugin.
+     */
     public WrappedPlugin(PluginConfig config, PluginLoader pluginLoader, File dataFolder, Logger logger) {
+        this(config, pluginLoader, dataFolder, logger, null);
+        if (prepare()) {
+            load();
+        }
+    }
+
+    /**
+     * Creates the wrapper without touching any JAR; call {@link #prepare()} and then {@link #load()}.
+     * {@code prepare()} is safe to run on any thread, {@code load()} must run where plugins are loaded.
+     */
+    public WrappedPlugin(PluginConfig config, PluginLoader pluginLoader, File dataFolder, Logger logger, PatchCache patchCache) {
         this.config = config;
         this.pluginLoader = pluginLoader;
         this.dataFolder = dataFolder;
         this.logger = logger;
-        load();
+        this.patchCache = patchCache;
+    }
+
+    /**
+     * Validates the original JAR, patches it if needed and reads its plugin.yml.
+     *
+     * @return false if there is nothing to load
+     */
+    public boolean prepare() {
+        long start = System.nanoTime();
+        try {
+            this.jarToLoad = resolveJarToLoad();
+            if (jarToLoad != null) {
+                this.description = readDescription(jarToLoad);
+            }
+            return jarToLoad != null;
+        } finally {
+            prepareNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Scans the original JAR for thread-sensitive Bukkit calls and writes the JSON report to {@code reportFile}.
+     * The report is cached with the patched JAR: it is only regenerated when {@link #prepare()} re-patched
+     * or the report is missing.
+     */
+    public void writeThreadSafetyReport(File reportFile) {
+        if (jarToLoad == null || (!patched && reportFile.isFile())) return;
+        long start = System.nanoTime();
+        try {
+            ThreadSafetyAnalyzer.Report report = ThreadSafetyAnalyzer.analyze(new File(dataFolder, config.originalJarPath()));
+            report.writeJson(reportFile);
+            if (!report.findings().isEmpty()) {
+                logger.info("[Phantom][" + config.name() + "] Thread-sensitive API calls: " + report.countsByCategory()
+                        + " in " + report.classesScanned() + " classes (" + report.durationMillis() + "ms). Report: " + reportFile.getPath());
+            }
+        } catch (Exception e) {
+            logger.warning("[Phantom][" + config.name() + "] Thread-safety analysis failed: " + e.getMessage());
+        } finally {
+            analysisNanos = System.nanoTime() - start;
+        }
     }
 
-    private void load() {
+    /**
+     * Registers the prepared JAR with the server.
+     *
+     * @return the loaded plugin, or null on failure
+     */
+    public Plugin load() {
+        if (jarToLoad == null) return null;
+        long start = System.nanoTime();
+        this.bukkitPlugin = pluginLoader.loadPlugin(config.name(), jarToLoad);
+        loadNanos = System.nanoTime() - start;
+        if (this.bukkitPlugin == null) {
+            logger.severe("[Phantom][" + config.name() + "] Failed to load the plugin JAR: " + jarToLoad.getAbsolutePath());
+            // pluginLoader.loadPlugin already logs details; nothing is tracked for a plugin that failed to load
+        }
+        return bukkitPlugin;
+    }
+
+    private File resolveJarToLoad() {
         File originalJar = new File(dataFolder, config.originalJarPath());
         File patchedJar = new File(dataFolder, config.patchedJarPath());
 
@@ -36,7 +121,7 @@ public class WrappedPlugin {
         }
         if (!originalJar.exists()) {
             logger.severe("[Phantom][" + config.name() + "] ERROR: Original JAR file not found: " + originalJar.getPath());
-            return;
+            return null;
         }
 
         File jarToLoad;
@@ -46,36 +131,76 @@ public class WrappedPlugin {
                      logger.warning("[Phantom][" + config.name() + "] Failed to create directory for patched JAR: " + patchedJar.getParentFile());
                 }
             }
-            // Check if patched JAR needs (re)generation
-            if (!patchedJar.exists() || originalJar.lastModified() > patchedJar.lastModified()) {
-                logger.info("[Phantom][" + config.name() + "] Generating Folia-supported JAR...");
-                try {
-                    JarPatcher.createFoliaSupportedJar(originalJar, patchedJar); // Static call
-                    logger.info("[Phantom][" + config.name() + "] Folia-supported JAR generated: " + patchedJar.length() + " bytes");
-                    jarToLoad = patchedJar;
-                } catch (Exception e) {
-                    logger.severe("[Phantom][" + config.name() + "] Failed to create patched JAR: " + e.getMessage());
-                    e.printStackTrace();
-                    // Fallback to original JAR on patching failure
-                    logger.warning("[Phantom][" + config.name() + "] Falling back to original JAR.");
-                    jarToLoad = originalJar;
-                }
-            } else {
-                logger.info("[Phantom][" + config.name() + "] Using existing patched JAR: " + patchedJar.getAbsolutePath());
-                jarToLoad = patchedJar;
-            }
+            jarToLoad = preparePatchedJar(originalJar, patchedJar);
         } else {
             logger.info("[Phantom][" + config.name() + "] Folia patching disabled. Using original JAR.");
             jarToLoad = originalJar;
         }
+        return jarToLoad;
+    }
 
-        this.bukkitPlugin = pluginLoader.loadPlugin(config.name(), jarToLoad);
-        if (this.bukkitPlugin == null) {
-            logger.severe("[Phantom][" + config.name() + "] Failed to load the plugin JAR: " + jarToLoad.getAbsolutePath());
-            // pluginLoader.loadPlugin already logs details and attempts cleanup of its own classloader for this pluginName
+    private PluginDescriptionFile readDescription(File jar) {
+        try (JarFile jarFile = new JarFile(jar)) {
+            ZipEntry entry = jarFile.getEntry("plugin.yml");
+            if (entry == null) {
+                logger.warning("[Phantom][" + config.name() + "] No plugin.yml in " + jar.getName() + "; load order cannot honor its dependencies.");
+                return null;
+            }
+            try (InputStream in = jarFile.getInputStream(entry)) {
+                return new PluginDescriptionFile(in);
+            }
+        } catch (Exception e) {
+            logger.warning("[Phantom][" + config.name() + "] Could not read plugin.yml of " + jar.getName() + ": " + e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * Brings the patched JAR up to date with the original, returning the JAR to load.
+     */
+    private File preparePatchedJar(File originalJar, File patchedJar) {
+        try {
+            if (patchCache != null) {
+                boolean rewrite = config.rewriteSchedulerCalls();
+                patched = patchCache.ensurePatched(originalJar, patchedJar, JarPatcher.patchOptions(rewrite),
+                        (original, target) -> JarPatcher.createFoliaSupportedJar(original, target, rewrite));
+            } else if (!patchedJar.exists() || originalJar.lastModified() > patchedJar.lastModified()) {
+                JarPatcher.createFoliaSupportedJar(originalJar, patchedJar, config.rewriteSchedulerCalls()); // Static call
+                patched = true;
+            } else {
+                patched = false;
+            }
+            if (patched) {
+                logger.info("[Phantom][" + config.name() + "] Folia-supported JAR generated: " + patchedJar.length() + " bytes");
+            } else {
+                logger.info("[Phantom][" + config.name() + "] Using existing patched JAR: " + patchedJar.getAbsolutePath());
+            }
+            return patchedJar;
+        } catch (Exception e) {
+            logger.severe("[Phantom][" + config.name() + "] Failed to create patched JAR: " + e.getMessage());
+            e.printStackTrace();
+            // Fallback to original JAR on patching failure
+            logger.warning("[Phantom][" + config.name() + "] Falling back to original JAR.");
+            return originalJar;
+        }
+    }
+
+    /**
+     * @return the plugin.yml of the prepared JAR, or null if it has not been prepared or could not be read
+     */
+    public PluginDescriptionFile getDescription() {
+        return description;
+    }
+
+    /**
+     * @return a one-line summary of how long preparing and loading took
+     */
+    public String getTimingSummary() {
+        return "prepare=" + TimeUnit.NANOSECONDS.toMillis(prepareNanos) + "ms (" + (patched ? "patched" : "unchanged") + ")"
+                + (analysisNanos > 0 ? " analysis=" + TimeUnit.NANOSECONDS.toMillis(analysisNanos) + "ms" : "")
+                + " load=" + TimeUnit.NANOSECONDS.toMillis(loadNanos) + "ms";
+    }
+
     public Plugin getBukkitPlugin() {
         return bukkitPlugin;
     }
@@ -84,7 +209,14 @@ public class WrappedPlugin {
         return config.name();
     }
 
-    // Optional: method to explicitly unload/cleanup this specific wrapped plugin if needed later
+    public PluginConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Releases the plugin's class loader and drops this wrapper's reference to the plugin.
+     * The plugin must already be disabled; see {@link PluginReloader}.
+     */
     public void unload() {
         if (bukkitPlugin != null) {
             // Bukkit's PluginManager should handle actual disabling.
@@ -93,5 +225,6 @@ public class WrappedPlugin {
         }
         // The PluginLoader is responsible for closing the classloader by plugin name
         pluginLoader.closeClassLoader(getName());
+        bukkitPlugin = null;
     }
 }
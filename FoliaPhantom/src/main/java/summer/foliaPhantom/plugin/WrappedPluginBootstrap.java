@@ -0,0 +1,192 @@
+package summer.foliaPhantom.plugin;
+
+import org.bukkit.plugin.PluginDescriptionFile;
+import summer.foliaPhantom.config.PluginConfig;
+import summer.foliaPhantom.jar.PatchCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Loads all configured wrapped plugins during onLoad.
+ * <p>
+ * Preparing a plugin (validating, hashing and patching its JAR, reading its plugin.yml) runs concurrently on a
+ * bounded pool. Registering with the server stays on the calling thread, one plugin at a time, in dependency
+ * order: a wrapped plugin is loaded after the wrapped plugins it {@code depend}s or {@code softdepend}s on and
+ * before those it lists in {@code loadbefore}; ties keep the config.yml order.
+ */
+public class WrappedPluginBootstrap {
+    private final PluginLoader pluginLoader;
+    private final File dataFolder;
+    private final Logger logger;
+    private final PatchCache patchCache;
+    private final int parallelism;
+    private final File reportsFolder; // Null to skip the thread-safety analysis
+
+    /**
+     * @param parallelism   maximum number of JARs prepared at once; zero or less picks one from the CPU count
+     * @param reportsFolder where thread-safety reports are written, or null to skip the analysis
+     */
+    public WrappedPluginBootstrap(PluginLoader pluginLoader, File dataFolder, Logger logger, PatchCache patchCache, int parallelism,
+                                  File reportsFolder) {
+        this.pluginLoader = pluginLoader;
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+        this.patchCache = patchCache;
+        this.parallelism = parallelism > 0 ? parallelism : Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        this.reportsFolder = reportsFolder;
+    }
+
+    /**
+     * @return the successfully loaded plugins by configured name, in load order
+     */
+    public Map<String, WrappedPlugin> loadAll(List<PluginConfig> configs) {
+        long start = System.nanoTime();
+        List<WrappedPlugin> prepared = prepareAll(configs);
+        long prepareEnd = System.nanoTime();
+
+        Map<String, WrappedPlugin> loaded = new LinkedHashMap<>();
+        for (WrappedPlugin wrappedPlugin : inLoadOrder(prepared)) {
+            if (wrappedPlugin.load() != null) {
+                loaded.put(wrappedPlugin.getName(), wrappedPlugin);
+            } else {
+                // If plugin failed to load, WrappedPlugin.load() would have logged it.
+                // PluginLoader also attempts to clean up its classloader for this plugin on failure.
+                logger.severe("[Phantom][" + wrappedPlugin.getName() + "] Was not added to the list of active wrapped plugins due to loading failure.");
+            }
+        }
+        long end = System.nanoTime();
+
+        logger.info("[Phantom] Startup timing: prepared " + prepared.size() + " JAR(s) in " + TimeUnit.NANOSECONDS.toMillis(prepareEnd - start)
+                + "ms on " + Math.min(parallelism, Math.max(1, configs.size())) + " thread(s), loaded " + loaded.size() + " plugin(s) in "
+                + TimeUnit.NANOSECONDS.toMillis(end - prepareEnd) + "ms.");
+        for (WrappedPlugin wrappedPlugin : prepared) {
+            logger.info("[Phantom][" + wrappedPlugin.getName() + "] " + wrappedPlugin.getTimingSummary());
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the plugins that have a JAR to load, in config order
+     */
+    private List<WrappedPlugin> prepareAll(List<PluginConfig> configs) {
+        List<WrappedPlugin> wrappedPlugins = new ArrayList<>(configs.size());
+        for (PluginConfig config : configs) {
+            logger.info("[Phantom][" + config.name() + "] Processing plugin configuration...");
+            wrappedPlugins.add(new WrappedPlugin(config, pluginLoader, dataFolder, logger, patchCache));
+        }
+        List<WrappedPlugin> prepared = new ArrayList<>(wrappedPlugins.size());
+        if (wrappedPlugins.size() <= 1 || parallelism == 1) {
+            for (WrappedPlugin wrappedPlugin : wrappedPlugins) {
+                if (prepare(wrappedPlugin)) prepared.add(wrappedPlugin);
+            }
+            return prepared;
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, wrappedPlugins.size()), runnable -> {
+            Thread thread = new Thread(runnable, "FoliaPhantom-Prepare-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Boolean>> results = new ArrayList<>(wrappedPlugins.size());
+            for (WrappedPlugin wrappedPlugin : wrappedPlugins) {
+                results.add(pool.submit(() -> prepare(wrappedPlugin)));
+            }
+            for (int i = 0; i < wrappedPlugins.size(); i++) {
+                try {
+                    if (results.get(i).get()) prepared.add(wrappedPlugins.get(i));
+                } catch (Exception e) {
+                    logger.severe("[Phantom][" + wrappedPlugins.get(i).getName() + "] Failed to prepare plugin JAR: " + e);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return prepared;
+    }
+
+    private boolean prepare(WrappedPlugin wrappedPlugin) {
+        if (!wrappedPlugin.prepare()) return false;
+        if (reportsFolder != null) {
+            wrappedPlugin.writeThreadSafetyReport(new File(reportsFolder, wrappedPlugin.getName() + "-thread-safety.json"));
+        }
+        return true;
+    }
+
+    /**
+     * Orders {@code plugins} so that dependencies among them are loaded first. Unknown or external dependencies are
+     * ignored (the server resolves those); a dependency cycle is logged and broken by falling back to config order.
+     */
+    private List<WrappedPlugin> inLoadOrder(List<WrappedPlugin> plugins) {
+        Map<String, WrappedPlugin> byPluginName = new HashMap<>();
+        for (WrappedPlugin plugin : plugins) {
+            PluginDescriptionFile description = plugin.getDescription();
+            if (description != null && description.getName() != null) {
+                byPluginName.put(description.getName(), plugin);
+            }
+        }
+        // before.get(p) = wrapped plugins that must be loaded before p
+        Map<WrappedPlugin, Set<WrappedPlugin>> before = new HashMap<>();
+        for (WrappedPlugin plugin : plugins) {
+            before.put(plugin, new HashSet<>());
+        }
+        for (WrappedPlugin plugin : plugins) {
+            PluginDescriptionFile description = plugin.getDescription();
+            if (description == null) continue;
+            addEdges(before.get(plugin), description.getDepend(), byPluginName, plugin);
+            addEdges(before.get(plugin), description.getSoftDepend(), byPluginName, plugin);
+            if (description.getLoadBefore() != null) {
+                for (String name : description.getLoadBefore()) {
+                    WrappedPlugin later = byPluginName.get(name);
+                    if (later != null && later != plugin) before.get(later).add(plugin);
+                }
+            }
+        }
+
+        List<WrappedPlugin> ordered = new ArrayList<>(plugins.size());
+        Set<WrappedPlugin> done = new HashSet<>();
+        while (ordered.size() < plugins.size()) {
+            WrappedPlugin next = null;
+            for (WrappedPlugin plugin : plugins) { // First ready plugin in config order
+                if (!done.contains(plugin) && done.containsAll(before.get(plugin))) {
+                    next = plugin;
+                    break;
+                }
+            }
+            if (next == null) {
+                for (WrappedPlugin plugin : plugins) {
+                    if (!done.contains(plugin)) {
+                        next = plugin;
+                        break;
+                    }
+                }
+                logger.warning("[Phantom][" + next.getName() + "] Dependency cycle between wrapped plugins; loading it in config order.");
+            }
+            ordered.add(next);
+            done.add(next);
+        }
+        return ordered;
+    }
+
+    private static void addEdges(Set<WrappedPlugin> target, List<String> names, Map<String, WrappedPlugin> byPluginName, WrappedPlugin self) {
+        if (names == null) return;
+        for (String name : names) {
+            WrappedPlugin dependency = byPluginName.get(name);
+            if (dependency != null && dependency != self) target.add(dependency);
+        }
+    }
+}
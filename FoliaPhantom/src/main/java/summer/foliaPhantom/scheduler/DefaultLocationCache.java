@@ -0,0 +1,102 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.SpawnChangeEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Caches the location that region-bound tasks fall back to when no better target is known
+ * (the spawn of the primary world).
+ * <p>
+ * The location is resolved once, from a tick thread, and then served to every thread without touching
+ * {@code Bukkit.getWorlds()}. It is refreshed when worlds load or unload and when the primary world's
+ * spawn moves. The returned {@link Location} is shared and must be treated as read-only.
+ */
+public class DefaultLocationCache implements Listener {
+    private final RateLimitedLogger rateLimitedLogger;
+    private volatile Location cached;
+
+    public DefaultLocationCache(Logger logger) {
+        this.rateLimitedLogger = new RateLimitedLogger(logger, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the cached default location, or null if none could be resolved yet
+     */
+    public Location get() {
+        Location location = cached;
+        if (location != null) {
+            return location;
+        }
+        return resolve();
+    }
+
+    /**
+     * Drops the cached value and resolves it again if the current thread is allowed to.
+     */
+    public void refresh() {
+        cached = null;
+        resolve();
+    }
+
+    private synchronized Location resolve() {
+        Location location = cached;
+        if (location != null) {
+            return location;
+        }
+        try {
+            if (!Bukkit.getServer().isPrimaryThread()) {
+                rateLimitedLogger.warning("off-main", () -> "Default scheduling location requested off main thread before it was resolved. " +
+                        "Location-specific scheduling might be unreliable. No default location will be provided.");
+                return null;
+            }
+            if (Bukkit.getWorlds().isEmpty()) {
+                rateLimitedLogger.severe("no-worlds", () -> "No worlds available (Bukkit.getWorlds() is empty). Cannot determine a default location for scheduling.");
+                return null;
+            }
+            World world = Bukkit.getWorlds().get(0);
+            if (world == null) {
+                // This case should ideally not be reached if Bukkit.getWorlds() is not empty,
+                // but as a safeguard:
+                rateLimitedLogger.warning("null-world", () -> "Primary world (Bukkit.getWorlds().get(0)) is null, though Bukkit.getWorlds() was not empty. Cannot determine default location.");
+                return null;
+            }
+            location = world.getSpawnLocation();
+            cached = location;
+            return location;
+        } catch (Exception e) {
+            rateLimitedLogger.severe("exception", () -> "Exception while resolving the default scheduling location: " + e);
+            return null;
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        refresh();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        Location location = cached;
+        if (location == null || location.getWorld() == event.getWorld()) {
+            refresh();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onSpawnChange(SpawnChangeEvent event) {
+        Location location = cached;
+        if (location == null || location.getWorld() == event.getWorld()) {
+            refresh();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces bursts of one-shot sync tasks onto shared Folia tasks.
+ * <p>
+ * Tasks submitted for the same target region that fall due on the same {@link TickClock} tick join one batch,
+ * backed by a single Folia {@code run}/{@code runDelayed} task that drains the batch's queue when it fires.
+ * A plugin scheduling one task per block thus costs one Folia task per region and tick instead of one per block.
+ * Members are exposed as {@link ScheduledTask}s, so every submission keeps its own cancellable handle.
+ * <p>
+ * A batch fires {@code delay} ticks after it was opened. The key's due tick comes from the global {@link TickClock},
+ * which can lag the target region's tick, so a batch with a longer delay is also sealed by a second Folia task one
+ * tick after it opened: a later submission then opens a fresh batch with its full delay instead of joining one due
+ * earlier. Only submissions made in the next region tick before the seal runs can still join early.
+ * <p>
+ * Batching is opt-in per plugin ({@link #enableFor}); the scheduler gives every other plugin's tasks their own
+ * Folia task.
+ * <p>
+ * Submissions made from the thread that currently owns the target region take a confined fast path: they are
+ * appended to a plain list that only the owning region touches. Regions never tick concurrently and Folia orders each
+ * hand-over of a region between threads, so that list needs no synchronization, and the submission does no atomic
+ * write once the batch exists. Other threads push onto a lock-free stack. Every member carries a sequence number
+ * read from the stack at submission, and the drain merges both queues by it, so members run in submission order
+ * whichever path they took, as Bukkit runs tasks due on the same tick.
+ */
+public class DelayedTaskBatches {
+    private static final VarHandle STATE; // Member.state
+    private static final VarHandle HEAD; // Batch.head
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Member.class, "state", ScheduledTask.ExecutionState.class);
+            HEAD = MethodHandles.lookup().findVarHandle(Batch.class, "head", Member.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Plugin plugin;
+    private final RegionScheduler regionScheduler;
+    private final GlobalRegionScheduler globalRegionScheduler;
+    private final TickClock tickClock;
+    private final RateLimitedLogger rateLimitedLogger;
+    private final ConcurrentHashMap<BatchKey, Batch> batches = new ConcurrentHashMap<>();
+    private final Set<String> enabledPlugins = ConcurrentHashMap.newKeySet();
+    private final Member closed = new Member(null); // Batch.head once the batch has been sealed or drained
+
+    /**
+     * @param world   null for the global region
+     * @param dueTick the clock tick at which the batch runs
+     */
+    private record BatchKey(UUID world, long chunkKey, long dueTick) {
+    }
+
+    public DelayedTaskBatches(Plugin plugin, RegionScheduler regionScheduler, GlobalRegionScheduler globalRegionScheduler,
+                              TickClock tickClock) {
+        this.plugin = plugin;
+        this.regionScheduler = regionScheduler;
+        this.globalRegionScheduler = globalRegionScheduler;
+        this.tickClock = tickClock;
+        this.rateLimitedLogger = new RateLimitedLogger(plugin.getLogger(), 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Schedules {@code runnable} to run once after {@code delayTicks} (zero for the next tick) on the region owning
+     * {@code location}, or on the global region if null.
+     */
+    public ScheduledTask schedule(Runnable runnable, Location location, long delayTicks) {
+        BatchKey key = keyOf(location, tickClock.now() + delayTicks);
+        Member member = new Member(runnable);
+        if (ownsRegionOf(key, location)) {
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                batch = batches.computeIfAbsent(key, k -> new Batch(k, location, delayTicks));
+            }
+            if (batch.addLocal(member)) {
+                return member;
+            }
+            // Sealed or drained and not yet replaced; take the shared path below.
+        }
+        while (true) {
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                batch = batches.computeIfAbsent(key, k -> new Batch(k, location, delayTicks));
+            }
+            if (batch.push(member)) {
+                return member;
+            }
+            // The batch was sealed or drained between lookup and push; drop it and retry with a fresh one.
+            batches.remove(key, batch);
+        }
+    }
+
+    /**
+     * Batches the one-shot sync tasks of {@code pluginName} (its {@code batch-one-shot-tasks} option).
+     */
+    public void enableFor(String pluginName) {
+        enabledPlugins.add(pluginName);
+    }
+
+    public boolean isEnabledFor(Plugin plugin) {
+        return plugin != null && !enabledPlugins.isEmpty() && enabledPlugins.contains(plugin.getName());
+    }
+
+    public int batchCount() {
+        return batches.size();
+    }
+
+    /**
+     * @return whether the calling thread owns the region a batch with {@code key} runs on
+     */
+    private boolean ownsRegionOf(BatchKey key, Location location) {
+        Server server = plugin.getServer();
+        return (key.world() == null) ? server.isGlobalTickThread() : server.isOwnedByCurrentRegion(location);
+    }
+
+    private static BatchKey keyOf(Location location, long dueTick) {
+        World world = (location != null) ? location.getWorld() : null;
+        if (world == null) {
+            return new BatchKey(null, 0L, dueTick);
+        }
+        return new BatchKey(world.getUID(), RepeatingTaskBuckets.chunkKey(location), dueTick);
+    }
+
+    /**
+     * One shared Folia task and the members queued for it.
+     * <p>
+     * Members other threads hand over form a lock-free stack linked through {@link Member#next}, each numbered one
+     * above the member below it. The drain closes the stack with a single swap to {@link #closed}, so a submitter
+     * racing the drain never makes the region thread wait: its push either lands before the swap and runs, or fails
+     * and goes to a fresh batch. A member added on the owning region takes the number the next push would get, so it
+     * runs after every member pushed before it and before every member pushed after it.
+     * <p>
+     * Sealing closes the stack the same way one tick early and keeps what it took for the drain; both run on the
+     * owning region, so that hand-over needs no synchronization either.
+     */
+    private final class Batch implements Consumer<ScheduledTask> {
+        private final BatchKey key;
+        private volatile Member head; // Most recently pushed member; updated through HEAD
+        // Confined to the owning region: only read and written by threads while they own it, like the accept() call.
+        private final ArrayList<Member> local = new ArrayList<>();
+        private Member sealedStack; // What the seal took off the stack; confined to the owning region like local
+
+        Batch(BatchKey key, Location location, long delayTicks) {
+            this.key = key;
+            if (delayTicks > 1) {
+                // Scheduled first, so it runs before anything else this batch's region queues for the next tick.
+                if (key.world() == null) {
+                    globalRegionScheduler.runDelayed(plugin, task -> seal(), 1L);
+                } else {
+                    regionScheduler.runDelayed(plugin, location, task -> seal(), 1L);
+                }
+            }
+            if (key.world() == null) {
+                if (delayTicks > 0) {
+                    globalRegionScheduler.runDelayed(plugin, this, delayTicks);
+                } else {
+                    globalRegionScheduler.run(plugin, this);
+                }
+            } else if (delayTicks > 0) {
+                regionScheduler.runDelayed(plugin, location, this, delayTicks);
+            } else {
+                regionScheduler.run(plugin, location, this);
+            }
+        }
+
+        /**
+         * @return false if the batch was already sealed or drained
+         */
+        boolean push(Member member) {
+            while (true) {
+                Member current = head;
+                if (current == closed) return false;
+                member.next = current;
+                member.sequence = (current == null) ? 0 : current.sequence + 1;
+                if (HEAD.compareAndSet(this, current, member)) return true;
+            }
+        }
+
+        /**
+         * Queues a member submitted on the owning region: one volatile read, no atomic write.
+         *
+         * @return false if the batch was already sealed or drained
+         */
+        boolean addLocal(Member member) {
+            Member current = head;
+            if (current == closed) return false;
+            member.sequence = (current == null) ? 0 : current.sequence + 1;
+            local.add(member);
+            return true;
+        }
+
+        /**
+         * Stops later submissions from joining, one tick after the batch opened.
+         */
+        private void seal() {
+            sealedStack = (Member) HEAD.getAndSet(this, closed);
+            batches.remove(key, this);
+        }
+
+        @Override
+        public void accept(ScheduledTask task) {
+            Member pushed = (Member) HEAD.getAndSet(this, closed);
+            if (pushed == closed) {
+                pushed = sealedStack;
+                sealedStack = null;
+            }
+            batches.remove(key, this);
+            // The stack holds the newest member first; reverse it to run in submission order.
+            Member ordered = null;
+            while (pushed != null) {
+                Member next = pushed.next;
+                pushed.next = ordered;
+                ordered = pushed;
+                pushed = next;
+            }
+            // Both queues are in submission order; a local member runs before the pushed member sharing its number.
+            int i = 0;
+            int n = local.size();
+            while (ordered != null) {
+                while (i < n && local.get(i).sequence <= ordered.sequence) {
+                    local.get(i++).runOnce();
+                }
+                Member next = ordered.next;
+                ordered.next = null;
+                ordered.runOnce();
+                ordered = next;
+            }
+            while (i < n) {
+                local.get(i++).runOnce();
+            }
+            local.clear();
+        }
+    }
+
+    /**
+     * A one-shot task waiting in a batch, presented to the rest of the scheduler as a Folia task.
+     */
+    private final class Member implements ScheduledTask {
+        private final Runnable runnable;
+        private volatile ExecutionState state = ExecutionState.IDLE; // Updated through STATE, no AtomicReference per task
+        private Member next; // Link in Batch's stack; published by the push and read by the drain
+        private int sequence; // Submission order within the batch, shared by both queues
+
+        Member(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        void runOnce() {
+            if (!STATE.compareAndSet(this, ExecutionState.IDLE, ExecutionState.RUNNING)) return;
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                TaskFailures.report(rateLimitedLogger, runnable, t, "the rest of its batch still runs.");
+            } finally {
+                state = ExecutionState.FINISHED;
+            }
+        }
+
+        @Override
+        public Plugin getOwningPlugin() {
+            return plugin;
+        }
+
+        @Override
+        public boolean isRepeatingTask() {
+            return false;
+        }
+
+        @Override
+        public CancelledState cancel() {
+            if (STATE.compareAndSet(this, ExecutionState.IDLE, ExecutionState.CANCELLED)) {
+                return CancelledState.CANCELLED_BY_CALLER;
+            }
+            return switch (state) {
+                case RUNNING -> CancelledState.RUNNING;
+                case FINISHED -> CancelledState.ALREADY_EXECUTED;
+                default -> CancelledState.CANCELLED_ALREADY;
+            };
+        }
+
+        @Override
+        public ExecutionState getExecutionState() {
+            return state;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ExecutionState.CANCELLED;
+        }
+    }
+}
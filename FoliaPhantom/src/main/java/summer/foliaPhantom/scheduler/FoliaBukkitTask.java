@@ -1,24 +1,175 @@
 package summer.foliaPhantom.scheduler;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.plugin.Plugin;
-import java.util.function.BooleanSupplier;
+import org.bukkit.scheduler.BukkitTask;
+import summer.foliaPhantom.metrics.TaskStats;
 
-public class FoliaBukkitTask implements org.bukkit.scheduler.BukkitTask {
+import java.util.function.Consumer;
+
+/**
+ * The {@link BukkitTask} handle handed back to plugins for tasks that were scheduled on Folia.
+ * The handle is also the {@link Runnable} submitted to Folia, so {@code Consumer<BukkitTask>}
+ * overloads can receive their own handle without an extra wrapper.
+ */
+public class FoliaBukkitTask implements BukkitTask, Runnable {
+    private static final long NANOS_PER_TICK = 50_000_000L;
     private final int taskId;
     private final Plugin plugin;
     private final Runnable taskRunnable; // Keep a reference if needed for re-scheduling or inspection
+    private final Consumer<? super BukkitTask> taskConsumer; // Set instead of taskRunnable for Consumer<BukkitTask> overloads
     private final boolean isSync; // Stores if the task is synchronous
-    private boolean cancelled = false; // Internal cancelled state
-    private final BooleanSupplier externalCancelState; // Supplier for Folia's task cancelled state
+    private volatile boolean cancelled = false; // Internal cancelled state
+    private volatile ScheduledTask scheduledTask; // The Folia task backing this handle, bound right after submission
+    private TaskRegistry registry; // Registry to evict from once a one-shot task has run
+    private boolean repeating;
+    private volatile Thread runningThread; // Non-null while the task body executes
+    private volatile long runStartNanos; // System.nanoTime() of the current run, 0 while idle
+    long watchdogReportedRun; // Only touched by the TaskWatchdog thread
+    private TaskStats stats; // Null when metrics are disabled
+    private long dueAtNanos; // When the next run is due, for start latency
+    private long periodNanos;
+    private TickBudget budget; // Null unless tick budgeting applies to this task
+    private Runnable deferral; // Resubmits a run to the next tick; null for runs that must not be deferred
+    private int deferrals; // Times the pending run was deferred; runs happen one after another
 
-    public FoliaBukkitTask(int taskId, Plugin plugin, Runnable taskRunnable, BooleanSupplier externalCancelState, boolean isSync) {
+    public FoliaBukkitTask(int taskId, Plugin plugin, Runnable taskRunnable, boolean isSync) {
         this.taskId = taskId;
         this.plugin = plugin;
         this.taskRunnable = taskRunnable;
-        this.externalCancelState = externalCancelState;
+        this.taskConsumer = null;
+        this.isSync = isSync;
+    }
+
+    public FoliaBukkitTask(int taskId, Plugin plugin, Consumer<? super BukkitTask> taskConsumer, boolean isSync) {
+        this.taskId = taskId;
+        this.plugin = plugin;
+        this.taskRunnable = null;
+        this.taskConsumer = taskConsumer;
         this.isSync = isSync;
     }
 
+    /**
+     * Attaches this handle to the registry that tracks it. Called before submission so that even a task
+     * which runs before {@link #bindScheduledTask} returns is evicted correctly.
+     */
+    void attach(TaskRegistry registry, boolean repeating) {
+        this.registry = registry;
+        this.repeating = repeating;
+    }
+
+    /**
+     * Enables metrics recording for this task. Called before submission.
+     *
+     * @param delayTicks  ticks until the first run
+     * @param periodTicks ticks between runs, or zero or less for a one-shot task
+     */
+    void attachStats(TaskStats stats, long delayTicks, long periodTicks) {
+        this.stats = stats;
+        this.dueAtNanos = System.nanoTime() + Math.max(0L, delayTicks) * NANOS_PER_TICK;
+        this.periodNanos = Math.max(0L, periodTicks) * NANOS_PER_TICK;
+    }
+
+    /**
+     * Charges this task's runs to {@code budget}. Called before submission.
+     *
+     * @param deferral resubmits this handle for the next tick when the plugin is over its share, or null if the
+     *                 task's runs must never be deferred
+     */
+    void attachBudget(TickBudget budget, Runnable deferral) {
+        this.budget = budget;
+        this.deferral = deferral;
+    }
+
+    /**
+     * @return the class of the plugin code this task runs, used to group metrics
+     */
+    public Class<?> getTaskClass() {
+        return getTaskBody().getClass();
+    }
+
+    /**
+     * @return the plugin's runnable, consumer or callSyncMethod callable, e.g. to look at what it captured
+     */
+    Object getTaskBody() {
+        if (taskConsumer != null) return taskConsumer;
+        return (taskRunnable instanceof SyncCall<?> call) ? call.getCallable() : taskRunnable;
+    }
+
+    public boolean isRepeating() {
+        return repeating;
+    }
+
+    /**
+     * Binds the Folia task that executes this handle. Called once by the scheduler right after submission.
+     */
+    void bindScheduledTask(ScheduledTask scheduledTask) {
+        this.scheduledTask = scheduledTask;
+    }
+
+    /**
+     * @return the thread currently executing this task, or null if it is not running
+     */
+    public Thread getRunningThread() {
+        return runningThread;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the current run started, or 0 if the task is not running
+     */
+    public long getRunStartNanos() {
+        return runStartNanos;
+    }
+
+    public ScheduledTask getScheduledTask() {
+        return scheduledTask;
+    }
+
+    @Override
+    public void run() {
+        if (cancelled) return; // Cancelled after Folia already queued this run
+        TickBudget budget = this.budget;
+        if (deferral != null && budget.shouldDefer(plugin, deferrals)) {
+            deferrals++;
+            if (stats != null) stats.recordDeferred();
+            deferral.run();
+            return;
+        }
+        deferrals = 0;
+        Thread thread = Thread.currentThread();
+        runningThread = thread;
+        long startNanos = System.nanoTime();
+        runStartNanos = startNanos;
+        TaskStats stats = this.stats;
+        if (stats != null) {
+            stats.recordStart(startNanos - dueAtNanos, thread);
+        }
+        boolean failed = true;
+        try {
+            if (taskConsumer != null) {
+                taskConsumer.accept(this);
+            } else {
+                taskRunnable.run();
+            }
+            failed = false;
+        } finally {
+            runStartNanos = 0L;
+            runningThread = null;
+            long durationNanos = System.nanoTime() - startNanos;
+            if (budget != null) {
+                budget.charge(plugin, durationNanos);
+            }
+            if (stats != null) {
+                stats.recordRun(durationNanos, failed);
+                dueAtNanos = startNanos + periodNanos; // Only meaningful for repeating tasks
+            }
+            if (!repeating && registry != null) {
+                // One-shot task has finished; drop it so the registry does not grow without bound.
+                registry.remove(this);
+            }
+        }
+    }
+
     @Override
     public int getTaskId() {
         return taskId;
@@ -37,21 +188,32 @@ public class FoliaBukkitTask implements org.bukkit.scheduler.BukkitTask {
     @Override
     public boolean isCancelled() {
         // Check both internal flag and Folia's task state
-        return cancelled || (externalCancelState != null && externalCancelState.getAsBoolean());
+        ScheduledTask task = this.scheduledTask;
+        return cancelled || (task != null && task.isCancelled());
     }
 
     @Override
     public void cancel() {
-        // This method is called by plugin code. We mark our task as cancelled.
-        // The actual cancellation of the Folia ScheduledTask happens in FoliaSchedulerProxy.cancelTask(id)
-        // when Bukkit.getScheduler().cancelTask(id) is called by the plugin.
         this.cancelled = true;
-        // We don't directly interact with the Folia ScheduledTask here to avoid issues if the task ID
-        // in taskMap (in FoliaSchedulerProxy) was removed or changed.
-        // The proxy's cancelTask method is the single point of truth for actual cancellation.
+        TaskRegistry registry = this.registry;
+        if (registry != null) {
+            registry.remove(this); // Only removes this exact handle, so a reused id is never touched
+        }
+        // If the Folia task is not bound yet, the scheduler cancels it right after binding (see isCancelledByCaller).
+        ScheduledTask task = this.scheduledTask;
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * @return whether {@link #cancel()} was called on this handle
+     */
+    boolean isCancelledByCaller() {
+        return cancelled;
     }
 
     public Runnable getTaskRunnable() { // Added getter for the runnable
-        return taskRunnable;
+        return taskRunnable != null ? taskRunnable : this;
     }
 }
@@ -1,11 +1,11 @@
 package summer.foliaPhantom.scheduler;
 
 import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
 import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.plugin.Plugin;
 
 import java.util.concurrent.TimeUnit;
@@ -14,48 +14,111 @@ public class FoliaSchedulerAdapter {
     private final Plugin plugin;
     private final AsyncScheduler asyncScheduler;
     private final RegionScheduler regionScheduler;
+    private final GlobalRegionScheduler globalRegionScheduler;
+    private final DefaultLocationCache defaultLocationCache;
+    private final RateLimitedLogger rateLimitedLogger;
+    private final RepeatingTaskBuckets repeatingTaskBuckets; // Null when timer coalescing is disabled
+    private final DelayedTaskBatches delayedTaskBatches; // Null when one-shot batching is disabled
 
     public FoliaSchedulerAdapter(Plugin plugin) {
+        this(plugin, null);
+    }
+
+    public FoliaSchedulerAdapter(Plugin plugin, TickClock tickClock) {
+        this(plugin, tickClock, null);
+    }
+
+    /**
+     * @param tickClock  clock used to coalesce region timers into shared buckets, or null to give every timer
+     *                   its own Folia task
+     * @param batchClock clock used to batch the one-shot region tasks of opted-in plugins due on the same tick, or
+     *                   null to give every one-shot task its own Folia task
+     */
+    public FoliaSchedulerAdapter(Plugin plugin, TickClock tickClock, TickClock batchClock) {
+        this(plugin, plugin.getServer().getAsyncScheduler(), plugin.getServer().getRegionScheduler(),
+                plugin.getServer().getGlobalRegionScheduler(), tickClock, batchClock);
+    }
+
+    /**
+     * Uses the given Folia schedulers instead of the server's, e.g. an in-memory stand-in when driving the
+     * scheduler outside a running server. The plugin's server is still asked which thread owns what.
+     */
+    public FoliaSchedulerAdapter(Plugin plugin, AsyncScheduler asyncScheduler, RegionScheduler regionScheduler,
+                                 GlobalRegionScheduler globalRegionScheduler, TickClock tickClock, TickClock batchClock) {
         this.plugin = plugin;
-        this.asyncScheduler = plugin.getServer().getAsyncScheduler();
-        this.regionScheduler = plugin.getServer().getRegionScheduler();
+        this.asyncScheduler = asyncScheduler;
+        this.regionScheduler = regionScheduler;
+        this.globalRegionScheduler = globalRegionScheduler;
+        this.defaultLocationCache = new DefaultLocationCache(plugin.getLogger());
+        this.rateLimitedLogger = new RateLimitedLogger(plugin.getLogger(), 60, TimeUnit.SECONDS);
+        this.repeatingTaskBuckets = (tickClock != null) ? new RepeatingTaskBuckets(plugin, regionScheduler, globalRegionScheduler, tickClock) : null;
+        this.delayedTaskBatches = (batchClock != null) ? new DelayedTaskBatches(plugin, regionScheduler, globalRegionScheduler, batchClock) : null;
     }
 
     public ScheduledTask runAsyncTask(Runnable runnable, long delayTicks) {
-        Location loc = getDefaultLocation();
+        // Only use region scheduler if called from main thread initially for default loc
+        Location loc = plugin.getServer().isPrimaryThread() ? defaultLocationCache.get() : null;
         long safeDelay = delayTicks <= 0 ? 1 : delayTicks; // Ensure positive delay for some schedulers
-        return (loc != null && plugin.getServer().isPrimaryThread()) // Only use region scheduler if called from main thread initially for default loc
+        return (loc != null)
                 ? regionScheduler.runDelayed(plugin, loc, task -> runnable.run(), safeDelay)
                 : asyncScheduler.runDelayed(plugin, task -> runnable.run(),
                 safeDelay * 50L, TimeUnit.MILLISECONDS);
     }
 
     public ScheduledTask runAsyncRepeatingTask(Runnable runnable, long initialDelayTicks, long periodTicks) {
-        Location loc = getDefaultLocation();
+        Location loc = plugin.getServer().isPrimaryThread() ? defaultLocationCache.get() : null;
         long safeInitial = initialDelayTicks <= 0 ? 1 : initialDelayTicks;
         long safePeriod = periodTicks <= 0 ? 1 : periodTicks;
-        return (loc != null && plugin.getServer().isPrimaryThread())
+        return (loc != null)
                 ? regionScheduler.runAtFixedRate(plugin, loc, task -> runnable.run(), safeInitial, safePeriod)
                 : asyncScheduler.runAtFixedRate(plugin, task -> runnable.run(),
                 safeInitial * 50L, safePeriod * 50L, TimeUnit.MILLISECONDS);
     }
 
     public ScheduledTask runRegionSyncTask(Runnable runnable, Location location) {
+        return runRegionSyncTask(runnable, location, null);
+    }
+
+    /**
+     * @param owner plugin the task runs for; shares a Folia task with others due on the same tick if the plugin
+     *              opted into batching, never if null
+     */
+    public ScheduledTask runRegionSyncTask(Runnable runnable, Location location, Plugin owner) {
         if (location == null || location.getWorld() == null) {
-            plugin.getLogger().warning("[PhantomScheduler] Location for plugin " + plugin.getName() +
-                    " was invalid for a region-specific task (runRegionSyncTask). Falling back to GlobalRegionScheduler.");
-            return plugin.getServer().getGlobalRegionScheduler().run(plugin, task -> runnable.run());
+            // A null location is an explicit request for the global region; only a world-less one is suspicious.
+            if (location != null) warnInvalidLocation("runRegionSyncTask");
+            location = null;
+        }
+        if (delayedTaskBatches != null && delayedTaskBatches.isEnabledFor(owner)) {
+            // Shares one Folia task with every other task due on the same region and tick.
+            return delayedTaskBatches.schedule(runnable, location, 0L);
+        }
+        if (location == null) {
+            return globalRegionScheduler.run(plugin, task -> runnable.run());
         } else {
             return this.regionScheduler.run(plugin, location, task -> runnable.run());
         }
     }
 
     public ScheduledTask runRegionDelayedTask(Runnable runnable, Location location, long delayTicks) {
+        return runRegionDelayedTask(runnable, location, delayTicks, null);
+    }
+
+    /**
+     * @param owner as for {@link #runRegionSyncTask(Runnable, Location, Plugin)}
+     */
+    public ScheduledTask runRegionDelayedTask(Runnable runnable, Location location, long delayTicks, Plugin owner) {
         long safeDelay = delayTicks <= 0 ? 1 : delayTicks;
         if (location == null || location.getWorld() == null) {
-            plugin.getLogger().warning("[PhantomScheduler] Location for plugin " + plugin.getName() +
-                    " was invalid for a region-specific task (runRegionDelayedTask). Falling back to GlobalRegionScheduler.");
-            return plugin.getServer().getGlobalRegionScheduler().runDelayed(plugin, task -> runnable.run(), safeDelay);
+            // A null location is an explicit request for the global region; only a world-less one is suspicious.
+            if (location != null) warnInvalidLocation("runRegionDelayedTask");
+            location = null;
+        }
+        if (delayedTaskBatches != null && delayedTaskBatches.isEnabledFor(owner)) {
+            return delayedTaskBatches.schedule(runnable, location, safeDelay);
+        }
+        if (location == null) {
+            return globalRegionScheduler.runDelayed(plugin, task -> runnable.run(), safeDelay);
         } else {
             return this.regionScheduler.runDelayed(plugin, location, task -> runnable.run(), safeDelay);
         }
@@ -65,57 +128,60 @@ public class FoliaSchedulerAdapter {
                                                 long initialDelayTicks, long periodTicks) {
         long safeInitial = initialDelayTicks <= 0 ? 1 : initialDelayTicks;
         long safePeriod = periodTicks <= 0 ? 1 : periodTicks;
-        if (location == null || location.getWorld() == null) {
-            plugin.getLogger().warning("[PhantomScheduler] Location for plugin " + plugin.getName() +
-                    " was invalid for a region-specific task (runRegionRepeatingTask). Falling back to GlobalRegionScheduler.");
-            return plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> runnable.run(), safeInitial, safePeriod);
+        if (location != null && location.getWorld() == null) {
+            warnInvalidLocation("runRegionRepeatingTask");
+            location = null;
+        }
+        if (repeatingTaskBuckets != null) {
+            // Shares one Folia timer with every other timer of the same region, period and phase.
+            return repeatingTaskBuckets.schedule(runnable, location, safeInitial, safePeriod);
+        }
+        if (location == null) {
+            // A null location is an explicit request for the global region.
+            return globalRegionScheduler.runAtFixedRate(plugin, task -> runnable.run(), safeInitial, safePeriod);
         } else {
             return this.regionScheduler.runAtFixedRate(plugin, location, task -> runnable.run(),
                     safeInitial, safePeriod);
         }
     }
 
+    /**
+     * Runs {@code runnable} on {@code entity}'s scheduler, i.e. on whichever region owns the entity at each run.
+     *
+     * @param retired run instead of any further run once the entity is removed
+     * @return the Folia task, or null if the entity has already been removed
+     */
+    public ScheduledTask runEntityTask(Runnable runnable, Entity entity, Runnable retired, long delayTicks, long periodTicks) {
+        if (periodTicks > 0) {
+            long safeInitial = delayTicks <= 0 ? 1 : delayTicks;
+            return entity.getScheduler().runAtFixedRate(plugin, task -> runnable.run(), retired, safeInitial, periodTicks);
+        }
+        if (delayTicks > 0) {
+            return entity.getScheduler().runDelayed(plugin, task -> runnable.run(), retired, delayTicks);
+        }
+        return entity.getScheduler().run(plugin, task -> runnable.run(), retired);
+    }
+
     public void cancelTask(ScheduledTask task) {
         if (task != null && !task.isCancelled()) {
             task.cancel();
         }
     }
 
-    private Location getDefaultLocation() {
-        // Delegate to the new static method
-        return getSafeDefaultLocation(this.plugin, this.plugin.getLogger());
-    }
-
-    public static Location getSafeDefaultLocation(Plugin pluginContextForLog, java.util.logging.Logger logger) {
-        try {
-            if (!Bukkit.getServer().isPrimaryThread()) {
-                String pluginName = "System"; // Default if pluginContextForLog is null
-                if (pluginContextForLog != null && pluginContextForLog.getName() != null) {
-                    pluginName = pluginContextForLog.getName();
-                }
-                logger.warning("[" + pluginName + "] getSafeDefaultLocation called off main thread. Location-specific scheduling might be unreliable. No default location will be provided.");
-                return null;
-            }
-            if (Bukkit.getWorlds().isEmpty()) {
-                logger.severe("No worlds available (Bukkit.getWorlds() is empty). Cannot determine a default location for scheduling.");
-                return null;
-            }
-            World world = Bukkit.getWorlds().get(0);
-            if (world != null) {
-                return world.getSpawnLocation();
-            } else {
-                // This case should ideally not be reached if Bukkit.getWorlds() is not empty,
-                // but as a safeguard:
-                logger.warning("Primary world (Bukkit.getWorlds().get(0)) is null, though Bukkit.getWorlds() was not empty. Cannot determine default location.");
-                return null;
-            }
-        } catch (Exception e) {
-            String pluginName = "System"; // Default if pluginContextForLog is null
-            if (pluginContextForLog != null && pluginContextForLog.getName() != null) {
-                pluginName = pluginContextForLog.getName();
-            }
-            logger.log(java.util.logging.Level.SEVERE, "Exception in getSafeDefaultLocation (plugin context: " + pluginName + ")", e);
-            return null;
-        }
+    public RepeatingTaskBuckets getRepeatingTaskBuckets() {
+        return repeatingTaskBuckets;
+    }
+
+    public DelayedTaskBatches getDelayedTaskBatches() {
+        return delayedTaskBatches;
+    }
+
+    public DefaultLocationCache getDefaultLocationCache() {
+        return defaultLocationCache;
+    }
+
+    private void warnInvalidLocation(String method) {
+        rateLimitedLogger.warning(method, () -> "[PhantomScheduler] Location for plugin " + plugin.getName() +
+                " was invalid for a region-specific task (" + method + "). Falling back to GlobalRegionScheduler.");
     }
 }
@@ -1,209 +1,558 @@
 package summer.foliaPhantom.scheduler;
 
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scheduler.BukkitWorker;
+import summer.foliaPhantom.metrics.ExecutionTarget;
+import summer.foliaPhantom.metrics.SchedulerMetrics;
+import summer.foliaPhantom.metrics.TaskStats;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Logger; // Added import
-// Assuming FoliaBukkitTask will be in the same package
-import summer.foliaPhantom.scheduler.FoliaBukkitTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 /**
- * A dynamic proxy for {@link BukkitScheduler}.
- * This proxy intercepts scheduler calls. If the server is detected as a Folia server,
- * it adapts these calls to Folia's scheduling system using {@link FoliaSchedulerAdapter}.
- * If the server is not Folia, it passes all calls directly to the original {@link BukkitScheduler},
- * ensuring native behavior and compatibility.
+ * A concrete {@link BukkitScheduler} that is swapped into the server in place of the original scheduler.
+ * If the server is detected as a Folia server, scheduling calls are adapted to Folia's scheduling system
+ * using {@link FoliaSchedulerAdapter}. If the server is not Folia, every call is passed directly to the
+ * original {@link BukkitScheduler}, ensuring native behavior and compatibility.
+ * <p>
+ * Every {@link BukkitScheduler} method is implemented directly (no {@code java.lang.reflect.Proxy}),
+ * so a plugin's scheduler call is a plain virtual call with primitive arguments.
  */
-public class FoliaSchedulerProxy implements InvocationHandler {
-    private static final Logger LOGGER = Logger.getLogger("FoliaSchedulerProxy"); // Added logger instance
+public class FoliaSchedulerProxy implements BukkitScheduler {
+    private static final Logger LOGGER = Logger.getLogger("FoliaSchedulerProxy");
     private final BukkitScheduler originalScheduler;
     private final FoliaSchedulerAdapter foliaAdapter;
     // Flag indicating if the current server environment is Folia-based.
     private final boolean isFoliaServer;
-    private final Map<Integer, ScheduledTask> taskMap = new ConcurrentHashMap<>();
-    private int taskIdCounter = 1000; // Start from a higher number to avoid collision with vanilla tasks
+    private final SyncTaskRouter syncTaskRouter;
+    private final VirtualThreadAsyncBackend virtualThreadBackend;
+    private final SchedulerMetrics metrics; // Null when metrics are disabled
+    private final TickBudget tickBudget; // Null when tick budgeting is disabled
+    private final TaskRegistry taskRegistry = new TaskRegistry();
+    private final RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(LOGGER, 60, TimeUnit.SECONDS);
 
-    // Modified constructor
-    public FoliaSchedulerProxy(BukkitScheduler originalScheduler, FoliaSchedulerAdapter foliaAdapter, boolean isFoliaServer) {
+    public FoliaSchedulerProxy(BukkitScheduler originalScheduler, FoliaSchedulerAdapter foliaAdapter, boolean isFoliaServer,
+                               SyncTaskRouter syncTaskRouter, VirtualThreadAsyncBackend virtualThreadBackend,
+                               SchedulerMetrics metrics) {
+        this(originalScheduler, foliaAdapter, isFoliaServer, syncTaskRouter, virtualThreadBackend, metrics, null);
+    }
+
+    public FoliaSchedulerProxy(BukkitScheduler originalScheduler, FoliaSchedulerAdapter foliaAdapter, boolean isFoliaServer,
+                               SyncTaskRouter syncTaskRouter, VirtualThreadAsyncBackend virtualThreadBackend,
+                               SchedulerMetrics metrics, TickBudget tickBudget) {
         this.originalScheduler = originalScheduler;
         this.foliaAdapter = foliaAdapter;
         this.isFoliaServer = isFoliaServer;
+        this.syncTaskRouter = syncTaskRouter;
+        this.virtualThreadBackend = virtualThreadBackend;
+        this.metrics = metrics;
+        this.tickBudget = tickBudget;
+    }
+
+    // --- runTask ---
+
+    @Override
+    public BukkitTask runTask(Plugin plugin, Runnable task) {
+        if (shouldDelegate(plugin, "runTask")) {
+            return originalScheduler.runTask(plugin, task);
+        }
+        return scheduleSync(new FoliaBukkitTask(nextTaskId(), plugin, task, true), 0L, 0L);
+    }
+
+    @Override
+    public void runTask(Plugin plugin, Consumer<? super BukkitTask> task) {
+        if (shouldDelegate(plugin, "runTask")) {
+            originalScheduler.runTask(plugin, task);
+            return;
+        }
+        scheduleSync(new FoliaBukkitTask(nextTaskId(), plugin, task, true), 0L, 0L);
+    }
+
+    @Override
+    @Deprecated
+    public BukkitTask runTask(Plugin plugin, BukkitRunnable task) {
+        return runTask(plugin, (Runnable) task);
+    }
+
+    @Override
+    public BukkitTask runTaskAsynchronously(Plugin plugin, Runnable task) {
+        if (shouldDelegate(plugin, "runTaskAsynchronously")) {
+            return originalScheduler.runTaskAsynchronously(plugin, task);
+        }
+        return scheduleAsync(new FoliaBukkitTask(nextTaskId(), plugin, task, false), 0L, 0L);
+    }
+
+    @Override
+    public void runTaskAsynchronously(Plugin plugin, Consumer<? super BukkitTask> task) {
+        if (shouldDelegate(plugin, "runTaskAsynchronously")) {
+            originalScheduler.runTaskAsynchronously(plugin, task);
+            return;
+        }
+        scheduleAsync(new FoliaBukkitTask(nextTaskId(), plugin, task, false), 0L, 0L);
+    }
+
+    @Override
+    @Deprecated
+    public BukkitTask runTaskAsynchronously(Plugin plugin, BukkitRunnable task) {
+        return runTaskAsynchronously(plugin, (Runnable) task);
+    }
+
+    // --- runTaskLater ---
+
+    @Override
+    public BukkitTask runTaskLater(Plugin plugin, Runnable task, long delay) {
+        if (shouldDelegate(plugin, "runTaskLater")) {
+            return originalScheduler.runTaskLater(plugin, task, delay);
+        }
+        return scheduleSync(new FoliaBukkitTask(nextTaskId(), plugin, task, true), delay, 0L);
+    }
+
+    @Override
+    public void runTaskLater(Plugin plugin, Consumer<? super BukkitTask> task, long delay) {
+        if (shouldDelegate(plugin, "runTaskLater")) {
+            originalScheduler.runTaskLater(plugin, task, delay);
+            return;
+        }
+        scheduleSync(new FoliaBukkitTask(nextTaskId(), plugin, task, true), delay, 0L);
+    }
+
+    @Override
+    @Deprecated
+    public BukkitTask runTaskLater(Plugin plugin, BukkitRunnable task, long delay) {
+        return runTaskLater(plugin, (Runnable) task, delay);
+    }
+
+    @Override
+    public BukkitTask runTaskLaterAsynchronously(Plugin plugin, Runnable task, long delay) {
+        if (shouldDelegate(plugin, "runTaskLaterAsynchronously")) {
+            return originalScheduler.runTaskLaterAsynchronously(plugin, task, delay);
+        }
+        return scheduleAsync(new FoliaBukkitTask(nextTaskId(), plugin, task, false), delay, 0L);
+    }
+
+    @Override
+    public void runTaskLaterAsynchronously(Plugin plugin, Consumer<? super BukkitTask> task, long delay) {
+        if (shouldDelegate(plugin, "runTaskLaterAsynchronously")) {
+            originalScheduler.runTaskLaterAsynchronously(plugin, task, delay);
+            return;
+        }
+        scheduleAsync(new FoliaBukkitTask(nextTaskId(), plugin, task, false), delay, 0L);
     }
 
     @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        // Conditional scheduling logic based on detected server type.
+    @Deprecated
+    public BukkitTask runTaskLaterAsynchronously(Plugin plugin, BukkitRunnable task, long delay) {
+        return runTaskLaterAsynchronously(plugin, (Runnable) task, delay);
+    }
+
+    // --- runTaskTimer ---
+
+    @Override
+    public BukkitTask runTaskTimer(Plugin plugin, Runnable task, long delay, long period) {
+        if (shouldDelegate(plugin, "runTaskTimer")) {
+            return originalScheduler.runTaskTimer(plugin, task, delay, period);
+        }
+        return scheduleSync(new FoliaBukkitTask(nextTaskId(), plugin, task, true), delay, period);
+    }
+
+    @Override
+    public void runTaskTimer(Plugin plugin, Consumer<? super BukkitTask> task, long delay, long period) {
+        if (shouldDelegate(plugin, "runTaskTimer")) {
+            originalScheduler.runTaskTimer(plugin, task, delay, period);
+            return;
+        }
+        scheduleSync(new FoliaBukkitTask(nextTaskId(), plugin, task, true), delay, period);
+    }
+
+    @Override
+    @Deprecated
+    public BukkitTask runTaskTimer(Plugin plugin, BukkitRunnable task, long delay, long period) {
+        return runTaskTimer(plugin, (Runnable) task, delay, period);
+    }
+
+    @Override
+    public BukkitTask runTaskTimerAsynchronously(Plugin plugin, Runnable task, long delay, long period) {
+        if (shouldDelegate(plugin, "runTaskTimerAsynchronously")) {
+            return originalScheduler.runTaskTimerAsynchronously(plugin, task, delay, period);
+        }
+        return scheduleAsync(new FoliaBukkitTask(nextTaskId(), plugin, task, false), delay, period);
+    }
+
+    @Override
+    public void runTaskTimerAsynchronously(Plugin plugin, Consumer<? super BukkitTask> task, long delay, long period) {
+        if (shouldDelegate(plugin, "runTaskTimerAsynchronously")) {
+            originalScheduler.runTaskTimerAsynchronously(plugin, task, delay, period);
+            return;
+        }
+        scheduleAsync(new FoliaBukkitTask(nextTaskId(), plugin, task, false), delay, period);
+    }
+
+    @Override
+    @Deprecated
+    public BukkitTask runTaskTimerAsynchronously(Plugin plugin, BukkitRunnable task, long delay, long period) {
+        return runTaskTimerAsynchronously(plugin, (Runnable) task, delay, period);
+    }
+
+    // --- Legacy id-returning scheduling methods ---
+
+    @Override
+    public int scheduleSyncDelayedTask(Plugin plugin, Runnable task, long delay) {
+        if (shouldDelegate(plugin, "scheduleSyncDelayedTask")) {
+            return originalScheduler.scheduleSyncDelayedTask(plugin, task, delay);
+        }
+        return scheduleSync(new FoliaBukkitTask(nextTaskId(), plugin, task, true), delay, 0L).getTaskId();
+    }
+
+    @Override
+    @Deprecated
+    public int scheduleSyncDelayedTask(Plugin plugin, BukkitRunnable task, long delay) {
+        return scheduleSyncDelayedTask(plugin, (Runnable) task, delay);
+    }
+
+    @Override
+    public int scheduleSyncDelayedTask(Plugin plugin, Runnable task) {
+        return scheduleSyncDelayedTask(plugin, task, 0L);
+    }
+
+    @Override
+    @Deprecated
+    public int scheduleSyncDelayedTask(Plugin plugin, BukkitRunnable task) {
+        return scheduleSyncDelayedTask(plugin, (Runnable) task, 0L);
+    }
+
+    @Override
+    public int scheduleSyncRepeatingTask(Plugin plugin, Runnable task, long delay, long period) {
+        if (shouldDelegate(plugin, "scheduleSyncRepeatingTask")) {
+            return originalScheduler.scheduleSyncRepeatingTask(plugin, task, delay, period);
+        }
+        return scheduleSync(new FoliaBukkitTask(nextTaskId(), plugin, task, true), delay, period).getTaskId();
+    }
+
+    @Override
+    @Deprecated
+    public int scheduleSyncRepeatingTask(Plugin plugin, BukkitRunnable task, long delay, long period) {
+        return scheduleSyncRepeatingTask(plugin, (Runnable) task, delay, period);
+    }
+
+    @Override
+    @Deprecated
+    public int scheduleAsyncDelayedTask(Plugin plugin, Runnable task, long delay) {
+        if (shouldDelegate(plugin, "scheduleAsyncDelayedTask")) {
+            return originalScheduler.scheduleAsyncDelayedTask(plugin, task, delay);
+        }
+        return scheduleAsync(new FoliaBukkitTask(nextTaskId(), plugin, task, false), delay, 0L).getTaskId();
+    }
+
+    @Override
+    @Deprecated
+    public int scheduleAsyncDelayedTask(Plugin plugin, Runnable task) {
+        return scheduleAsyncDelayedTask(plugin, task, 0L);
+    }
+
+    @Override
+    @Deprecated
+    public int scheduleAsyncRepeatingTask(Plugin plugin, Runnable task, long delay, long period) {
+        if (shouldDelegate(plugin, "scheduleAsyncRepeatingTask")) {
+            return originalScheduler.scheduleAsyncRepeatingTask(plugin, task, delay, period);
+        }
+        return scheduleAsync(new FoliaBukkitTask(nextTaskId(), plugin, task, false), delay, period).getTaskId();
+    }
+
+    @Override
+    public <T> Future<T> callSyncMethod(Plugin plugin, Callable<T> task) {
+        if (shouldDelegate(plugin, "callSyncMethod")) {
+            return originalScheduler.callSyncMethod(plugin, task);
+        }
+        TaskStats stats = (metrics != null) ? metrics.statsFor(plugin, task.getClass()) : null;
+        SyncCall<T> call = new SyncCall<>(plugin, task, rateLimitedLogger, stats);
+        FoliaBukkitTask handle = new FoliaBukkitTask(nextTaskId(), plugin, call, true) {
+            @Override
+            public void cancel() {
+                super.cancel();
+                call.cancel(false); // Releases callers waiting in get()
+            }
+        };
+        call.bindTask(handle);
+        scheduleSync(handle, 0L, 0L);
+        return call;
+    }
+
+    @Override
+    public Executor getMainThreadExecutor(Plugin plugin) {
+        if (shouldDelegate(plugin, "getMainThreadExecutor")) {
+            return originalScheduler.getMainThreadExecutor(plugin);
+        }
+        return command -> runTask(plugin, command);
+    }
+
+    // --- Task management ---
+
+    @Override
+    public void cancelTask(int taskId) {
+        if (!isFoliaServer) {
+            originalScheduler.cancelTask(taskId);
+            return;
+        }
+        FoliaBukkitTask taskToCancel = taskRegistry.remove(taskId); // remove it if we are cancelling it
+        if (taskToCancel != null) {
+            taskToCancel.cancel(); // Also flags a handle whose Folia task is not bound yet
+        } else {
+            // If it wasn't our task, pass it to the original scheduler
+            originalScheduler.cancelTask(taskId);
+        }
+    }
+
+    @Override
+    public void cancelTasks(Plugin plugin) {
+        if (!isFoliaServer) {
+            originalScheduler.cancelTasks(plugin);
+            return;
+        }
+        // Our Folia tasks are owned by FoliaPhantom on Folia's side, so Folia will not cancel them when
+        // 'plugin' is disabled. Cancel them through the per-plugin index instead.
+        for (FoliaBukkitTask task : taskRegistry.removeAll(plugin)) {
+            task.cancel();
+        }
+        if (virtualThreadBackend != null) {
+            virtualThreadBackend.shutdownLane(plugin);
+        }
+        if (metrics != null) {
+            metrics.remove(plugin.getName());
+        }
+        try {
+            // Tasks scheduled before the plugin was enabled were delegated to the original scheduler.
+            originalScheduler.cancelTasks(plugin);
+        } catch (UnsupportedOperationException ignored) {
+            // Folia's own BukkitScheduler does not support legacy scheduling; nothing was delegated there.
+        }
+    }
+
+    @Override
+    public boolean isCurrentlyRunning(int taskId) {
+        if (isFoliaServer) {
+            FoliaBukkitTask task = taskRegistry.get(taskId);
+            if (task != null) {
+                return isActive(task.getScheduledTask());
+            }
+        }
+        // If not in our map, it might be an original scheduler's task.
+        return originalScheduler.isCurrentlyRunning(taskId);
+    }
+
+    @Override
+    public boolean isQueued(int taskId) {
+        if (isFoliaServer) {
+            FoliaBukkitTask task = taskRegistry.get(taskId);
+            if (task != null) {
+                return isActive(task.getScheduledTask());
+            }
+        }
+        return originalScheduler.isQueued(taskId);
+    }
+
+    @Override
+    public List<BukkitWorker> getActiveWorkers() {
+        if (!isFoliaServer) {
+            return originalScheduler.getActiveWorkers();
+        }
+        List<BukkitWorker> workers = new ArrayList<>();
+        for (FoliaBukkitTask task : taskRegistry.snapshot()) {
+            Thread thread = task.getRunningThread();
+            if (!task.isSync() && thread != null) {
+                workers.add(new Worker(task.getTaskId(), task.getOwner(), thread));
+            }
+        }
+        return workers;
+    }
+
+    @Override
+    public List<BukkitTask> getPendingTasks() {
+        if (!isFoliaServer) {
+            return originalScheduler.getPendingTasks();
+        }
+        List<BukkitTask> pending = new ArrayList<>();
+        for (FoliaBukkitTask task : taskRegistry.snapshot()) {
+            if (isActive(task.getScheduledTask())) {
+                pending.add(task);
+            }
+        }
+        return pending;
+    }
+
+    // --- Internals ---
+
+    /**
+     * Snapshot of an async task that is executing right now, as reported by {@link #getActiveWorkers()}.
+     */
+    private record Worker(int getTaskId, Plugin getOwner, Thread getThread) implements BukkitWorker {
+    }
+
+    /**
+     * Returns true if the call must go to the original scheduler: always on non-Folia servers, and for plugins
+     * that are not fully enabled yet (likely in onEnable/onLoad).
+     */
+    private boolean shouldDelegate(Plugin plugin, String methodName) {
         // If the server is not Folia, all scheduler method calls are passed directly to the
         // original BukkitScheduler. This ensures that on non-Folia platforms (like Spigot or Paper
         // without Folia's threaded regions), tasks are handled by the native scheduler,
         // preventing errors from attempting to use Folia-specific APIs and maintaining
-        // standard Bukkit plugin behavior. The taskMap and Folia-specific handling below
-        // will be skipped entirely.
-        if (!this.isFoliaServer) {
-            return method.invoke(originalScheduler, args);
-        }
-
-        String methodName = method.getName();
-        Plugin plugin = (args != null && args.length > 0 && args[0] instanceof Plugin) ? (Plugin) args[0] : null;
-        // Removed generic taskRunnable extraction loop
-
-        // If plugin is not null and the method is a task scheduling one,
-        // check if the plugin is enabled. If not, delegate to original scheduler.
-        // This check uses the 'plugin' variable extracted above.
-        if (plugin != null &&
-            (methodName.equals("runTask") ||
-             methodName.equals("runTaskAsynchronously") ||
-             methodName.equals("runTaskLater") ||
-             methodName.equals("runTaskLaterAsynchronously") ||
-             methodName.equals("runTaskTimer") ||
-             methodName.equals("runTaskTimerAsynchronously") ||
-             methodName.equals("scheduleSyncDelayedTask") ||
-             methodName.equals("scheduleSyncRepeatingTask")) &&
-            !plugin.isEnabled()) {
-
-            // Log this delegation for clarity
+        // standard Bukkit plugin behavior.
+        if (!this.isFoliaServer || plugin == null) {
+            return true;
+        }
+        if (!plugin.isEnabled()) {
             String pluginName = (plugin.getName() != null) ? plugin.getName() : "Unknown Plugin";
-            LOGGER.info("[FoliaSchedulerProxy] Plugin " + pluginName +
+            rateLimitedLogger.info("not-enabled-" + pluginName, () -> "[FoliaSchedulerProxy] Plugin " + pluginName +
                         " is not fully enabled (likely in onEnable/onLoad). Delegating scheduler call '" +
                         methodName + "' to original BukkitScheduler.");
-            return method.invoke(originalScheduler, args);
-        }
-
-        // If plugin is enabled, or method is not one of the above, or plugin is null,
-        // proceed with existing Folia handling logic or delegation to originalScheduler at the end.
-        Location defaultLoc = getDefaultLocationSafe(plugin);
-
-        switch (methodName) {
-            case "runTask": // runTask(Plugin plugin, Runnable task)
-                if (plugin != null && args.length >= 2 && args[1] instanceof Runnable) {
-                    Runnable task = (Runnable) args[1];
-                    ScheduledTask foliaTask = foliaAdapter.runRegionSyncTask(task, defaultLoc);
-                    return createTaskMapping(plugin, task, foliaTask, true); // isSync = true
-                }
-                break;
-            case "runTaskAsynchronously": // runTaskAsynchronously(Plugin plugin, Runnable task)
-                 if (plugin != null && args.length >= 2 && args[1] instanceof Runnable) {
-                    Runnable task = (Runnable) args[1];
-                    ScheduledTask foliaTask = foliaAdapter.runAsyncTask(task, 0);
-                    return createTaskMapping(plugin, task, foliaTask, false); // isSync = false
-                }
-                break;
-            case "runTaskLater": // runTaskLater(Plugin plugin, Runnable task, long delay)
-                if (plugin != null && args.length >= 3 && args[1] instanceof Runnable && args[2] instanceof Number) {
-                    Runnable task = (Runnable) args[1];
-                    long delay = ((Number) args[2]).longValue();
-                    ScheduledTask foliaTask = foliaAdapter.runRegionDelayedTask(task, defaultLoc, delay);
-                    return createTaskMapping(plugin, task, foliaTask, true); // isSync = true
-                }
-                break;
-            case "runTaskLaterAsynchronously": // runTaskLaterAsynchronously(Plugin plugin, Runnable task, long delay)
-                 if (plugin != null && args.length >= 3 && args[1] instanceof Runnable && args[2] instanceof Number) {
-                    Runnable task = (Runnable) args[1];
-                    long delay = ((Number) args[2]).longValue();
-                    ScheduledTask foliaTask = foliaAdapter.runAsyncTask(task, delay);
-                    return createTaskMapping(plugin, task, foliaTask, false); // isSync = false
-                }
-                break;
-            case "runTaskTimer": // runTaskTimer(Plugin plugin, Runnable task, long delay, long period)
-                if (plugin != null && args.length >= 4 && args[1] instanceof Runnable && args[2] instanceof Number && args[3] instanceof Number) {
-                    Runnable task = (Runnable) args[1];
-                    long delay = ((Number) args[2]).longValue();
-                    long period = ((Number) args[3]).longValue();
-                    ScheduledTask foliaTask = foliaAdapter.runRegionRepeatingTask(task, defaultLoc, delay, period);
-                    return createTaskMapping(plugin, task, foliaTask, true); // isSync = true
-                }
-                break;
-            case "runTaskTimerAsynchronously": // runTaskTimerAsynchronously(Plugin plugin, Runnable task, long delay, long period)
-                if (plugin != null && args.length >= 4 && args[1] instanceof Runnable && args[2] instanceof Number && args[3] instanceof Number) {
-                    Runnable task = (Runnable) args[1];
-                    long delay = ((Number) args[2]).longValue();
-                    long period = ((Number) args[3]).longValue();
-                    ScheduledTask foliaTask = foliaAdapter.runAsyncRepeatingTask(task, delay, period);
-                    return createTaskMapping(plugin, task, foliaTask, false); // isSync = false
-                }
-                break;
-            case "scheduleSyncDelayedTask": // scheduleSyncDelayedTask(Plugin plugin, Runnable task, long delay) or (Plugin plugin, Runnable task)
-                if (plugin != null && args.length >= 2 && args[1] instanceof Runnable) {
-                    Runnable task = (Runnable) args[1];
-                    long delayValue = 0L; // Renamed to avoid conflict with local var 'delay' if method signature changes
-                    if (args.length >= 3 && args[2] instanceof Number) {
-                        delayValue = ((Number) args[2]).longValue();
-                    }
-                    ScheduledTask foliaTask = foliaAdapter.runRegionDelayedTask(task, defaultLoc, delayValue);
-                    return createTaskMappingAndGetId(plugin, task, foliaTask, true); // isSync = true
-                }
-                break;
-            case "scheduleSyncRepeatingTask": // scheduleSyncRepeatingTask(Plugin plugin, Runnable task, long delay, long period)
-                 if (plugin != null && args.length >= 4 && args[1] instanceof Runnable && args[2] instanceof Number && args[3] instanceof Number) {
-                    Runnable task = (Runnable) args[1];
-                    long delay = ((Number) args[2]).longValue();
-                    long period = ((Number) args[3]).longValue();
-                    ScheduledTask foliaTask = foliaAdapter.runRegionRepeatingTask(task, defaultLoc, delay, period);
-                    return createTaskMappingAndGetId(plugin, task, foliaTask, true); // isSync = true
-                }
-                break;
-            case "cancelTask": // (int) -> void
-                 if (args.length >= 1 && args[0] instanceof Integer) {
-                     int taskId = (Integer) args[0];
-                     ScheduledTask taskToCancel = taskMap.remove(taskId); // remove it if we are cancelling it
-                     if (taskToCancel != null) {
-                         foliaAdapter.cancelTask(taskToCancel);
-                     } else {
-                         // If it wasn't our task, pass it to the original scheduler
-                         originalScheduler.cancelTask(taskId);
-                     }
-                 }
-                 return null; // void method
-             case "cancelTasks": // (Plugin) -> void
-                 if (plugin != null) {
-                     // This is a simplified version. A more robust version would iterate taskMap
-                     // and cancel tasks associated with 'plugin'.
-                     // For now, just pass to originalScheduler and accept it might not cancel Folia tasks correctly.
-                     originalScheduler.cancelTasks(plugin);
-                 }
-                 return null;
-             case "isCurrentlyRunning":
-             case "isQueued":
-                 if (args.length >= 1 && args[0] instanceof Integer) {
-                     int taskId = (Integer) args[0];
-                     if (taskMap.containsKey(taskId)) { // Check if we know this task
-                          ScheduledTask foliaTask = taskMap.get(taskId);
-                          // Check if task is active (not cancelled and not finished)
-                          return foliaTask != null && !foliaTask.isCancelled() && foliaTask.getExecutionState() != ScheduledTask.ExecutionState.FINISHED;
-                     }
-                 }
-                 // If not in our map, it might be an original scheduler's task. Fall through.
-                 break;
-         }
-
-        return method.invoke(originalScheduler, args);
-    }
-
-    private FoliaBukkitTask createTaskMapping(Plugin plugin, Runnable runnable, ScheduledTask foliaTask, boolean isSync) {
-        int taskId = taskIdCounter++;
-        taskMap.put(taskId, foliaTask);
-        return new FoliaBukkitTask(taskId, plugin, runnable, foliaTask::isCancelled, isSync);
-    }
-
-    private int createTaskMappingAndGetId(Plugin plugin, Runnable runnable, ScheduledTask foliaTask, boolean isSync) {
-        int taskId = taskIdCounter++;
-        taskMap.put(taskId, foliaTask);
-        // Create a FoliaBukkitTask to be consistent, though it's not directly returned by these Bukkit API methods.
-        // The isSync status is primarily for BukkitTask objects that are returned and inspected.
-        new FoliaBukkitTask(taskId, plugin, runnable, foliaTask::isCancelled, isSync);
-        return taskId;
-    }
-
-    private Location getDefaultLocationSafe(Plugin pluginContext) {
-        // Delegate to the static method in FoliaSchedulerAdapter
-        return FoliaSchedulerAdapter.getSafeDefaultLocation(pluginContext, LOGGER);
+            return true;
+        }
+        return false;
+    }
+
+    private FoliaBukkitTask scheduleSync(FoliaBukkitTask handle, long delay, long period) {
+        Entity entity = syncTaskRouter.entityFor(handle.getOwner(), handle.getTaskBody());
+        if (entity != null) {
+            return scheduleOnEntity(handle, entity, delay, period);
+        }
+        // A null target means the global region (see SyncTaskRouter.route).
+        Location target = syncTaskRouter.route(handle.getOwner(), period > 0);
+        track(handle, delay, period, target != null ? ExecutionTarget.REGION : ExecutionTarget.GLOBAL);
+        if (tickBudget != null) {
+            // Timers keep their period; only one-shot runs are moved to a later tick.
+            handle.attachBudget(tickBudget, period > 0 ? null : () -> deferToNextTick(handle, target));
+        }
+        ScheduledTask foliaTask;
+        try {
+            if (period > 0) {
+                foliaTask = foliaAdapter.runRegionRepeatingTask(handle, target, delay, period);
+            } else if (delay > 0) {
+                foliaTask = foliaAdapter.runRegionDelayedTask(handle, target, delay, handle.getOwner());
+            } else {
+                foliaTask = foliaAdapter.runRegionSyncTask(handle, target, handle.getOwner());
+            }
+        } catch (RuntimeException e) {
+            taskRegistry.remove(handle);
+            throw e;
+        }
+        return bind(handle, foliaTask);
+    }
+
+    /**
+     * Runs a task bound to {@code entity} on the entity's scheduler. If the entity is removed, the task continues on
+     * the global region instead of silently stopping, as it would have kept running under the Bukkit scheduler.
+     */
+    private FoliaBukkitTask scheduleOnEntity(FoliaBukkitTask handle, Entity entity, long delay, long period) {
+        track(handle, delay, period, ExecutionTarget.ENTITY);
+        if (tickBudget != null) {
+            handle.attachBudget(tickBudget, null); // Charged, but resubmitting would have to follow the entity
+        }
+        ScheduledTask foliaTask;
+        try {
+            foliaTask = foliaAdapter.runEntityTask(handle, entity, () -> continueOnGlobalRegion(handle, period, period), delay, period);
+        } catch (RuntimeException e) {
+            taskRegistry.remove(handle);
+            throw e;
+        }
+        if (foliaTask == null) {
+            return continueOnGlobalRegion(handle, delay, period); // The entity was already removed
+        }
+        return bind(handle, foliaTask);
+    }
+
+    private FoliaBukkitTask continueOnGlobalRegion(FoliaBukkitTask handle, long delay, long period) {
+        if (handle.isCancelledByCaller()) {
+            taskRegistry.remove(handle);
+            return handle;
+        }
+        ScheduledTask foliaTask;
+        if (period > 0) {
+            foliaTask = foliaAdapter.runRegionRepeatingTask(handle, null, delay, period);
+        } else if (delay > 0) {
+            foliaTask = foliaAdapter.runRegionDelayedTask(handle, null, delay, handle.getOwner());
+        } else {
+            foliaTask = foliaAdapter.runRegionSyncTask(handle, null, handle.getOwner());
+        }
+        return bind(handle, foliaTask);
+    }
+
+    /**
+     * Moves a one-shot run whose plugin is over its tick budget to the next tick on the same region.
+     */
+    private void deferToNextTick(FoliaBukkitTask handle, Location target) {
+        if (handle.isCancelledByCaller()) {
+            taskRegistry.remove(handle);
+            return;
+        }
+        bind(handle, foliaAdapter.runRegionDelayedTask(handle, target, 1L, handle.getOwner()));
+    }
+
+    private FoliaBukkitTask scheduleAsync(FoliaBukkitTask handle, long delay, long period) {
+        boolean onVirtualThreads = virtualThreadBackend != null && virtualThreadBackend.isEnabledFor(handle.getOwner());
+        track(handle, delay, period, onVirtualThreads ? ExecutionTarget.VIRTUAL_THREAD : ExecutionTarget.FOLIA_ASYNC);
+        ScheduledTask foliaTask;
+        try {
+            if (onVirtualThreads) {
+                foliaTask = virtualThreadBackend.schedule(handle.getOwner(), handle, delay, period);
+            } else {
+                foliaTask = (period > 0)
+                        ? foliaAdapter.runAsyncRepeatingTask(handle, delay, period)
+                        : foliaAdapter.runAsyncTask(handle, delay);
+            }
+        } catch (RuntimeException e) {
+            taskRegistry.remove(handle);
+            throw e;
+        }
+        return bind(handle, foliaTask);
+    }
+
+    /**
+     * Registers the handle before it is submitted, so a task that runs immediately can still evict itself.
+     */
+    private void track(FoliaBukkitTask handle, long delay, long period, ExecutionTarget target) {
+        handle.attach(taskRegistry, period > 0);
+        if (metrics != null) {
+            TaskStats stats = metrics.statsFor(handle.getOwner(), handle.getTaskClass());
+            stats.recordScheduled(target);
+            handle.attachStats(stats, delay, period);
+        }
+        taskRegistry.register(handle);
+    }
+
+    private FoliaBukkitTask bind(FoliaBukkitTask handle, ScheduledTask foliaTask) {
+        handle.bindScheduledTask(foliaTask);
+        if (foliaTask == null || TaskRegistry.isDone(foliaTask)) {
+            taskRegistry.remove(handle);
+        } else if (handle.isCancelledByCaller()) {
+            // cancel() ran (e.g. from the task body itself) before the Folia task was bound; propagate it now.
+            foliaTask.cancel();
+        }
+        return handle;
+    }
+
+    private int nextTaskId() {
+        return taskRegistry.allocateId();
+    }
+
+    public TaskRegistry getTaskRegistry() {
+        return taskRegistry;
+    }
+
+    private static boolean isActive(ScheduledTask foliaTask) {
+        if (foliaTask == null) return true; // Registered but not bound yet, i.e. still being submitted
+        // Check if task is active (not cancelled and not finished)
+        return !foliaTask.isCancelled() && foliaTask.getExecutionState() != ScheduledTask.ExecutionState.FINISHED;
     }
 }
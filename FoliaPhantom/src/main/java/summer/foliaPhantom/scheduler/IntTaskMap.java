@@ -0,0 +1,202 @@
+package summer.foliaPhantom.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An open-addressing hash map from primitive task ids to {@link FoliaBukkitTask} handles.
+ * Lookups are optimistic (no lock acquired unless a writer interferes); writes take a short exclusive lock.
+ * The table grows and shrinks with its content so a map that is drained returns to its initial footprint.
+ */
+final class IntTaskMap {
+    private static final int MIN_CAPACITY = 16;
+    private static final int EMPTY_KEY = 0; // Task ids are always > 0, so 0 marks a free slot
+
+    private final StampedLock lock = new StampedLock();
+    private Table table = new Table(MIN_CAPACITY);
+    private int size;
+
+    /**
+     * Keys and values are swapped together on resize so an optimistic reader never mixes generations.
+     */
+    private static final class Table {
+        final int[] keys;
+        final FoliaBukkitTask[] values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new FoliaBukkitTask[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+
+    FoliaBukkitTask get(int key) {
+        long stamp = lock.tryOptimisticRead();
+        FoliaBukkitTask found = find(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = find(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    void put(int key, FoliaBukkitTask value) {
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.keys.length) {
+                rehash(table.keys.length * 2);
+            }
+            if (insert(table, key, value)) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the mapping for {@code key}, optionally only if it currently maps to {@code expected}.
+     *
+     * @return the removed handle, or null if nothing was removed
+     */
+    FoliaBukkitTask remove(int key, FoliaBukkitTask expected) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = indexOf(t, key);
+            if (slot < 0) return null;
+            FoliaBukkitTask removed = t.values[slot];
+            if (expected != null && removed != expected) return null;
+            deleteSlot(t, slot);
+            size--;
+            if (t.keys.length > MIN_CAPACITY && size * 8 < t.keys.length) {
+                rehash(t.keys.length / 2);
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                current = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Copies the current values into {@code out}.
+     */
+    void collectValues(List<FoliaBukkitTask> out) {
+        long stamp = lock.readLock();
+        try {
+            for (FoliaBukkitTask value : table.values) {
+                if (value != null) out.add(value);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    List<FoliaBukkitTask> values() {
+        List<FoliaBukkitTask> out = new ArrayList<>(size());
+        collectValues(out);
+        return out;
+    }
+
+    private static FoliaBukkitTask find(Table t, int key) {
+        int[] keys = t.keys;
+        int mask = t.mask;
+        int slot = mix(key) & mask;
+        // Bounded probe: an optimistic read may observe a table mid-update, so never loop more than its length.
+        for (int probes = 0; probes <= mask; probes++) {
+            int k = keys[slot];
+            if (k == key) return t.values[slot];
+            if (k == EMPTY_KEY) return null;
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int indexOf(Table t, int key) {
+        int slot = mix(key) & t.mask;
+        while (true) {
+            int k = t.keys[slot];
+            if (k == key) return slot;
+            if (k == EMPTY_KEY) return -1;
+            slot = (slot + 1) & t.mask;
+        }
+    }
+
+    /**
+     * @return true if a new key was added, false if an existing mapping was replaced
+     */
+    private static boolean insert(Table t, int key, FoliaBukkitTask value) {
+        int slot = mix(key) & t.mask;
+        while (true) {
+            int k = t.keys[slot];
+            if (k == key) {
+                t.values[slot] = value;
+                return false;
+            }
+            if (k == EMPTY_KEY) {
+                // Publish the value before the key so an optimistic reader never sees a key without its value.
+                t.values[slot] = value;
+                t.keys[slot] = key;
+                return true;
+            }
+            slot = (slot + 1) & t.mask;
+        }
+    }
+
+    /**
+     * Linear-probing deletion with backward shift, so no tombstones accumulate.
+     */
+    private static void deleteSlot(Table t, int slot) {
+        int mask = t.mask;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (t.keys[next] != EMPTY_KEY) {
+            int home = mix(t.keys[next]) & mask;
+            // Move the entry back if its home slot is not within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                t.keys[hole] = t.keys[next];
+                t.values[hole] = t.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        t.keys[hole] = EMPTY_KEY;
+        t.values[hole] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        Table old = table;
+        Table resized = new Table(Math.max(MIN_CAPACITY, newCapacity));
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != EMPTY_KEY) {
+                insert(resized, old.keys[i], old.values[i]);
+            }
+        }
+        table = resized;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
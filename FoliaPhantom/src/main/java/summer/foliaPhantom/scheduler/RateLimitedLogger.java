@@ -0,0 +1,67 @@
+package summer.foliaPhantom.scheduler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wraps a {@link Logger} so that a message logged from a hot path is emitted at most once per interval per key.
+ * Messages are built lazily, so a suppressed call costs a map lookup and a clock read, not a string concatenation.
+ * The next emitted message reports how many were suppressed in between.
+ */
+public class RateLimitedLogger {
+    private final Logger logger;
+    private final long intervalNanos;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private static final class Window {
+        final AtomicLong nextAllowedNanos = new AtomicLong(Long.MIN_VALUE);
+        final AtomicLong suppressed = new AtomicLong();
+    }
+
+    public RateLimitedLogger(Logger logger, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Logs the message built by {@code message} unless a message with the same {@code key} was logged
+     * within the interval.
+     */
+    public void log(Level level, String key, Supplier<String> message) {
+        log(level, key, message, null);
+    }
+
+    /**
+     * As {@link #log(Level, String, Supplier)}, with {@code thrown} and its stack trace attached to the record.
+     */
+    public void log(Level level, String key, Supplier<String> message, Throwable thrown) {
+        if (!logger.isLoggable(level)) return;
+        Window window = windows.computeIfAbsent(key, k -> new Window());
+        long now = System.nanoTime();
+        long allowedAt = window.nextAllowedNanos.get();
+        if ((allowedAt != Long.MIN_VALUE && now - allowedAt < 0)
+                || !window.nextAllowedNanos.compareAndSet(allowedAt, now + intervalNanos)) {
+            window.suppressed.incrementAndGet();
+            return;
+        }
+        long suppressed = window.suppressed.getAndSet(0);
+        String text = message.get();
+        logger.log(level, suppressed > 0 ? text + " (" + suppressed + " similar messages suppressed)" : text, thrown);
+    }
+
+    public void info(String key, Supplier<String> message) {
+        log(Level.INFO, key, message);
+    }
+
+    public void warning(String key, Supplier<String> message) {
+        log(Level.WARNING, key, message);
+    }
+
+    public void severe(String key, Supplier<String> message) {
+        log(Level.SEVERE, key, message);
+    }
+}
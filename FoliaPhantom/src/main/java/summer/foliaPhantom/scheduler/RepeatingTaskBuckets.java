@@ -0,0 +1,239 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Multiplexes repeating sync tasks onto shared Folia timers.
+ * <p>
+ * Timers with the same target region, the same period and the same phase (first run tick modulo period,
+ * measured on the {@link TickClock}) share one bucket, and each bucket is backed by a single Folia
+ * {@code runAtFixedRate} task that runs its members in a tight loop. Members are exposed as
+ * {@link ScheduledTask}s so the rest of the scheduler treats them like any other Folia task.
+ * <p>
+ * A bucket never runs a member before that member's first run tick, so a timer due before a bucket's first firing
+ * opens a new bucket, which takes over the key; the bucket it replaced keeps its members until they leave.
+ * <p>
+ * Only region/global timers are bucketed: members of a bucket run one after another on one thread,
+ * which is already how Folia runs a region's tasks, but would serialize async timers.
+ */
+public class RepeatingTaskBuckets {
+    private final Plugin plugin;
+    private final RegionScheduler regionScheduler;
+    private final GlobalRegionScheduler globalRegionScheduler;
+    private final TickClock tickClock;
+    private final RateLimitedLogger rateLimitedLogger;
+    private final ConcurrentHashMap<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param world  null for the global region
+     * @param phase  first run tick modulo period
+     */
+    private record BucketKey(UUID world, long chunkKey, long period, long phase) {
+    }
+
+    public RepeatingTaskBuckets(Plugin plugin, RegionScheduler regionScheduler, GlobalRegionScheduler globalRegionScheduler,
+                                TickClock tickClock) {
+        this.plugin = plugin;
+        this.regionScheduler = regionScheduler;
+        this.globalRegionScheduler = globalRegionScheduler;
+        this.tickClock = tickClock;
+        this.rateLimitedLogger = new RateLimitedLogger(plugin.getLogger(), 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Schedules {@code runnable} to run every {@code periodTicks} after {@code initialDelayTicks}
+     * on the region owning {@code location} (or the global region if null). Both values must be positive.
+     */
+    public ScheduledTask schedule(Runnable runnable, Location location, long initialDelayTicks, long periodTicks) {
+        long firstRunTick = tickClock.now() + initialDelayTicks;
+        BucketKey key = keyOf(location, periodTicks, firstRunTick % periodTicks);
+        Member member = new Member(runnable);
+        while (true) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null || bucket.firstFireTick > firstRunTick) {
+                bucket = buckets.compute(key, (k, current) -> (current == null || current.firstFireTick > firstRunTick)
+                        ? new Bucket(k, location, initialDelayTicks, firstRunTick) : current);
+            }
+            if (bucket.tryJoin()) {
+                bucket.add(member, firstRunTick);
+                return member;
+            }
+            // The bucket closed itself between lookup and join; drop it and retry with a fresh one.
+            buckets.remove(key, bucket);
+        }
+    }
+
+    public int bucketCount() {
+        return buckets.size();
+    }
+
+    private static BucketKey keyOf(Location location, long period, long phase) {
+        World world = (location != null) ? location.getWorld() : null;
+        if (world == null) {
+            return new BucketKey(null, 0L, period, phase);
+        }
+        return new BucketKey(world.getUID(), chunkKey(location), period, phase);
+    }
+
+    /**
+     * @return the chunk coordinates of {@code location} packed into one long, used to group tasks by region
+     */
+    static long chunkKey(Location location) {
+        return ((long) (location.getBlockX() >> 4) << 32) | ((location.getBlockZ() >> 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * One shared Folia timer and its members. The member list is confined to the thread running the timer;
+     * other threads hand new members over through {@link #pending}.
+     */
+    private final class Bucket implements Consumer<ScheduledTask> {
+        private final BucketKey key;
+        private final long period;
+        private final long firstFireTick;
+        private final AtomicInteger members = new AtomicInteger(); // -1 once closed
+        private final ConcurrentLinkedQueue<Member> pending = new ConcurrentLinkedQueue<>();
+        private final ArrayList<Member> active = new ArrayList<>();
+        private final ScheduledTask driver;
+        private long fireCount; // Confined to the driver thread
+
+        Bucket(BucketKey key, Location location, long initialDelayTicks, long firstFireTick) {
+            this.key = key;
+            this.period = key.period();
+            this.firstFireTick = firstFireTick;
+            this.driver = (key.world() == null)
+                    ? globalRegionScheduler.runAtFixedRate(plugin, this, initialDelayTicks, period)
+                    : regionScheduler.runAtFixedRate(plugin, location, this, initialDelayTicks, period);
+        }
+
+        boolean tryJoin() {
+            while (true) {
+                int current = members.get();
+                if (current < 0) return false;
+                if (members.compareAndSet(current, current + 1)) return true;
+            }
+        }
+
+        void add(Member member, long firstRunTick) {
+            // Same phase and not before firstFireTick, so the member starts on an exact firing of this bucket.
+            member.bucket = this;
+            member.startFire = (firstRunTick - firstFireTick) / period;
+            pending.add(member);
+        }
+
+        void leave() {
+            members.decrementAndGet();
+        }
+
+        @Override
+        public void accept(ScheduledTask task) {
+            Member joined;
+            while ((joined = pending.poll()) != null) {
+                active.add(joined);
+            }
+            long fire = fireCount++;
+            int live = 0;
+            for (int i = 0, n = active.size(); i < n; i++) {
+                Member member = active.get(i);
+                if (member.isCancelled()) continue;
+                active.set(live++, member); // Compact in place as we go
+                if (fire >= member.startFire) {
+                    member.runOnce();
+                }
+            }
+            for (int i = active.size() - 1; i >= live; i--) {
+                active.remove(i);
+            }
+            if (active.isEmpty() && pending.isEmpty() && members.compareAndSet(0, -1)) {
+                driver.cancel();
+                buckets.remove(key, this);
+            }
+        }
+    }
+
+    /**
+     * A repeating task living in a bucket, presented to the rest of the scheduler as a Folia task.
+     */
+    private final class Member implements ScheduledTask {
+        private final Runnable runnable;
+        private final AtomicReference<ExecutionState> state = new AtomicReference<>(ExecutionState.IDLE);
+        volatile Bucket bucket;
+        long startFire;
+
+        Member(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        void runOnce() {
+            if (!state.compareAndSet(ExecutionState.IDLE, ExecutionState.RUNNING)) return;
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                TaskFailures.report(rateLimitedLogger, runnable, t, "it stays scheduled.");
+            } finally {
+                state.compareAndSet(ExecutionState.RUNNING, ExecutionState.IDLE);
+                if (state.compareAndSet(ExecutionState.CANCELLED_RUNNING, ExecutionState.CANCELLED)) {
+                    bucket.leave();
+                }
+            }
+        }
+
+        @Override
+        public Plugin getOwningPlugin() {
+            return plugin;
+        }
+
+        @Override
+        public boolean isRepeatingTask() {
+            return true;
+        }
+
+        @Override
+        public CancelledState cancel() {
+            while (true) {
+                ExecutionState current = state.get();
+                switch (current) {
+                    case IDLE:
+                        if (state.compareAndSet(current, ExecutionState.CANCELLED)) {
+                            bucket.leave();
+                            return CancelledState.CANCELLED_BY_CALLER;
+                        }
+                        break;
+                    case RUNNING:
+                        if (state.compareAndSet(current, ExecutionState.CANCELLED_RUNNING)) {
+                            return CancelledState.NEXT_RUNS_CANCELLED;
+                        }
+                        break;
+                    case CANCELLED_RUNNING:
+                        return CancelledState.NEXT_RUNS_CANCELLED_ALREADY;
+                    default:
+                        return CancelledState.CANCELLED_ALREADY;
+                }
+            }
+        }
+
+        @Override
+        public ExecutionState getExecutionState() {
+            return state.get();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            ExecutionState current = state.get();
+            return current == ExecutionState.CANCELLED || current == ExecutionState.CANCELLED_RUNNING;
+        }
+    }
+}
@@ -5,16 +5,28 @@ import org.bukkit.Server;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitScheduler;
 import summer.foliaPhantom.FoliaPhantom; // Import FoliaPhantom
+import summer.foliaPhantom.config.PluginConfig;
+import summer.foliaPhantom.metrics.SchedulerMetrics;
 import sun.misc.Unsafe; // Required for Unsafe operations
 
+import java.io.File;
 import java.lang.reflect.Field;
-import java.lang.reflect.Proxy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class SchedulerManager {
     private final Plugin owningPlugin; // The plugin instance (FoliaPhantom)
     private final Logger logger;
     private FoliaSchedulerAdapter schedulerAdapter; // Renamed from foliaAdapter for clarity
+    private SyncTaskRouter syncTaskRouter;
+    private final TickClock tickClock = new TickClock();
+    private VirtualThreadAsyncBackend virtualThreadBackend;
+    private SchedulerMetrics metrics; // Null when disabled in config.yml
+    private ScheduledExecutorService metricsDumper;
+    private TaskWatchdog watchdog; // Null unless enabled in config.yml
+    private TickBudget tickBudget; // Null unless enabled in config.yml
 
     private Unsafe unsafeInstance;
     private Object serverInstance; // Typically CraftServer or similar
@@ -38,17 +50,42 @@ public class SchedulerManager {
             boolean isFolia = FoliaPhantom.isFoliaServer();
             logger.info("[Phantom] Installing scheduler proxy for " + (isFolia ? "Folia" : "Non-Folia") + " environment.");
 
-            this.schedulerAdapter = new FoliaSchedulerAdapter(this.owningPlugin);
+            boolean coalesceTimers = owningPlugin.getConfig().getBoolean("scheduler.coalesce-repeating-tasks", true);
+            boolean batchOneShots = owningPlugin.getConfig().getBoolean("scheduler.batch-one-shot-tasks", true);
+            this.schedulerAdapter = new FoliaSchedulerAdapter(this.owningPlugin, coalesceTimers ? this.tickClock : null,
+                    batchOneShots ? this.tickClock : null);
+            this.syncTaskRouter = new SyncTaskRouter(this.schedulerAdapter.getDefaultLocationCache(), logger);
+            this.virtualThreadBackend = new VirtualThreadAsyncBackend(this.owningPlugin);
+            if (owningPlugin.getConfig().getBoolean("scheduler.metrics.enabled", true)) {
+                this.metrics = new SchedulerMetrics();
+            }
+            if (isFolia && owningPlugin.getConfig().getBoolean("scheduler.tick-budget.enabled", false)) {
+                this.tickBudget = new TickBudget(this.tickClock,
+                        owningPlugin.getConfig().getLong("scheduler.tick-budget.budget-ms", 25L),
+                        owningPlugin.getConfig().getInt("scheduler.tick-budget.max-deferrals", 20), logger);
+            }
             obtainUnsafeInstance();
 
             this.originalBukkitScheduler = Bukkit.getScheduler();
-            this.proxiedBukkitScheduler = (BukkitScheduler) Proxy.newProxyInstance(
-                    BukkitScheduler.class.getClassLoader(),
-                    new Class<?>[]{BukkitScheduler.class},
-                    // Pass the detected server type to the FoliaSchedulerProxy.
-                    // This allows the proxy to adapt its behavior (e.g., pass-through on Non-Folia).
-                    new FoliaSchedulerProxy(this.originalBukkitScheduler, this.schedulerAdapter, isFolia)
-            );
+            // Pass the detected server type to the FoliaSchedulerProxy.
+            // This allows the proxy to adapt its behavior (e.g., pass-through on Non-Folia).
+            // FoliaSchedulerProxy implements BukkitScheduler directly, so no java.lang.reflect.Proxy is involved.
+            FoliaSchedulerProxy proxy = new FoliaSchedulerProxy(this.originalBukkitScheduler, this.schedulerAdapter, isFolia, this.syncTaskRouter,
+                    this.virtualThreadBackend, this.metrics, this.tickBudget);
+            this.proxiedBukkitScheduler = proxy;
+            if (owningPlugin.getConfig().getBoolean("scheduler.watchdog.enabled", false)) {
+                this.watchdog = new TaskWatchdog(proxy.getTaskRegistry(), logger,
+                        owningPlugin.getConfig().getLong("scheduler.watchdog.budget-ms", 100L),
+                        owningPlugin.getConfig().getLong("scheduler.watchdog.check-interval-ms", 250L),
+                        owningPlugin.getConfig().getInt("scheduler.watchdog.max-reports", 32));
+            }
+
+            // Wrapped plugins patched with rewrite-scheduler-calls reach the proxy through the shim directly.
+            SchedulerShim.install(proxy);
+            if (!owningPlugin.getConfig().getBoolean("scheduler.install-global-proxy", true)) {
+                logger.info("[Phantom] Global scheduler proxy disabled; only rewritten plugins use the Folia scheduler.");
+                return true;
+            }
 
             this.serverInstance = Bukkit.getServer(); // Get current server instance
 
@@ -83,6 +120,24 @@ public class SchedulerManager {
      * Restores the original BukkitScheduler.
      */
     public void restoreOriginalScheduler() {
+        tickClock.stop();
+        if (watchdog != null) {
+            watchdog.stop();
+        }
+        if (metricsDumper != null) {
+            metricsDumper.shutdownNow();
+            metricsDumper = null;
+        }
+        if (virtualThreadBackend != null) {
+            virtualThreadBackend.shutdown();
+        }
+        SchedulerShim.install(null);
+        if (serverInstance == null && proxiedBukkitScheduler != null) {
+            // The proxy was never swapped into the server (scheduler.install-global-proxy: false).
+            this.proxiedBukkitScheduler = null;
+            this.originalBukkitScheduler = null;
+            return;
+        }
         if (unsafeInstance == null || serverInstance == null || schedulerFieldInServer == null || originalBukkitScheduler == null) {
             logger.warning("[Phantom] SchedulerManager not fully initialized or already restored. Cannot restore scheduler.");
             return;
@@ -104,6 +159,8 @@ public class SchedulerManager {
             this.originalBukkitScheduler = null;
             this.proxiedBukkitScheduler = null;
             this.schedulerAdapter = null;
+            this.syncTaskRouter = null;
+            this.virtualThreadBackend = null;
             // unsafeInstance, serverInstance, schedulerFieldInServer, schedulerFieldOffset could be kept if re-installation is possible
             // but for a one-shot install/restore, nulling them out is cleaner.
         }
@@ -125,6 +182,110 @@ public class SchedulerManager {
         return null;
     }
 
+    /**
+     * Applies the per-plugin scheduling options of a wrapped plugin once it has been loaded.
+     */
+    public void configurePlugin(Plugin plugin, PluginConfig config) {
+        if (syncTaskRouter == null || plugin == null) return;
+        SyncTaskRouter.Mode mode = SyncTaskRouter.Mode.parse(config.syncRouting(), null);
+        if (mode == null) {
+            logger.warning("[Phantom][" + config.name() + "] Unknown sync-routing '" + config.syncRouting() + "', using spawn.");
+            mode = SyncTaskRouter.Mode.SPAWN;
+        }
+        syncTaskRouter.setMode(plugin.getName(), mode);
+        if (mode != SyncTaskRouter.Mode.SPAWN) {
+            logger.info("[Phantom][" + config.name() + "] Sync tasks are routed using mode " + mode + ".");
+        }
+
+        if (tickBudget != null) {
+            tickBudget.setWeight(plugin.getName(), config.tickWeight());
+        }
+
+        if (config.batchOneShotTasks()) {
+            DelayedTaskBatches batches = schedulerAdapter.getDelayedTaskBatches();
+            if (batches != null) {
+                batches.enableFor(plugin.getName());
+                logger.info("[Phantom][" + config.name() + "] One-shot sync tasks due on the same tick are batched.");
+            } else {
+                logger.warning("[Phantom][" + config.name() + "] batch-one-shot-tasks is ignored: scheduler.batch-one-shot-tasks is disabled.");
+            }
+        }
+
+        if ("virtual".equalsIgnoreCase(config.asyncBackend())) {
+            virtualThreadBackend.enableFor(plugin.getName(), config.asyncMaxConcurrency());
+            logger.info("[Phantom][" + config.name() + "] Async tasks run on virtual threads (max " + config.asyncMaxConcurrency() + " concurrent).");
+        } else if (!"folia".equalsIgnoreCase(config.asyncBackend())) {
+            logger.warning("[Phantom][" + config.name() + "] Unknown async-backend '" + config.asyncBackend() + "', using folia.");
+        }
+    }
+
+    /**
+     * Cancels every task of {@code plugin}, including those only the proxy knows about when it is not installed globally.
+     */
+    public void cancelTasks(Plugin plugin) {
+        BukkitScheduler scheduler = (proxiedBukkitScheduler != null) ? proxiedBukkitScheduler : Bukkit.getScheduler();
+        scheduler.cancelTasks(plugin);
+    }
+
+    /**
+     * Starts the parts of the scheduler that need FoliaPhantom to be enabled: event listeners and, on Folia,
+     * the tick clock. Must be called from onEnable, since Bukkit and Folia reject both for disabled plugins.
+     */
+    public void enable() {
+        if (schedulerAdapter == null) return;
+        owningPlugin.getServer().getPluginManager().registerEvents(schedulerAdapter.getDefaultLocationCache(), owningPlugin);
+        if (FoliaPhantom.isFoliaServer()) {
+            tickClock.start(owningPlugin);
+        }
+        startMetricsDump();
+        if (watchdog != null) {
+            watchdog.start();
+        }
+    }
+
+    /**
+     * Periodically writes the metrics report to the data folder, if configured.
+     */
+    private void startMetricsDump() {
+        long intervalSeconds = owningPlugin.getConfig().getLong("scheduler.metrics.dump-interval-seconds", 300L);
+        if (metrics == null || intervalSeconds <= 0 || metricsDumper != null) return;
+        File dumpFile = new File(owningPlugin.getDataFolder(), owningPlugin.getConfig().getString("scheduler.metrics.dump-file", "metrics/scheduler-metrics.txt"));
+        SchedulerMetrics dumpedMetrics = this.metrics;
+        metricsDumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FoliaPhantom-MetricsDump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metricsDumper.scheduleAtFixedRate(() -> {
+            try {
+                dumpedMetrics.dump(dumpFile);
+            } catch (Exception e) {
+                logger.warning("[Phantom] Failed to write scheduler metrics to " + dumpFile + ": " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the scheduler metrics, or null if they are disabled
+     */
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the scheduler proxy's task registry, or null if the proxy is not installed
+     */
+    public TaskRegistry getTaskRegistry() {
+        return (proxiedBukkitScheduler instanceof FoliaSchedulerProxy proxy) ? proxy.getTaskRegistry() : null;
+    }
+
+    /**
+     * @return the task watchdog, or null if it is disabled
+     */
+    public TaskWatchdog getWatchdog() {
+        return watchdog;
+    }
+
     // Getter for the adapter if other parts of FoliaPhantom need it (e.g. for direct Folia scheduling)
     // This might not be needed if all scheduling is meant to go through the proxy.
     public FoliaSchedulerAdapter getSchedulerAdapter() {
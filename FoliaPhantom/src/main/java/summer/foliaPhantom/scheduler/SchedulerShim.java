@@ -0,0 +1,309 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scheduler.BukkitWorker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Static entry points that {@code BukkitScheduler} and {@code BukkitRunnable} call sites in wrapped plugins are
+ * rewritten to at patch time (see {@code summer.foliaPhantom.jar.SchedulerCallRewriter}).
+ * <p>
+ * Every method takes the object the plugin was about to call as its first argument. Scheduler methods forward to
+ * the installed {@link FoliaSchedulerProxy} instead, or to that scheduler unchanged if no proxy is installed.
+ * {@code BukkitRunnable} methods re-implement {@code runTask*} and {@code cancel()} against the proxy, since the
+ * originals always go through {@code Bukkit.getScheduler()}. The rewriter matches methods by name and descriptor,
+ * so a method is redirected exactly when it is declared here.
+ */
+public final class SchedulerShim {
+    private static volatile BukkitScheduler target;
+    private static final VarHandle RUNNABLE_TASK = findRunnableTaskField();
+
+    private SchedulerShim() {
+    }
+
+    /**
+     * Routes rewritten call sites to {@code scheduler}, or back to the server's scheduler when null.
+     */
+    public static void install(BukkitScheduler scheduler) {
+        target = scheduler;
+    }
+
+    private static BukkitScheduler target(BukkitScheduler scheduler) {
+        BukkitScheduler installed = target;
+        return installed != null ? installed : scheduler;
+    }
+
+    // --- BukkitRunnable ---
+
+    public static BukkitTask runTask(BukkitRunnable runnable, Plugin plugin) {
+        if (RUNNABLE_TASK == null) return runnable.runTask(plugin);
+        synchronized (runnable) {
+            checkNotYetScheduled(runnable);
+            return setupTask(runnable, runnableScheduler().runTask(plugin, (Runnable) runnable));
+        }
+    }
+
+    public static BukkitTask runTaskAsynchronously(BukkitRunnable runnable, Plugin plugin) {
+        if (RUNNABLE_TASK == null) return runnable.runTaskAsynchronously(plugin);
+        synchronized (runnable) {
+            checkNotYetScheduled(runnable);
+            return setupTask(runnable, runnableScheduler().runTaskAsynchronously(plugin, (Runnable) runnable));
+        }
+    }
+
+    public static BukkitTask runTaskLater(BukkitRunnable runnable, Plugin plugin, long delay) {
+        if (RUNNABLE_TASK == null) return runnable.runTaskLater(plugin, delay);
+        synchronized (runnable) {
+            checkNotYetScheduled(runnable);
+            return setupTask(runnable, runnableScheduler().runTaskLater(plugin, (Runnable) runnable, delay));
+        }
+    }
+
+    public static BukkitTask runTaskLaterAsynchronously(BukkitRunnable runnable, Plugin plugin, long delay) {
+        if (RUNNABLE_TASK == null) return runnable.runTaskLaterAsynchronously(plugin, delay);
+        synchronized (runnable) {
+            checkNotYetScheduled(runnable);
+            return setupTask(runnable, runnableScheduler().runTaskLaterAsynchronously(plugin, (Runnable) runnable, delay));
+        }
+    }
+
+    public static BukkitTask runTaskTimer(BukkitRunnable runnable, Plugin plugin, long delay, long period) {
+        if (RUNNABLE_TASK == null) return runnable.runTaskTimer(plugin, delay, period);
+        synchronized (runnable) {
+            checkNotYetScheduled(runnable);
+            return setupTask(runnable, runnableScheduler().runTaskTimer(plugin, (Runnable) runnable, delay, period));
+        }
+    }
+
+    public static BukkitTask runTaskTimerAsynchronously(BukkitRunnable runnable, Plugin plugin, long delay, long period) {
+        if (RUNNABLE_TASK == null) return runnable.runTaskTimerAsynchronously(plugin, delay, period);
+        synchronized (runnable) {
+            checkNotYetScheduled(runnable);
+            return setupTask(runnable, runnableScheduler().runTaskTimerAsynchronously(plugin, (Runnable) runnable, delay, period));
+        }
+    }
+
+    /**
+     * Cancels the task backing {@code runnable} through its handle, which reaches the Folia task directly.
+     */
+    public static void cancel(BukkitRunnable runnable) {
+        if (RUNNABLE_TASK == null) {
+            runnable.cancel();
+            return;
+        }
+        if (target == null) {
+            Bukkit.getScheduler().cancelTask(runnable.getTaskId()); // What BukkitRunnable.cancel() does
+            return;
+        }
+        BukkitTask task;
+        synchronized (runnable) {
+            task = (BukkitTask) RUNNABLE_TASK.get(runnable);
+        }
+        if (task == null) {
+            throw new IllegalStateException("Not scheduled yet");
+        }
+        task.cancel();
+    }
+
+    /**
+     * The scheduler a runnable method schedules on. Without an installed proxy this is what the original
+     * implementation uses; calling back into the runnable instead would make a rewritten {@code super.m()} call
+     * land in the overriding {@code m()} again.
+     */
+    private static BukkitScheduler runnableScheduler() {
+        BukkitScheduler installed = target;
+        return installed != null ? installed : Bukkit.getScheduler();
+    }
+
+    private static void checkNotYetScheduled(BukkitRunnable runnable) {
+        BukkitTask task = (BukkitTask) RUNNABLE_TASK.get(runnable);
+        if (task != null) {
+            throw new IllegalStateException("Already scheduled as " + task.getTaskId());
+        }
+    }
+
+    private static BukkitTask setupTask(BukkitRunnable runnable, BukkitTask task) {
+        RUNNABLE_TASK.set(runnable, task);
+        return task;
+    }
+
+    /**
+     * @return a handle on {@code BukkitRunnable.task}, or null if this Bukkit version does not have that field,
+     *         in which case every runnable method falls back to the original implementation
+     */
+    private static VarHandle findRunnableTaskField() {
+        try {
+            return MethodHandles.privateLookupIn(BukkitRunnable.class, MethodHandles.lookup())
+                    .findVarHandle(BukkitRunnable.class, "task", BukkitTask.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Bukkit.getLogger().warning("[PhantomScheduler] BukkitRunnable.task is not accessible (" + e
+                    + "); rewritten BukkitRunnable calls use the server scheduler.");
+            return null;
+        }
+    }
+
+    // --- BukkitScheduler ---
+
+    public static int scheduleSyncDelayedTask(BukkitScheduler scheduler, Plugin plugin, Runnable task, long delay) {
+        return target(scheduler).scheduleSyncDelayedTask(plugin, task, delay);
+    }
+
+    @Deprecated
+    public static int scheduleSyncDelayedTask(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task, long delay) {
+        return target(scheduler).scheduleSyncDelayedTask(plugin, task, delay);
+    }
+
+    public static int scheduleSyncDelayedTask(BukkitScheduler scheduler, Plugin plugin, Runnable task) {
+        return target(scheduler).scheduleSyncDelayedTask(plugin, task);
+    }
+
+    @Deprecated
+    public static int scheduleSyncDelayedTask(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task) {
+        return target(scheduler).scheduleSyncDelayedTask(plugin, task);
+    }
+
+    public static int scheduleSyncRepeatingTask(BukkitScheduler scheduler, Plugin plugin, Runnable task, long delay, long period) {
+        return target(scheduler).scheduleSyncRepeatingTask(plugin, task, delay, period);
+    }
+
+    @Deprecated
+    public static int scheduleSyncRepeatingTask(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task, long delay, long period) {
+        return target(scheduler).scheduleSyncRepeatingTask(plugin, task, delay, period);
+    }
+
+    @Deprecated
+    public static int scheduleAsyncDelayedTask(BukkitScheduler scheduler, Plugin plugin, Runnable task, long delay) {
+        return target(scheduler).scheduleAsyncDelayedTask(plugin, task, delay);
+    }
+
+    @Deprecated
+    public static int scheduleAsyncDelayedTask(BukkitScheduler scheduler, Plugin plugin, Runnable task) {
+        return target(scheduler).scheduleAsyncDelayedTask(plugin, task);
+    }
+
+    @Deprecated
+    public static int scheduleAsyncRepeatingTask(BukkitScheduler scheduler, Plugin plugin, Runnable task, long delay, long period) {
+        return target(scheduler).scheduleAsyncRepeatingTask(plugin, task, delay, period);
+    }
+
+    public static <T> Future<T> callSyncMethod(BukkitScheduler scheduler, Plugin plugin, Callable<T> task) {
+        return target(scheduler).callSyncMethod(plugin, task);
+    }
+
+    public static void cancelTask(BukkitScheduler scheduler, int taskId) {
+        target(scheduler).cancelTask(taskId);
+    }
+
+    public static void cancelTasks(BukkitScheduler scheduler, Plugin plugin) {
+        target(scheduler).cancelTasks(plugin);
+    }
+
+    public static boolean isCurrentlyRunning(BukkitScheduler scheduler, int taskId) {
+        return target(scheduler).isCurrentlyRunning(taskId);
+    }
+
+    public static boolean isQueued(BukkitScheduler scheduler, int taskId) {
+        return target(scheduler).isQueued(taskId);
+    }
+
+    public static List<BukkitWorker> getActiveWorkers(BukkitScheduler scheduler) {
+        return target(scheduler).getActiveWorkers();
+    }
+
+    public static List<BukkitTask> getPendingTasks(BukkitScheduler scheduler) {
+        return target(scheduler).getPendingTasks();
+    }
+
+    public static BukkitTask runTask(BukkitScheduler scheduler, Plugin plugin, Runnable task) {
+        return target(scheduler).runTask(plugin, task);
+    }
+
+    public static void runTask(BukkitScheduler scheduler, Plugin plugin, Consumer<? super BukkitTask> task) {
+        target(scheduler).runTask(plugin, task);
+    }
+
+    @Deprecated
+    public static BukkitTask runTask(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task) {
+        return target(scheduler).runTask(plugin, task);
+    }
+
+    public static BukkitTask runTaskAsynchronously(BukkitScheduler scheduler, Plugin plugin, Runnable task) {
+        return target(scheduler).runTaskAsynchronously(plugin, task);
+    }
+
+    public static void runTaskAsynchronously(BukkitScheduler scheduler, Plugin plugin, Consumer<? super BukkitTask> task) {
+        target(scheduler).runTaskAsynchronously(plugin, task);
+    }
+
+    @Deprecated
+    public static BukkitTask runTaskAsynchronously(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task) {
+        return target(scheduler).runTaskAsynchronously(plugin, task);
+    }
+
+    public static BukkitTask runTaskLater(BukkitScheduler scheduler, Plugin plugin, Runnable task, long delay) {
+        return target(scheduler).runTaskLater(plugin, task, delay);
+    }
+
+    public static void runTaskLater(BukkitScheduler scheduler, Plugin plugin, Consumer<? super BukkitTask> task, long delay) {
+        target(scheduler).runTaskLater(plugin, task, delay);
+    }
+
+    @Deprecated
+    public static BukkitTask runTaskLater(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task, long delay) {
+        return target(scheduler).runTaskLater(plugin, task, delay);
+    }
+
+    public static BukkitTask runTaskLaterAsynchronously(BukkitScheduler scheduler, Plugin plugin, Runnable task, long delay) {
+        return target(scheduler).runTaskLaterAsynchronously(plugin, task, delay);
+    }
+
+    public static void runTaskLaterAsynchronously(BukkitScheduler scheduler, Plugin plugin, Consumer<? super BukkitTask> task, long delay) {
+        target(scheduler).runTaskLaterAsynchronously(plugin, task, delay);
+    }
+
+    @Deprecated
+    public static BukkitTask runTaskLaterAsynchronously(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task, long delay) {
+        return target(scheduler).runTaskLaterAsynchronously(plugin, task, delay);
+    }
+
+    public static BukkitTask runTaskTimer(BukkitScheduler scheduler, Plugin plugin, Runnable task, long delay, long period) {
+        return target(scheduler).runTaskTimer(plugin, task, delay, period);
+    }
+
+    public static void runTaskTimer(BukkitScheduler scheduler, Plugin plugin, Consumer<? super BukkitTask> task, long delay, long period) {
+        target(scheduler).runTaskTimer(plugin, task, delay, period);
+    }
+
+    @Deprecated
+    public static BukkitTask runTaskTimer(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task, long delay, long period) {
+        return target(scheduler).runTaskTimer(plugin, task, delay, period);
+    }
+
+    public static BukkitTask runTaskTimerAsynchronously(BukkitScheduler scheduler, Plugin plugin, Runnable task, long delay, long period) {
+        return target(scheduler).runTaskTimerAsynchronously(plugin, task, delay, period);
+    }
+
+    public static void runTaskTimerAsynchronously(BukkitScheduler scheduler, Plugin plugin, Consumer<? super BukkitTask> task, long delay, long period) {
+        target(scheduler).runTaskTimerAsynchronously(plugin, task, delay, period);
+    }
+
+    @Deprecated
+    public static BukkitTask runTaskTimerAsynchronously(BukkitScheduler scheduler, Plugin plugin, BukkitRunnable task, long delay, long period) {
+        return target(scheduler).runTaskTimerAsynchronously(plugin, task, delay, period);
+    }
+
+    public static Executor getMainThreadExecutor(BukkitScheduler scheduler, Plugin plugin) {
+        return target(scheduler).getMainThreadExecutor(plugin);
+    }
+}
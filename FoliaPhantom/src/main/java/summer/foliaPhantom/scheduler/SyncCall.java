@@ -0,0 +1,98 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import summer.foliaPhantom.metrics.TaskStats;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The {@link java.util.concurrent.Future} returned by {@code callSyncMethod}, and the body of the sync task that
+ * completes it. Nothing waits on a thread: the task completes the future when it runs, so async callers only block
+ * for as long as they choose to in {@link #get()}.
+ * <p>
+ * Waiting in {@code get()} from a tick thread stalls that region, or deadlocks it if the call was routed to the
+ * same region; such waits are counted in the metrics and logged with the caller. Cancelling the future cancels
+ * the task and vice versa, so {@code cancelTasks} on a disabled plugin releases its waiting callers.
+ */
+final class SyncCall<T> extends CompletableFuture<T> implements Runnable {
+    private final Plugin plugin;
+    private final Callable<T> callable;
+    private final RateLimitedLogger rateLimitedLogger;
+    private final TaskStats stats; // Null when metrics are disabled
+    private volatile BukkitTask task; // Set right after the task is created
+
+    SyncCall(Plugin plugin, Callable<T> callable, RateLimitedLogger rateLimitedLogger, TaskStats stats) {
+        this.plugin = plugin;
+        this.callable = callable;
+        this.rateLimitedLogger = rateLimitedLogger;
+        this.stats = stats;
+    }
+
+    void bindTask(BukkitTask task) {
+        this.task = task;
+        if (isCancelled()) task.cancel();
+    }
+
+    Callable<T> getCallable() {
+        return callable;
+    }
+
+    @Override
+    public void run() {
+        if (isDone()) return; // Cancelled before it ran
+        try {
+            complete(callable.call());
+        } catch (Throwable t) {
+            completeExceptionally(t);
+        }
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        checkBlocking();
+        return super.get();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        checkBlocking();
+        return super.get(timeout, unit);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (isDone()) return isCancelled(); // Also ends the cancel() round trip through the task
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        BukkitTask task = this.task;
+        if (cancelled && task != null) {
+            task.cancel();
+        }
+        return cancelled;
+    }
+
+    /**
+     * On Folia, {@code isPrimaryThread()} is true on every region and global tick thread.
+     */
+    private void checkBlocking() {
+        if (isDone() || !plugin.getServer().isPrimaryThread()) return;
+        if (stats != null) stats.recordBlockingGet();
+        String threadName = Thread.currentThread().getName();
+        rateLimitedLogger.warning("blocking-get-" + plugin.getName(), () -> "[PhantomScheduler] " + plugin.getName()
+                + " waits for a callSyncMethod result on tick thread '" + threadName + "' at " + callerFrame()
+                + "; the region stalls until it completes, or forever if it was routed to this region.");
+    }
+
+    private static String callerFrame() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !frame.getClassName().startsWith(SyncCall.class.getPackageName() + ".")
+                        && !frame.getClassName().startsWith("java."))
+                .findFirst()
+                .map(StackWalker.StackFrame::toString)
+                .orElse("<unknown>"));
+    }
+}
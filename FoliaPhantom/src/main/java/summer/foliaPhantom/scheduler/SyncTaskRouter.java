@@ -0,0 +1,278 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Decides which Folia region a legacy "sync" task runs on.
+ * <p>
+ * Each plugin gets a {@link Mode} (configured per wrapped plugin via {@code sync-routing} in config.yml,
+ * {@link Mode#SPAWN} otherwise). {@link #route} returns the location whose region should run the task,
+ * or null to run it on the global region.
+ */
+public class SyncTaskRouter {
+    private static final long ANCHOR_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long CONTEXT_MISS_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(50); // One tick
+    private static final int ANCHOR_GRID_RADIUS = 1; // A 3x3 grid of anchors per world
+    private static final int ANCHOR_SPACING_CHUNKS = 64; // Far enough apart that Folia keeps them in separate regions
+
+    public enum Mode {
+        /** Everything on the spawn region of the primary world (the historical behavior). */
+        SPAWN,
+        /** Everything on the GlobalRegionScheduler. */
+        GLOBAL,
+        /** Each plugin is pinned to one region from a fixed grid around every world's spawn, chosen by hashing its name. */
+        HASHED,
+        /** The region of the calling thread when scheduled from a region thread, spawn otherwise. */
+        CONTEXT,
+        /** The entity's own scheduler for tasks that hold an entity (see {@link #entityFor}), CONTEXT otherwise. */
+        ENTITY;
+
+        public static Mode parse(String value, Mode fallback) {
+            if (value == null) return fallback;
+            try {
+                return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return fallback;
+            }
+        }
+    }
+
+    private final DefaultLocationCache defaultLocationCache;
+    private final RateLimitedLogger rateLimitedLogger;
+    private final Map<String, Mode> modes = new ConcurrentHashMap<>();
+    private final ThreadLocal<ContextCache> contextCache = new ThreadLocal<>(); // Region threads only
+    private final Map<String, Location> hashedPins = new ConcurrentHashMap<>();
+    private volatile Anchors anchors; // Null until the first HASHED route
+
+    /**
+     * Anchor locations for {@link Mode#HASHED}: a grid of chunks around the spawn of each loaded world, worlds sorted
+     * by name and each grid in a fixed order, so the same worlds give the same order on every refresh and restart.
+     */
+    private record Anchors(Location[] locations, long refreshedAt) {
+    }
+
+    /**
+     * What {@link #currentRegionLocation} last found on this thread.
+     */
+    private static final class ContextCache {
+        Location anchor; // Last location owned by the region this thread was ticking; revalidated on every use
+        long nextWalkAt = System.nanoTime(); // Before this, a walk that found nothing is not repeated
+    }
+
+    public SyncTaskRouter(DefaultLocationCache defaultLocationCache, Logger logger) {
+        this.defaultLocationCache = defaultLocationCache;
+        this.rateLimitedLogger = new RateLimitedLogger(logger, 60, TimeUnit.SECONDS);
+    }
+
+    public void setMode(String pluginName, Mode mode) {
+        if (mode == Mode.SPAWN) {
+            modes.remove(pluginName);
+        } else {
+            modes.put(pluginName, mode);
+        }
+    }
+
+    public Mode modeOf(Plugin plugin) {
+        if (modes.isEmpty()) return Mode.SPAWN;
+        Mode mode = modes.get(plugin.getName());
+        return mode != null ? mode : Mode.SPAWN;
+    }
+
+    /**
+     * @param plugin    the plugin scheduling the task
+     * @param repeating whether the task is a timer; timers never follow the calling region
+     * @return the location whose region should run the task, or null for the global region
+     */
+    public Location route(Plugin plugin, boolean repeating) {
+        switch (modeOf(plugin)) {
+            case GLOBAL:
+                return null;
+            case HASHED:
+                return hashed(plugin);
+            case CONTEXT:
+            case ENTITY:
+                Location context = repeating ? null : currentRegionLocation();
+                return context != null ? context : spawn(plugin);
+            case SPAWN:
+            default:
+                return spawn(plugin);
+        }
+    }
+
+    /**
+     * Finds the entity a task belongs to, for plugins in {@link Mode#ENTITY}: the first entity held in a field of
+     * the task's runnable, which covers lambdas capturing a player and BukkitRunnable subclasses with an entity field.
+     *
+     * @param taskBody the plugin's runnable or consumer
+     * @return the entity whose scheduler should run the task, or null to route by {@link #route}
+     */
+    public Entity entityFor(Plugin plugin, Object taskBody) {
+        if (taskBody == null || modeOf(plugin) != Mode.ENTITY) return null;
+        for (Field field : ENTITY_FIELDS.get(taskBody.getClass())) {
+            try {
+                Object value = field.get(taskBody);
+                if (value != null) return (Entity) value;
+            } catch (IllegalAccessException e) {
+                // Made accessible when indexed; cannot happen
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Instance fields of a task class (and its superclasses) that can hold an entity, made accessible once per class.
+     */
+    private static final ClassValue<Field[]> ENTITY_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || !Entity.class.isAssignableFrom(field.getType())) continue;
+                    try {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    } catch (RuntimeException e) {
+                        // Inaccessible (e.g. a class in a named module); such tasks are routed by region
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private Location spawn(Plugin plugin) {
+        Location location = defaultLocationCache.get();
+        if (location == null) {
+            rateLimitedLogger.warning("no-spawn", () -> "[PhantomScheduler] No default location is available for plugin " +
+                    plugin.getName() + "; its sync tasks run on the GlobalRegionScheduler.");
+        }
+        return location;
+    }
+
+    /**
+     * Pins the plugin to one anchor on first use and keeps it there until that anchor's world unloads, so every
+     * sync task of the plugin runs on the same region.
+     */
+    private Location hashed(Plugin plugin) {
+        Anchors current = anchors;
+        if (current == null || System.nanoTime() - current.refreshedAt() > ANCHOR_REFRESH_NANOS) {
+            current = refreshAnchors();
+        }
+        String name = plugin.getName();
+        Location pinned = hashedPins.get(name);
+        if (pinned != null) {
+            return pinned;
+        }
+        Location[] locations = current.locations();
+        if (locations.length == 0) {
+            return spawn(plugin);
+        }
+        Location anchor = locations[Math.floorMod(spread(name.hashCode()), locations.length)];
+        Location raced = hashedPins.putIfAbsent(name, anchor);
+        return raced != null ? raced : anchor;
+    }
+
+    /**
+     * Mixes a string hash so that names differing only in their last character (Plugin1, Plugin2) do not land on
+     * neighbouring anchors of the same world. Deterministic, as {@link String#hashCode} is.
+     */
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private synchronized Anchors refreshAnchors() {
+        Anchors current = anchors;
+        long now = System.nanoTime();
+        if (current != null && now - current.refreshedAt() <= ANCHOR_REFRESH_NANOS) {
+            return current; // Another thread refreshed while we waited
+        }
+        List<World> worlds;
+        try {
+            worlds = new ArrayList<>(Bukkit.getWorlds());
+        } catch (Exception e) {
+            rateLimitedLogger.warning("anchors", () -> "[PhantomScheduler] Failed to refresh hashed routing anchors: " + e);
+            worlds = List.of();
+        }
+        worlds.sort(Comparator.comparing(World::getName));
+        List<Location> locations = new ArrayList<>();
+        Set<UUID> loaded = new HashSet<>();
+        for (World world : worlds) {
+            addAnchorGrid(world.getSpawnLocation(), locations);
+            loaded.add(world.getUID());
+        }
+        // Only plugins pinned to a world that is gone are moved; everyone else keeps their region.
+        hashedPins.values().removeIf(pin -> pin.getWorld() == null || !loaded.contains(pin.getWorld().getUID()));
+        Anchors refreshed = new Anchors(locations.toArray(new Location[0]), now);
+        anchors = refreshed;
+        return refreshed;
+    }
+
+    /**
+     * Adds the centre of every chunk on a square grid around {@code spawn}'s chunk, row by row, spawn's chunk included.
+     */
+    private static void addAnchorGrid(Location spawn, List<Location> locations) {
+        int spawnChunkX = spawn.getBlockX() >> 4;
+        int spawnChunkZ = spawn.getBlockZ() >> 4;
+        for (int dz = -ANCHOR_GRID_RADIUS; dz <= ANCHOR_GRID_RADIUS; dz++) {
+            for (int dx = -ANCHOR_GRID_RADIUS; dx <= ANCHOR_GRID_RADIUS; dx++) {
+                int chunkX = spawnChunkX + dx * ANCHOR_SPACING_CHUNKS;
+                int chunkZ = spawnChunkZ + dz * ANCHOR_SPACING_CHUNKS;
+                locations.add(new Location(spawn.getWorld(), (chunkX << 4) + 8, spawn.getY(), (chunkZ << 4) + 8));
+            }
+        }
+    }
+
+    /**
+     * Finds a location owned by the region the current thread is ticking, or null when not on a region thread.
+     * <p>
+     * The location found last is checked first, which is a single ownership query while the thread keeps ticking
+     * the same region. Only when it is stale are the online players walked, and a walk that finds nobody in the
+     * region is not repeated on this thread for a tick, so a region without players never pays for a walk per call.
+     */
+    private Location currentRegionLocation() {
+        ContextCache cache = contextCache.get();
+        if (cache != null && cache.anchor != null && Bukkit.isOwnedByCurrentRegion(cache.anchor)) {
+            return cache.anchor;
+        }
+        if (!Bukkit.isPrimaryThread()) {
+            return null; // Async caller: there is no calling region
+        }
+        if (cache == null) {
+            cache = new ContextCache();
+            contextCache.set(cache);
+        }
+        long now = System.nanoTime();
+        if (now - cache.nextWalkAt < 0) {
+            return null;
+        }
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (Bukkit.isOwnedByCurrentRegion(player)) {
+                cache.anchor = player.getLocation();
+                return cache.anchor;
+            }
+        }
+        cache.nextWalkAt = now + CONTEXT_MISS_BACKOFF_NANOS;
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+package summer.foliaPhantom.scheduler;
+
+import java.util.logging.Level;
+
+/**
+ * Reports exceptions thrown by plugin tasks that FoliaPhantom runs itself (coalesced timers, batched one-shots),
+ * where Folia never sees the exception and so cannot log it.
+ */
+final class TaskFailures {
+    private TaskFailures() {
+    }
+
+    /**
+     * Logs {@code thrown} with its stack trace at SEVERE, the way Bukkit reports a failing task. Repeats are
+     * rate-limited per plugin and task class only, so one plugin's failing task never hides another's.
+     *
+     * @param outcome what happens to the task now, appended to the message
+     */
+    static void report(RateLimitedLogger logger, Runnable task, Throwable thrown, String outcome) {
+        String key;
+        String description;
+        if (task instanceof FoliaBukkitTask handle) {
+            String owner = (handle.getOwner() != null) ? handle.getOwner().getName() : "unknown plugin";
+            key = owner + "/" + handle.getTaskClass().getName();
+            description = "Task #" + handle.getTaskId() + " for " + owner;
+        } else {
+            key = task.getClass().getName();
+            description = "Task " + task;
+        }
+        logger.log(Level.SEVERE, key, () -> "[PhantomScheduler] " + description + " generated an exception; " + outcome,
+                thrown);
+    }
+}
@@ -0,0 +1,191 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks every task scheduled through {@link FoliaSchedulerProxy} by its Bukkit task id.
+ * <p>
+ * Ids come from a single atomic counter, so concurrent region threads never hand out duplicates.
+ * Entries live in striped primitive-keyed maps and are evicted as soon as the task can no longer run:
+ * one-shot tasks remove themselves after executing, cancelled tasks are removed by the proxy, and
+ * an amortized sweep catches tasks that Folia finished or cancelled behind our back (e.g. on plugin disable).
+ * <p>
+ * A secondary index from owning plugin to its live tasks is kept in step with the id maps, so per-plugin
+ * queries and cancellation cost O(tasks of that plugin). A plugin's index entry is dropped as soon as it
+ * has no live tasks, so the registry never pins a disabled plugin.
+ */
+public class TaskRegistry {
+    static final int FIRST_TASK_ID = 1000; // Start from a higher number to avoid collision with vanilla tasks
+    private static final int STRIPES = 16; // Power of two
+    private static final int SWEEP_INTERVAL = 4096; // Sweep one stripe every N registrations
+
+    private final AtomicInteger idCounter;
+    private final IntTaskMap[] stripes = new IntTaskMap[STRIPES];
+    private final AtomicInteger sweepCursor = new AtomicInteger();
+    private final ConcurrentHashMap<Plugin, IntTaskMap> tasksByPlugin = new ConcurrentHashMap<>();
+
+    public TaskRegistry() {
+        this(FIRST_TASK_ID);
+    }
+
+    /**
+     * @param nextId the first id to hand out, e.g. close to {@link Integer#MAX_VALUE} to exercise the wraparound
+     */
+    TaskRegistry(int nextId) {
+        this.idCounter = new AtomicInteger(nextId);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new IntTaskMap();
+        }
+    }
+
+    /**
+     * Allocates a task id that is not currently in use. Ids wrap back to {@link #FIRST_TASK_ID}
+     * instead of overflowing, skipping any id still held by a live task.
+     */
+    public int allocateId() {
+        while (true) {
+            int id = idCounter.getAndIncrement();
+            if (id < FIRST_TASK_ID) {
+                // Counter overflowed; only one thread needs to win the reset.
+                idCounter.compareAndSet(id + 1, FIRST_TASK_ID);
+                continue;
+            }
+            if (stripeFor(id).get(id) == null) {
+                return id;
+            }
+        }
+    }
+
+    public void register(FoliaBukkitTask task) {
+        int id = task.getTaskId();
+        stripeFor(id).put(id, task);
+        // compute() holds the bin lock, so this cannot race with unindex() dropping an emptied map.
+        tasksByPlugin.compute(task.getOwner(), (plugin, tasks) -> {
+            if (tasks == null) tasks = new IntTaskMap();
+            tasks.put(id, task);
+            return tasks;
+        });
+        if ((id & (SWEEP_INTERVAL - 1)) == 0) {
+            sweepStripe(sweepCursor.getAndIncrement() & (STRIPES - 1));
+        }
+    }
+
+    public FoliaBukkitTask get(int taskId) {
+        return stripeFor(taskId).get(taskId);
+    }
+
+    /**
+     * Removes the task registered under {@code taskId}.
+     *
+     * @return the removed handle, or null if the id is not ours
+     */
+    public FoliaBukkitTask remove(int taskId) {
+        FoliaBukkitTask removed = stripeFor(taskId).remove(taskId, null);
+        if (removed != null) {
+            unindex(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes {@code task} only if its id still maps to that exact handle.
+     */
+    public boolean remove(FoliaBukkitTask task) {
+        int id = task.getTaskId();
+        if (stripeFor(id).remove(id, task) == null) {
+            return false;
+        }
+        unindex(task);
+        return true;
+    }
+
+    /**
+     * Removes and returns every live task owned by {@code plugin}.
+     */
+    public List<FoliaBukkitTask> removeAll(Plugin plugin) {
+        IntTaskMap tasks = tasksByPlugin.remove(plugin);
+        if (tasks == null) {
+            return Collections.emptyList();
+        }
+        List<FoliaBukkitTask> removed = tasks.values();
+        for (FoliaBukkitTask task : removed) {
+            stripeFor(task.getTaskId()).remove(task.getTaskId(), task);
+        }
+        return removed;
+    }
+
+    public List<FoliaBukkitTask> tasksOf(Plugin plugin) {
+        IntTaskMap tasks = tasksByPlugin.get(plugin);
+        return tasks != null ? tasks.values() : Collections.emptyList();
+    }
+
+    public int sizeOf(Plugin plugin) {
+        IntTaskMap tasks = tasksByPlugin.get(plugin);
+        return tasks != null ? tasks.size() : 0;
+    }
+
+    public int size() {
+        int total = 0;
+        for (IntTaskMap stripe : stripes) {
+            total += stripe.size();
+        }
+        return total;
+    }
+
+    public List<FoliaBukkitTask> snapshot() {
+        List<FoliaBukkitTask> out = new ArrayList<>(size());
+        for (IntTaskMap tasks : tasksByPlugin.values()) {
+            tasks.collectValues(out);
+        }
+        return out;
+    }
+
+    /**
+     * Removes every entry whose Folia task has reached {@code FINISHED} or {@code CANCELLED}.
+     *
+     * @return the number of evicted entries
+     */
+    public int purgeCompleted() {
+        int removed = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            removed += sweepStripe(i);
+        }
+        return removed;
+    }
+
+    private int sweepStripe(int index) {
+        IntTaskMap stripe = stripes[index];
+        int removed = 0;
+        for (FoliaBukkitTask task : stripe.values()) {
+            if (isDone(task.getScheduledTask()) && stripe.remove(task.getTaskId(), task) != null) {
+                unindex(task);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    static boolean isDone(ScheduledTask scheduledTask) {
+        if (scheduledTask == null) return false; // Not bound yet, still being submitted
+        ScheduledTask.ExecutionState state = scheduledTask.getExecutionState();
+        return state == ScheduledTask.ExecutionState.FINISHED || state == ScheduledTask.ExecutionState.CANCELLED;
+    }
+
+    private void unindex(FoliaBukkitTask task) {
+        tasksByPlugin.computeIfPresent(task.getOwner(), (plugin, tasks) -> {
+            tasks.remove(task.getTaskId(), task);
+            return tasks.size() == 0 ? null : tasks;
+        });
+    }
+
+    private IntTaskMap stripeFor(int taskId) {
+        return stripes[taskId & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,130 @@
+package summer.foliaPhantom.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Detects sync tasks that hold a region thread for longer than a budget.
+ * <p>
+ * A task only publishes the time its current run started ({@link FoliaBukkitTask#getRunStartNanos()});
+ * everything else happens on one background thread, which periodically scans the registry for runs
+ * older than the budget, samples the stack of the thread executing them and keeps the most recent
+ * reports for {@code /phantom watchdog}. Each run is reported at most once.
+ */
+public class TaskWatchdog {
+    private static final int LOGGED_FRAMES = 8;
+
+    private final TaskRegistry taskRegistry;
+    private final Logger logger;
+    private final RateLimitedLogger rateLimitedLogger;
+    private final long budgetNanos;
+    private final long checkIntervalMillis;
+    private final int maxReports;
+    private final ArrayDeque<Report> reports = new ArrayDeque<>(); // Guarded by itself
+    private volatile Thread samplerThread;
+
+    /**
+     * One overrun: which task, how long it had been running when sampled, and what it was doing.
+     */
+    public record Report(long timestampMillis, String pluginName, int taskId, String taskClass, String threadName,
+                         long elapsedMillis, StackTraceElement[] stack) {
+    }
+
+    public TaskWatchdog(TaskRegistry taskRegistry, Logger logger, long budgetMillis, long checkIntervalMillis, int maxReports) {
+        this.taskRegistry = taskRegistry;
+        this.logger = logger;
+        this.rateLimitedLogger = new RateLimitedLogger(logger, 30, TimeUnit.SECONDS);
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, budgetMillis));
+        this.checkIntervalMillis = Math.max(10L, checkIntervalMillis);
+        this.maxReports = Math.max(1, maxReports);
+    }
+
+    public synchronized void start() {
+        if (samplerThread != null) return;
+        Thread thread = new Thread(this::loop, "FoliaPhantom-Watchdog");
+        thread.setDaemon(true);
+        samplerThread = thread;
+        thread.start();
+        logger.info("[Phantom] Task watchdog started (budget " + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + "ms).");
+    }
+
+    public synchronized void stop() {
+        Thread thread = samplerThread;
+        samplerThread = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public long getBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(budgetNanos);
+    }
+
+    /**
+     * @return the retained reports, most recent first
+     */
+    public List<Report> getReports() {
+        synchronized (reports) {
+            return new ArrayList<>(reports);
+        }
+    }
+
+    public void clearReports() {
+        synchronized (reports) {
+            reports.clear();
+        }
+    }
+
+    private void loop() {
+        Thread self = Thread.currentThread();
+        while (samplerThread == self) {
+            try {
+                Thread.sleep(checkIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                check();
+            } catch (Throwable t) {
+                rateLimitedLogger.warning("watchdog-error", () -> "[Phantom] Task watchdog check failed: " + t);
+            }
+        }
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (FoliaBukkitTask task : taskRegistry.snapshot()) {
+            if (!task.isSync()) continue; // Async tasks are allowed to block
+            long startedAt = task.getRunStartNanos();
+            if (startedAt == 0L || now - startedAt < budgetNanos || startedAt == task.watchdogReportedRun) continue;
+            Thread thread = task.getRunningThread();
+            if (thread == null) continue;
+            StackTraceElement[] stack = thread.getStackTrace();
+            if (task.getRunStartNanos() != startedAt) continue; // Finished while sampling; the stack belongs to something else
+            task.watchdogReportedRun = startedAt;
+            record(new Report(System.currentTimeMillis(), task.getOwner().getName(), task.getTaskId(),
+                    task.getTaskClass().getName(), thread.getName(), TimeUnit.NANOSECONDS.toMillis(now - startedAt), stack));
+        }
+    }
+
+    private void record(Report report) {
+        synchronized (reports) {
+            reports.addFirst(report);
+            while (reports.size() > maxReports) {
+                reports.removeLast();
+            }
+        }
+        rateLimitedLogger.warning("overrun-" + report.pluginName(), () -> {
+            StringBuilder sb = new StringBuilder("[Phantom][").append(report.pluginName()).append("] Task #").append(report.taskId())
+                    .append(" (").append(report.taskClass()).append(") has been running for ").append(report.elapsedMillis())
+                    .append("ms on ").append(report.threadName()).append(':');
+            for (int i = 0; i < Math.min(LOGGED_FRAMES, report.stack().length); i++) {
+                sb.append("\n    at ").append(report.stack()[i]);
+            }
+            return sb.toString();
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Limits how much of a region's tick the sync tasks of plugins may take, split into weighted fair shares.
+ * <p>
+ * Every sync run is charged to its plugin in a window covering the current {@link TickClock} tick on the running
+ * thread. Once the window's total reaches the budget, plugins that have used up their share have their deferrable
+ * runs (one-shot tasks; timers keep their period) pushed to the next tick instead of lengthening this one.
+ * While the region is under budget, no plugin is held to its share, so a lone busy plugin is never slowed down.
+ * <p>
+ * Folia ticks one region at a time per thread, but does not tell which; a window is per thread and clock tick,
+ * so a thread that ticks several small regions within one tick shares one budget between them.
+ */
+public class TickBudget {
+    private final TickClock tickClock;
+    private final long budgetNanos;
+    private final int maxDeferrals;
+    private final RateLimitedLogger rateLimitedLogger;
+    private final ConcurrentHashMap<String, Integer> weights = new ConcurrentHashMap<>();
+    private volatile int totalWeight;
+    private final ThreadLocal<Window> windows = ThreadLocal.withInitial(Window::new);
+
+    /**
+     * Time used per plugin during one tick on one thread. Only touched by its thread.
+     */
+    private static final class Window {
+        long tick = Long.MIN_VALUE;
+        long totalNanos;
+        final HashMap<String, long[]> usedNanos = new HashMap<>(); // Entries are zeroed, not removed, between ticks
+    }
+
+    /**
+     * @param budgetMillis time per region tick the sync tasks of all plugins may take before shares are enforced
+     * @param maxDeferrals times a single run may be deferred before it runs regardless of the budget
+     */
+    public TickBudget(TickClock tickClock, long budgetMillis, int maxDeferrals, Logger logger) {
+        this.tickClock = tickClock;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, budgetMillis));
+        this.maxDeferrals = Math.max(0, maxDeferrals);
+        this.rateLimitedLogger = new RateLimitedLogger(logger, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sets the fair-share weight of a plugin. Plugins without a weight count as 1.
+     */
+    public synchronized void setWeight(String pluginName, int weight) {
+        weights.put(pluginName, Math.max(1, weight));
+        int total = 0;
+        for (int w : weights.values()) {
+            total += w;
+        }
+        totalWeight = total;
+    }
+
+    /**
+     * @param deferrals how often this run has already been deferred
+     * @return whether a deferrable run of {@code plugin} should move to the next tick
+     */
+    public boolean shouldDefer(Plugin plugin, int deferrals) {
+        if (deferrals >= maxDeferrals) return false;
+        Window window = currentWindow();
+        if (window.totalNanos < budgetNanos) return false;
+        String name = plugin.getName();
+        long[] used = window.usedNanos.get(name);
+        long share = shareNanos(name);
+        if (used == null || used[0] < share) return false;
+        long usedNanos = used[0];
+        rateLimitedLogger.warning("defer-" + name, () -> "[PhantomScheduler] " + name + " used "
+                + TimeUnit.NANOSECONDS.toMillis(usedNanos) + "ms of a region tick (share " + TimeUnit.NANOSECONDS.toMillis(share)
+                + "ms of " + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + "ms); deferring its one-shot tasks to the next tick.");
+        return true;
+    }
+
+    /**
+     * Records that a sync run of {@code plugin} took {@code nanos} on the current thread.
+     */
+    public void charge(Plugin plugin, long nanos) {
+        Window window = currentWindow();
+        window.totalNanos += nanos;
+        long[] used = window.usedNanos.get(plugin.getName());
+        if (used == null) {
+            used = new long[1];
+            window.usedNanos.put(plugin.getName(), used);
+        }
+        used[0] += nanos;
+    }
+
+    private long shareNanos(String pluginName) {
+        int weight = weights.getOrDefault(pluginName, 1);
+        int total = Math.max(totalWeight, weight);
+        return budgetNanos * weight / total;
+    }
+
+    private Window currentWindow() {
+        Window window = windows.get();
+        long now = tickClock.now();
+        if (window.tick != now) {
+            window.tick = now;
+            window.totalNanos = 0L;
+            for (long[] used : window.usedNanos.values()) {
+                used[0] = 0L;
+            }
+        }
+        return window;
+    }
+}
@@ -0,0 +1,38 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * A server-wide tick counter driven by a single one-tick timer on the GlobalRegionScheduler.
+ * Regions tick independently on Folia, so this is only an approximation of "the current tick" that is
+ * good enough to align and group work; it never decides whether a task is due on its own.
+ */
+public class TickClock {
+    private volatile long currentTick;
+    private ScheduledTask driver;
+
+    public void start(Plugin plugin) {
+        start(plugin, plugin.getServer().getGlobalRegionScheduler());
+    }
+
+    /**
+     * Drives the clock from {@code scheduler} instead of the server's global region scheduler.
+     */
+    public synchronized void start(Plugin plugin, GlobalRegionScheduler scheduler) {
+        if (driver != null) return;
+        driver = scheduler.runAtFixedRate(plugin, task -> currentTick++, 1L, 1L);
+    }
+
+    public synchronized void stop() {
+        if (driver != null) {
+            driver.cancel();
+            driver = null;
+        }
+    }
+
+    public long now() {
+        return currentTick;
+    }
+}
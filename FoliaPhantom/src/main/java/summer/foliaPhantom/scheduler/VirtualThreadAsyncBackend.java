@@ -0,0 +1,270 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Runs the async tasks of opted-in plugins on Java 21 virtual threads instead of Folia's shared AsyncScheduler.
+ * <p>
+ * Delays and periods are driven by one shared timer thread; runs execute on virtual threads, so a plugin
+ * blocking on I/O (economy lookups, database calls) never holds a pooled platform thread that other plugins need.
+ * Every plugin has its own lane: due runs wait in the lane's queue, and at most its concurrency limit of virtual
+ * threads drain it, so a burst of submissions queues instead of parking one virtual thread per run. The lane is
+ * shut down when the plugin's tasks are cancelled (which Bukkit does on disable). A repeating task never overlaps
+ * with its own previous run.
+ */
+public class VirtualThreadAsyncBackend {
+    private static final long MILLIS_PER_TICK = 50L;
+
+    private final Plugin owningPlugin;
+    private final Logger logger;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<String, Integer> concurrencyLimits = new ConcurrentHashMap<>();
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * The run queue, virtual-thread executor and concurrency limit of one plugin. A permit is taken before a worker
+     * thread is started, and each worker keeps draining the queue until it is empty.
+     */
+    private static final class Lane {
+        final ExecutorService executor;
+        final Semaphore permits;
+        final ConcurrentLinkedQueue<VirtualThreadTask> queue = new ConcurrentLinkedQueue<>();
+
+        Lane(String pluginName, int maxConcurrency) {
+            this.executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("Phantom-" + pluginName + "-async-", 0).factory());
+            this.permits = new Semaphore(maxConcurrency);
+        }
+
+        void submit(VirtualThreadTask task) {
+            queue.add(task);
+            startWorkers();
+        }
+
+        private void startWorkers() {
+            while (!queue.isEmpty() && permits.tryAcquire()) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // The lane was shut down (plugin disabled); drop the runs still queued.
+                    permits.release();
+                    VirtualThreadTask dropped;
+                    while ((dropped = queue.poll()) != null) {
+                        dropped.dropRun();
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                VirtualThreadTask task;
+                while ((task = queue.poll()) != null) {
+                    task.runOnce();
+                }
+            } finally {
+                permits.release();
+            }
+            // A run queued while this worker still held its permit would otherwise wait for the next submission.
+            startWorkers();
+        }
+    }
+
+    public VirtualThreadAsyncBackend(Plugin owningPlugin) {
+        this.owningPlugin = owningPlugin;
+        this.logger = owningPlugin.getLogger();
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "FoliaPhantom-AsyncTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Routes the async tasks of {@code pluginName} to this backend.
+     */
+    public void enableFor(String pluginName, int maxConcurrency) {
+        concurrencyLimits.put(pluginName, Math.max(1, maxConcurrency));
+    }
+
+    public boolean isEnabledFor(Plugin plugin) {
+        return !concurrencyLimits.isEmpty() && concurrencyLimits.containsKey(plugin.getName());
+    }
+
+    /**
+     * @param periodTicks zero or less for a one-shot task
+     */
+    public ScheduledTask schedule(Plugin plugin, Runnable runnable, long delayTicks, long periodTicks) {
+        VirtualThreadTask task = new VirtualThreadTask(plugin.getName(), runnable, periodTicks > 0);
+        long delayMillis = Math.max(0L, delayTicks) * MILLIS_PER_TICK;
+        if (periodTicks > 0) {
+            task.future = timer.scheduleAtFixedRate(task::launch, delayMillis, periodTicks * MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+        } else if (delayMillis > 0) {
+            task.future = timer.schedule(task::launch, delayMillis, TimeUnit.MILLISECONDS);
+        } else {
+            task.launch();
+        }
+        return task;
+    }
+
+    /**
+     * Shuts down the lane of {@code plugin}. Runs already in progress finish; a later submission opens a new lane.
+     * Pending tasks are cancelled individually by the caller through their {@link ScheduledTask}.
+     */
+    public void shutdownLane(Plugin plugin) {
+        Lane lane = lanes.remove(plugin.getName());
+        if (lane != null) {
+            lane.executor.shutdown();
+        }
+    }
+
+    /**
+     * Stops the timer and every lane, giving in-flight runs a short grace period.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        for (Lane lane : lanes.values()) {
+            lane.executor.shutdown();
+        }
+        for (Map.Entry<String, Lane> entry : lanes.entrySet()) {
+            try {
+                if (!entry.getValue().executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    logger.warning("[PhantomScheduler] Async tasks of " + entry.getKey() + " did not finish within 5 seconds of shutdown.");
+                    entry.getValue().executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        lanes.clear();
+    }
+
+    private Lane laneFor(String pluginName) {
+        return lanes.computeIfAbsent(pluginName, name -> new Lane(name, concurrencyLimits.getOrDefault(name, 1)));
+    }
+
+    /**
+     * A task on this backend, presented to the rest of the scheduler as a Folia task.
+     */
+    private final class VirtualThreadTask implements ScheduledTask {
+        private final String pluginName;
+        private final Runnable runnable;
+        private final boolean repeating;
+        private final AtomicReference<ExecutionState> state = new AtomicReference<>(ExecutionState.IDLE);
+        private final AtomicBoolean launched = new AtomicBoolean(); // A run is queued or in progress
+        volatile ScheduledFuture<?> future;
+
+        VirtualThreadTask(String pluginName, Runnable runnable, boolean repeating) {
+            this.pluginName = pluginName;
+            this.runnable = runnable;
+            this.repeating = repeating;
+        }
+
+        /**
+         * Called on the timer thread (or the submitting thread without a delay) when the task is due; queues the run
+         * on the plugin's lane.
+         */
+        void launch() {
+            if (state.get() != ExecutionState.IDLE || !launched.compareAndSet(false, true)) {
+                return; // Cancelled, or the previous run of a repeating task has not finished yet
+            }
+            laneFor(pluginName).submit(this);
+        }
+
+        /**
+         * Called on a lane worker once the run reaches the front of the lane's queue.
+         */
+        void runOnce() {
+            try {
+                if (!state.compareAndSet(ExecutionState.IDLE, ExecutionState.RUNNING)) return;
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    logger.log(java.util.logging.Level.SEVERE, "[PhantomScheduler] Async task of " + pluginName + " threw an exception", t);
+                } finally {
+                    if (!state.compareAndSet(ExecutionState.RUNNING, repeating ? ExecutionState.IDLE : ExecutionState.FINISHED)) {
+                        state.compareAndSet(ExecutionState.CANCELLED_RUNNING, ExecutionState.CANCELLED);
+                    }
+                }
+            } finally {
+                launched.set(false);
+            }
+        }
+
+        /**
+         * Drops a queued run whose lane was shut down; a one-shot task will never run.
+         */
+        void dropRun() {
+            launched.set(false);
+            if (!repeating) state.compareAndSet(ExecutionState.IDLE, ExecutionState.CANCELLED);
+        }
+
+        @Override
+        public Plugin getOwningPlugin() {
+            return owningPlugin;
+        }
+
+        @Override
+        public boolean isRepeatingTask() {
+            return repeating;
+        }
+
+        @Override
+        public CancelledState cancel() {
+            ScheduledFuture<?> pending = future;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            while (true) {
+                ExecutionState current = state.get();
+                switch (current) {
+                    case IDLE:
+                        if (state.compareAndSet(current, ExecutionState.CANCELLED)) {
+                            return CancelledState.CANCELLED_BY_CALLER;
+                        }
+                        break;
+                    case RUNNING:
+                        if (state.compareAndSet(current, ExecutionState.CANCELLED_RUNNING)) {
+                            return repeating ? CancelledState.NEXT_RUNS_CANCELLED : CancelledState.RUNNING;
+                        }
+                        break;
+                    case CANCELLED_RUNNING:
+                        return repeating ? CancelledState.NEXT_RUNS_CANCELLED_ALREADY : CancelledState.RUNNING;
+                    case FINISHED:
+                        return CancelledState.ALREADY_EXECUTED;
+                    default:
+                        return CancelledState.CANCELLED_ALREADY;
+                }
+            }
+        }
+
+        @Override
+        public ExecutionState getExecutionState() {
+            return state.get();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            ExecutionState current = state.get();
+            return current == ExecutionState.CANCELLED || current == ExecutionState.CANCELLED_RUNNING;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package summer.foliaPhantom.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PluginConfigTest {
+
+    @Test
+    void fromMapReadsEveryField() {
+        PluginConfig config = PluginConfig.fromMap(Map.of(
+                "name", "Sample",
+                "original-jar-path", "plugins/Sample.jar",
+                "patched-jar-path", "plugins/Sample-folia.jar",
+                "folia-enabled", false,
+                "sync-routing", "entity",
+                "async-backend", "virtual",
+                "async-max-concurrency", 8,
+                "rewrite-scheduler-calls", true,
+                "tick-weight", 3,
+                "batch-one-shot-tasks", true));
+        assertEquals("Sample", config.name());
+        assertEquals("plugins/Sample.jar", config.originalJarPath());
+        assertEquals("plugins/Sample-folia.jar", config.patchedJarPath());
+        assertFalse(config.foliaEnabled());
+        assertEquals("entity", config.syncRouting());
+        assertEquals("virtual", config.asyncBackend());
+        assertEquals(8, config.asyncMaxConcurrency());
+        assertTrue(config.rewriteSchedulerCalls());
+        assertEquals(3, config.tickWeight());
+        assertTrue(config.batchOneShotTasks());
+    }
+
+    @Test
+    void missingMistypedAndOutOfRangeFieldsFallBackToDefaults() {
+        PluginConfig config = PluginConfig.fromMap(Map.of(
+                "original-jar-path", "plugins/Sample.jar",
+                "folia-enabled", "yes",
+                "sync-routing", 1,
+                "async-max-concurrency", 0,
+                "tick-weight", -2));
+        assertEquals("<Unknown>", config.name());
+        assertEquals("plugins/Sample.jar", config.patchedJarPath());
+        assertTrue(config.foliaEnabled());
+        assertEquals("spawn", config.syncRouting());
+        assertEquals("folia", config.asyncBackend());
+        assertEquals(64, config.asyncMaxConcurrency());
+        assertFalse(config.rewriteSchedulerCalls());
+        assertEquals(1, config.tickWeight());
+        assertFalse(config.batchOneShotTasks());
+    }
+}
@@ -0,0 +1,355 @@
+package summer.foliaPhantom.jar;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.yaml.snakeyaml.Yaml;
+import summer.foliaPhantom.jar.samples.OverridingTask;
+import summer.foliaPhantom.jar.samples.PlainTask;
+import summer.foliaPhantom.jar.samples.RunnableCalls;
+import summer.foliaPhantom.jar.samples.SchedulerCalls;
+import summer.foliaPhantom.jar.samples.SubclassTask;
+import summer.foliaPhantom.jar.samples.Unrelated;
+import summer.foliaPhantom.scheduler.SchedulerShim;
+import summer.foliaPhantom.testsupport.FakeFolia;
+import summer.foliaPhantom.testsupport.Fakes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compatibility matrix for {@link SchedulerCallRewriter} and {@code SchedulerShim}: sample plugin classes that call
+ * {@code BukkitScheduler} and {@code BukkitRunnable} (plain, through overrides and through {@code super}) are
+ * patched the way {@code PluginLoader} patches a real plugin, then the rewritten bytecode is checked and the
+ * classes are run to see which scheduler each call reaches.
+ */
+class SchedulerCallRewriterTest {
+    private static final String SAMPLES = "summer/foliaPhantom/jar/samples/";
+    private static final List<Class<?>> SAMPLE_CLASSES = List.of(SchedulerCalls.class, PlainTask.class,
+            OverridingTask.class, SubclassTask.class, RunnableCalls.class, Unrelated.class);
+    private static final List<String> SCHEDULE_ALL = List.of("runTask", "runTaskLater", "runTaskTimer",
+            "runTaskAsynchronously", "runTaskTimerAsynchronously", "runTask", "scheduleSyncDelayedTask",
+            "scheduleSyncRepeatingTask", "isQueued", "isCurrentlyRunning", "callSyncMethod", "getPendingTasks",
+            "cancelTask", "cancelTasks");
+
+    @TempDir
+    static Path dir;
+    private static Map<String, byte[]> original;
+    private static Map<String, byte[]> patched;
+
+    private FakeFolia folia;
+    private Plugin plugin;
+    private Recorder server;
+    private Recorder shimTarget;
+
+    @BeforeAll
+    static void patchSampleJar() throws Exception {
+        File originalJar = dir.resolve("Sample.jar").toFile();
+        File patchedJar = dir.resolve("Sample-patched.jar").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(originalJar))) {
+            out.putNextEntry(new ZipEntry("plugin.yml"));
+            out.write("name: Sample\nmain: summer.foliaPhantom.jar.samples.Unrelated\nversion: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            for (Class<?> sample : SAMPLE_CLASSES) {
+                String name = sample.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new ZipEntry(name));
+                try (InputStream in = SchedulerCallRewriterTest.class.getClassLoader().getResourceAsStream(name)) {
+                    in.transferTo(out);
+                }
+            }
+        }
+        JarPatcher.createFoliaSupportedJar(originalJar, patchedJar, true);
+        original = readEntries(originalJar);
+        patched = readEntries(patchedJar);
+    }
+
+    @BeforeEach
+    void setUp() {
+        folia = new FakeFolia(1).installAsBukkitServer();
+        plugin = folia.plugin("Sample");
+        server = new Recorder("ServerScheduler", 1);
+        shimTarget = new Recorder("PhantomScheduler", 1000);
+        folia.setBukkitScheduler(server.scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SchedulerShim.install(null);
+        folia.close();
+    }
+
+    // --- Bytecode ---
+
+    @Test
+    void pluginYmlGainsTheSoftDependency() {
+        String pluginYml = new String(patched.get("plugin.yml"), StandardCharsets.UTF_8);
+        assertTrue(pluginYml.contains("folia-supported: true"), pluginYml);
+        assertTrue(pluginYml.contains("softdepend: [FoliaPhantom]"), pluginYml);
+    }
+
+    static Stream<Arguments> existingSoftDepends() {
+        return Stream.of(
+                Arguments.of("softdepend: [Vault]\n", List.of("Vault", "FoliaPhantom")),
+                Arguments.of("softdepend:\n  - Vault\n  - WorldGuard\n# Optional hooks\n", List.of("Vault", "WorldGuard", "FoliaPhantom")),
+                Arguments.of("softdepend:\n- Vault\n\n", List.of("Vault", "FoliaPhantom")),
+                Arguments.of("softdepend: [Vault, FoliaPhantom]\n", List.of("Vault", "FoliaPhantom")));
+    }
+
+    @ParameterizedTest
+    @MethodSource("existingSoftDepends")
+    void pluginYmlWithASoftDependListGainsFoliaPhantomInThatList(String softDepend, List<String> expected) throws Exception {
+        String pluginYml = "name: Sample\nmain: summer.foliaPhantom.jar.samples.Unrelated\n" + softDepend + "version: 1.0\n";
+        String patchedYml = patchPluginYml(pluginYml);
+
+        Map<String, Object> parsed = new Yaml().load(patchedYml);
+        assertEquals(expected, parsed.get("softdepend"), patchedYml);
+        assertEquals("1.0", String.valueOf(parsed.get("version")), patchedYml);
+        assertEquals(true, parsed.get("folia-supported"), patchedYml);
+        assertEquals(softDepend.contains("#"), patchedYml.contains("# Optional hooks"), patchedYml);
+    }
+
+    @Test
+    void everySchedulerCallBecomesAShimCall() {
+        List<String> calls = invocations(SchedulerCalls.class, "scheduleAll");
+        assertEquals(List.of(), calls.stream().filter(call -> call.contains("BukkitScheduler.")).toList());
+        assertEquals(SCHEDULE_ALL, calls.stream()
+                .filter(call -> call.startsWith("INVOKESTATIC SchedulerShim."))
+                .map(call -> call.substring("INVOKESTATIC SchedulerShim.".length()))
+                .toList());
+        assertTrue(calls.contains("INVOKEINTERFACE BukkitTask.getTaskId"), calls::toString);
+    }
+
+    @Test
+    void runnableCallsAreRedirectedUnlessOverriddenInTheJar() {
+        assertEquals(List.of("INVOKESPECIAL PlainTask.<init>", "INVOKESTATIC SchedulerShim.runTaskTimer",
+                "INVOKEVIRTUAL PlainTask.cancel"), invocations(RunnableCalls.class, "plain"));
+        assertEquals(List.of("INVOKESPECIAL PlainTask.<init>", "INVOKESTATIC SchedulerShim.runTaskLaterAsynchronously"),
+                invocations(RunnableCalls.class, "plainAsBase"));
+        assertEquals(List.of("INVOKESPECIAL OverridingTask.<init>", "INVOKEVIRTUAL OverridingTask.runTaskLater",
+                "INVOKEVIRTUAL OverridingTask.cancel"), invocations(RunnableCalls.class, "overriding"));
+        assertEquals(List.of("INVOKESPECIAL SubclassTask.<init>", "INVOKEVIRTUAL SubclassTask.runTaskLater"),
+                invocations(RunnableCalls.class, "subclassLater"));
+        assertEquals(List.of("INVOKESPECIAL SubclassTask.<init>", "INVOKESTATIC SchedulerShim.runTask"),
+                invocations(RunnableCalls.class, "subclassNow"));
+    }
+
+    @Test
+    void superCallsFromOverridesAreRedirected() {
+        assertEquals(List.of("INVOKESTATIC SchedulerShim.runTaskLater"), invocations(OverridingTask.class, "runTaskLater"));
+        assertEquals(List.of("INVOKESTATIC SchedulerShim.cancel"), invocations(OverridingTask.class, "cancel"));
+        assertEquals(List.of("INVOKESPECIAL BukkitRunnable.<init>"), invocations(OverridingTask.class, "<init>"));
+    }
+
+    @Test
+    void classesWithoutRedirectableCallsAreCopiedUnchanged() {
+        for (Class<?> unchanged : List.of(PlainTask.class, SubclassTask.class, Unrelated.class)) {
+            String name = entryName(unchanged);
+            assertArrayEquals(original.get(name), patched.get(name), name);
+        }
+        for (Class<?> rewritten : List.of(SchedulerCalls.class, OverridingTask.class, RunnableCalls.class)) {
+            String name = entryName(rewritten);
+            assertFalse(Arrays.equals(original.get(name), patched.get(name)), name);
+        }
+    }
+
+    // --- Dispatch ---
+
+    static Stream<Arguments> matrix() {
+        return Stream.of(
+                // Sample method, calls reaching the shim's target, calls still reaching the server scheduler
+                Arguments.of("scheduleAll", SCHEDULE_ALL, List.of()),
+                Arguments.of("plain", List.of("runTaskTimer"), List.of("cancelTask")), // cancel() is overridden elsewhere
+                Arguments.of("plainAsBase", List.of("runTaskLaterAsynchronously"), List.of()),
+                Arguments.of("overriding", List.of("runTaskLater", "BukkitTask.cancel"), List.of()),
+                Arguments.of("subclassLater", List.of("runTaskLater"), List.of()),
+                Arguments.of("subclassNow", List.of("runTask"), List.of()));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("matrix")
+    void rewrittenCallsReachTheInstalledScheduler(String sample, List<String> viaShim, List<String> viaServer) throws Exception {
+        SchedulerShim.install(shimTarget.scheduler);
+        run(new PatchedClassLoader(), sample);
+        assertEquals(viaShim, shimTarget.calls);
+        assertEquals(viaServer, server.calls);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("matrix")
+    void rewrittenCallsBehaveLikeTheOriginalsWithoutAnInstalledScheduler(String sample) throws Exception {
+        run(SchedulerCallRewriterTest.class.getClassLoader(), sample);
+        List<String> originalCalls = new ArrayList<>(server.calls);
+        server.calls.clear();
+
+        run(new PatchedClassLoader(), sample);
+        assertEquals(originalCalls, server.calls);
+        assertEquals(List.of(), shimTarget.calls);
+    }
+
+    @Test
+    void overridesRunAndTheRunnableKeepsItsTaskHandle() throws Exception {
+        SchedulerShim.install(shimTarget.scheduler);
+        ClassLoader loader = new PatchedClassLoader();
+        Object overriding = run(loader, "overriding");
+        assertEquals(2, overriding.getClass().getField("overrideCalls").getInt(overriding));
+
+        BukkitRunnable plain = (BukkitRunnable) run(loader, "plain");
+        assertEquals(1001, plain.getTaskId()); // The id the shim's target handed out, not the server's
+        assertEquals(List.of("cancelTask 1001"), server.cancelledIds);
+    }
+
+    private Object run(ClassLoader loader, String sample) throws Exception {
+        boolean scheduler = "scheduleAll".equals(sample);
+        Class<?> owner = Class.forName((scheduler ? SchedulerCalls.class : RunnableCalls.class).getName(), true, loader);
+        Method method = Arrays.stream(owner.getMethods()).filter(m -> m.getName().equals(sample)).findFirst().orElseThrow();
+        try {
+            return scheduler ? method.invoke(null, server.scheduler, plugin) : method.invoke(null, plugin);
+        } catch (InvocationTargetException e) {
+            throw (e.getCause() instanceof Exception cause) ? cause : e;
+        }
+    }
+
+    /**
+     * @return {@code "OPCODE SimpleOwner.name"} for every method call in the patched {@code owner.method}
+     */
+    private static List<String> invocations(Class<?> owner, String method) {
+        List<String> calls = new ArrayList<>();
+        new ClassReader(patched.get(entryName(owner))).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (!name.equals(method) || (access & Opcodes.ACC_SYNTHETIC) != 0) return null;
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String insnOwner, String insnName, String insnDescriptor, boolean isInterface) {
+                        String opcodeName = switch (opcode) {
+                            case Opcodes.INVOKEVIRTUAL -> "INVOKEVIRTUAL";
+                            case Opcodes.INVOKESPECIAL -> "INVOKESPECIAL";
+                            case Opcodes.INVOKESTATIC -> "INVOKESTATIC";
+                            default -> "INVOKEINTERFACE";
+                        };
+                        calls.add(opcodeName + " " + insnOwner.substring(insnOwner.lastIndexOf('/') + 1) + "." + insnName);
+                    }
+                };
+            }
+        }, 0);
+        return calls;
+    }
+
+    private static String patchPluginYml(String pluginYml) throws Exception {
+        File originalJar = Files.createTempFile(dir, "Yml", ".jar").toFile();
+        File patchedJar = Files.createTempFile(dir, "Yml-patched", ".jar").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(originalJar))) {
+            out.putNextEntry(new ZipEntry("plugin.yml"));
+            out.write(pluginYml.getBytes(StandardCharsets.UTF_8));
+        }
+        JarPatcher.createFoliaSupportedJar(originalJar, patchedJar, true);
+        return new String(readEntries(patchedJar).get("plugin.yml"), StandardCharsets.UTF_8);
+    }
+
+    private static String entryName(Class<?> sample) {
+        return SAMPLES + sample.getSimpleName() + ".class";
+    }
+
+    private static Map<String, byte[]> readEntries(File jar) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    entries.put(entry.getName(), in.readAllBytes());
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Loads the patched sample classes itself and everything else (Bukkit, the shim) from the test class path, as
+     * Bukkit's plugin class loader does for a wrapped plugin.
+     */
+    private static final class PatchedClassLoader extends ClassLoader {
+        PatchedClassLoader() {
+            super(SchedulerCallRewriterTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            String entry = name.replace('.', '/') + ".class";
+            if (!entry.startsWith(SAMPLES)) return super.loadClass(name, resolve);
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    byte[] classFile = patched.get(entry);
+                    if (classFile == null) throw new ClassNotFoundException(name);
+                    loaded = defineClass(name, classFile, 0, classFile.length);
+                }
+                return loaded;
+            }
+        }
+    }
+
+    /**
+     * A {@code BukkitScheduler} that records which methods were called and hands out numbered task handles.
+     */
+    private static final class Recorder {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final List<String> cancelledIds = Collections.synchronizedList(new ArrayList<>());
+        final BukkitScheduler scheduler;
+        private final AtomicInteger nextId;
+
+        Recorder(String label, int firstId) {
+            this.nextId = new AtomicInteger(firstId);
+            this.scheduler = Fakes.proxy(BukkitScheduler.class, label, (method, args) -> {
+                calls.add(method.getName());
+                if (method.getName().equals("cancelTask")) cancelledIds.add("cancelTask " + args[0]);
+                Class<?> type = method.getReturnType();
+                if (type == BukkitTask.class) return task(nextId.getAndIncrement());
+                if (type == int.class) return nextId.getAndIncrement();
+                return Fakes.defaultValue(type);
+            });
+        }
+
+        private BukkitTask task(int id) {
+            return Fakes.proxy(BukkitTask.class, "BukkitTask#" + id, Map.of(
+                    "getTaskId", args -> id,
+                    "cancel", args -> {
+                        calls.add("BukkitTask.cancel");
+                        return null;
+                    }));
+        }
+    }
+}
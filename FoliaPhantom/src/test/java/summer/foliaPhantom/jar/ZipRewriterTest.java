@@ -0,0 +1,52 @@
+package summer.foliaPhantom.jar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ZipRewriterTest {
+
+    @Test
+    void rewritesOnlyTheRequestedEntries(@TempDir Path dir) throws IOException {
+        File source = dir.resolve("in.jar").toFile();
+        File target = dir.resolve("out.jar").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(source))) {
+            out.putNextEntry(new ZipEntry("plugin.yml"));
+            out.write("name: Sample\n".getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new ZipEntry("data.bin"));
+            out.write(new byte[10_000]);
+        }
+
+        int rewritten = ZipRewriter.rewrite(source, target, "plugin.yml"::equals,
+                (name, content) -> (new String(content, StandardCharsets.UTF_8) + "folia-supported: true\n")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1, rewritten);
+        try (ZipFile original = new ZipFile(source); ZipFile patched = new ZipFile(target)) {
+            assertEquals("name: Sample\nfolia-supported: true\n",
+                    new String(patched.getInputStream(patched.getEntry("plugin.yml")).readAllBytes(), StandardCharsets.UTF_8));
+            assertEquals(original.getEntry("data.bin").getCompressedSize(), patched.getEntry("data.bin").getCompressedSize());
+            assertEquals(10_000, patched.getInputStream(patched.getEntry("data.bin")).readAllBytes().length);
+        }
+    }
+
+    @Test
+    void rejectsOffsetsThatOnlyFitInZip64() {
+        assertDoesNotThrow(() -> ZipRewriter.requireNoZip64(0xFFFFFFFEL));
+        assertThrows(ZipException.class, () -> ZipRewriter.requireNoZip64(0xFFFFFFFFL)); // The ZIP64 marker itself
+        assertThrows(ZipException.class, () -> ZipRewriter.requireNoZip64(0x100000000L)); // Would wrap to 0 when cast
+    }
+}
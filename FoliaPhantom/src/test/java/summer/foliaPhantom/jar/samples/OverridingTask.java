@@ -0,0 +1,28 @@
+package summer.foliaPhantom.jar.samples;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * A runnable that overrides {@code runTaskLater} and {@code cancel()} and calls {@code super} from both.
+ */
+public class OverridingTask extends BukkitRunnable {
+    public int overrideCalls;
+
+    @Override
+    public void run() {
+    }
+
+    @Override
+    public synchronized BukkitTask runTaskLater(Plugin plugin, long delay) {
+        overrideCalls++;
+        return super.runTaskLater(plugin, delay);
+    }
+
+    @Override
+    public synchronized void cancel() {
+        overrideCalls++;
+        super.cancel();
+    }
+}
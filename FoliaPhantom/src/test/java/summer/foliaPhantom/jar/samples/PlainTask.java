@@ -0,0 +1,15 @@
+package summer.foliaPhantom.jar.samples;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * A runnable that overrides nothing but {@code run()}.
+ */
+public class PlainTask extends BukkitRunnable {
+    public int runs;
+
+    @Override
+    public void run() {
+        runs++;
+    }
+}
@@ -0,0 +1,44 @@
+package summer.foliaPhantom.jar.samples;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Plugin code calling {@code BukkitRunnable} methods through various static types.
+ */
+public final class RunnableCalls {
+    private RunnableCalls() {
+    }
+
+    public static PlainTask plain(Plugin plugin) {
+        PlainTask task = new PlainTask();
+        task.runTaskTimer(plugin, 1L, 1L);
+        task.cancel(); // OverridingTask overrides cancel(), so this stays a virtual call
+        return task;
+    }
+
+    public static BukkitRunnable plainAsBase(Plugin plugin) {
+        BukkitRunnable task = new PlainTask();
+        task.runTaskLaterAsynchronously(plugin, 2L);
+        return task;
+    }
+
+    public static OverridingTask overriding(Plugin plugin) {
+        OverridingTask task = new OverridingTask();
+        task.runTaskLater(plugin, 3L);
+        task.cancel();
+        return task;
+    }
+
+    public static OverridingTask subclassLater(Plugin plugin) {
+        SubclassTask task = new SubclassTask();
+        task.runTaskLater(plugin, 3L);
+        return task;
+    }
+
+    public static OverridingTask subclassNow(Plugin plugin) {
+        SubclassTask task = new SubclassTask();
+        task.runTask(plugin);
+        return task;
+    }
+}
@@ -0,0 +1,33 @@
+package summer.foliaPhantom.jar.samples;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Plugin code calling the {@code BukkitScheduler} methods plugins use most, for {@code SchedulerCallRewriterTest}.
+ */
+public final class SchedulerCalls {
+    private SchedulerCalls() {
+    }
+
+    public static void scheduleAll(BukkitScheduler scheduler, Plugin plugin) {
+        Runnable noop = () -> {
+        };
+        BukkitTask task = scheduler.runTask(plugin, noop);
+        scheduler.runTaskLater(plugin, noop, 5L);
+        scheduler.runTaskTimer(plugin, noop, 1L, 20L);
+        scheduler.runTaskAsynchronously(plugin, noop);
+        scheduler.runTaskTimerAsynchronously(plugin, noop, 1L, 20L);
+        scheduler.runTask(plugin, self -> {
+        });
+        int id = scheduler.scheduleSyncDelayedTask(plugin, noop, 5L);
+        scheduler.scheduleSyncRepeatingTask(plugin, noop, 1L, 1L);
+        scheduler.isQueued(id);
+        scheduler.isCurrentlyRunning(id);
+        scheduler.callSyncMethod(plugin, () -> 42);
+        scheduler.getPendingTasks();
+        scheduler.cancelTask(task.getTaskId());
+        scheduler.cancelTasks(plugin);
+    }
+}
@@ -0,0 +1,7 @@
+package summer.foliaPhantom.jar.samples;
+
+/**
+ * Inherits the overrides of {@link OverridingTask} without adding any.
+ */
+public class SubclassTask extends OverridingTask {
+}
@@ -0,0 +1,13 @@
+package summer.foliaPhantom.jar.samples;
+
+/**
+ * Never touches the scheduler, so the rewriter must leave it byte-for-byte unchanged.
+ */
+public final class Unrelated {
+    private Unrelated() {
+    }
+
+    public static int answer() {
+        return 42;
+    }
+}
@@ -0,0 +1,89 @@
+package summer.foliaPhantom.metrics;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+import summer.foliaPhantom.testsupport.Fakes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchedulerMetricsTest {
+
+    @Test
+    void statsAreSharedPerPluginAndTaskClassName() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        Plugin plugin = plugin("Sample");
+        TaskStats stats = metrics.statsFor(plugin, SampleTask.class);
+        assertSame(stats, metrics.statsFor(plugin, SampleTask.class));
+        assertNotSame(stats, metrics.statsFor(plugin, String.class));
+        assertNotSame(stats, metrics.statsFor(plugin("Other"), SampleTask.class));
+    }
+
+    @Test
+    void removeForgetsThePlugin() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        Plugin plugin = plugin("Sample");
+        TaskStats before = metrics.statsFor(plugin, SampleTask.class);
+        before.recordScheduled(ExecutionTarget.GLOBAL);
+
+        metrics.remove("Sample");
+        assertEquals(2, metrics.report("Sample", true).size()); // Header and "No tasks recorded"
+        assertNotSame(before, metrics.statsFor(plugin, SampleTask.class));
+    }
+
+    /**
+     * Stats stay around until the plugin is removed, but must not keep its class loader alive in the meantime.
+     */
+    @Test
+    void statsDoNotPinTheTaskClassLoader() throws Exception {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        WeakReference<ClassLoader> loader = recordFromThrowawayLoader(metrics, plugin("Sample"));
+        for (int i = 0; i < 20 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(loader.get(), "the task class's loader is still reachable");
+        assertTrue(metrics.report("Sample", true).stream().anyMatch(line -> line.contains(SampleTask.class.getName())));
+    }
+
+    private static WeakReference<ClassLoader> recordFromThrowawayLoader(SchedulerMetrics metrics, Plugin plugin) throws Exception {
+        ClassLoader loader = new ClassLoader(SchedulerMetricsTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (!name.equals(SampleTask.class.getName())) return super.loadClass(name, resolve);
+                synchronized (getClassLoadingLock(name)) {
+                    Class<?> loaded = findLoadedClass(name);
+                    if (loaded != null) return loaded;
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        byte[] classFile = in.readAllBytes();
+                        return defineClass(name, classFile, 0, classFile.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+            }
+        };
+        Class<?> taskClass = loader.loadClass(SampleTask.class.getName());
+        assertNotSame(SampleTask.class, taskClass);
+        metrics.statsFor(plugin, taskClass).recordScheduled(ExecutionTarget.GLOBAL);
+        return new WeakReference<>(loader);
+    }
+
+    private static Plugin plugin(String name) {
+        return Fakes.proxy(Plugin.class, name, Map.of("getName", args -> name));
+    }
+
+    static final class SampleTask implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+}
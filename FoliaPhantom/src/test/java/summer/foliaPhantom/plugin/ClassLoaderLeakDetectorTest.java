@@ -0,0 +1,60 @@
+package summer.foliaPhantom.plugin;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+import summer.foliaPhantom.metrics.SchedulerMetrics;
+import summer.foliaPhantom.testsupport.Fakes;
+
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassLoaderLeakDetectorTest {
+
+    @Test
+    void metricsThatOutliveThePluginAreNamedAsRetainer() throws InterruptedException {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        Plugin plugin = Fakes.proxy(Plugin.class, "Leaky", Map.of("getName", args -> "Leaky"));
+        metrics.statsFor(plugin, Runnable.class);
+        ClassLoader retained = new ClassLoader(getClass().getClassLoader()) {
+        };
+        ClassLoaderLeakDetector detector = new ClassLoaderLeakDetector(Logger.getLogger("ClassLoaderLeakDetectorTest"),
+                null, metrics, 1, 100L, true);
+
+        detector.release("Leaky", retained);
+        List<ClassLoaderLeakDetector.Leak> leaks = awaitLeaks(detector);
+        assertEquals(1, leaks.size());
+        List<String> retainers = leaks.get(0).retainers();
+        assertTrue(retainers.get(0).startsWith(ClassLoaderLeakDetector.Retainer.SCHEDULER_METRICS + ": stats for Leaky"),
+                retainers::toString);
+        assertTrue(retained.getParent() != null); // Keeps the loader strongly reachable until here
+    }
+
+    @Test
+    void releasedPluginWithDroppedMetricsIsNotBlamedOnThem() throws InterruptedException {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        Plugin plugin = Fakes.proxy(Plugin.class, "Clean", Map.of("getName", args -> "Clean"));
+        metrics.statsFor(plugin, Runnable.class);
+        metrics.remove("Clean"); // As FoliaSchedulerProxy.cancelTasks does on disable
+        ClassLoader retained = new ClassLoader(getClass().getClassLoader()) {
+        };
+        ClassLoaderLeakDetector detector = new ClassLoaderLeakDetector(Logger.getLogger("ClassLoaderLeakDetectorTest"),
+                null, metrics, 1, 100L, true);
+
+        detector.release("Clean", retained);
+        List<ClassLoaderLeakDetector.Leak> leaks = awaitLeaks(detector);
+        assertTrue(leaks.get(0).retainers().stream()
+                .noneMatch(retainer -> retainer.startsWith(ClassLoaderLeakDetector.Retainer.SCHEDULER_METRICS.name())));
+        assertTrue(retained.getParent() != null);
+    }
+
+    private static List<ClassLoaderLeakDetector.Leak> awaitLeaks(ClassLoaderLeakDetector detector) throws InterruptedException {
+        for (int i = 0; i < 100 && detector.getLeaks().isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        return detector.getLeaks();
+    }
+}
@@ -0,0 +1,165 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import summer.foliaPhantom.testsupport.FakeFolia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ordering and cancellation of one-shot tasks sharing a {@link DelayedTaskBatches} batch.
+ */
+class DelayedTaskBatchesTest {
+    private final TickClock tickClock = new TickClock();
+    private FakeFolia folia;
+    private DelayedTaskBatches batches;
+    private Location spawn;
+
+    @BeforeEach
+    void setUp() {
+        folia = new FakeFolia(2).installAsBukkitServer();
+        Plugin phantom = folia.plugin("FoliaPhantom");
+        tickClock.start(phantom, folia.globalRegionScheduler());
+        batches = new DelayedTaskBatches(phantom, folia.regionScheduler(), folia.globalRegionScheduler(), tickClock);
+        spawn = folia.world().getSpawnLocation();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tickClock.stop();
+        folia.close();
+    }
+
+    @Test
+    void tasksDueOnTheSameTickRunInSubmissionOrderWhateverThreadSubmittedThem() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        folia.tick();
+        batches.schedule(() -> ran.add("other thread 1"), spawn, 2L);
+        folia.runOnRegion(spawn, () -> batches.schedule(() -> ran.add("owning region 1"), spawn, 2L));
+        batches.schedule(() -> ran.add("other thread 2"), spawn, 2L);
+        folia.runOnRegion(spawn, () -> batches.schedule(() -> ran.add("owning region 2"), spawn, 2L));
+        assertEquals(1, batches.batchCount());
+
+        folia.tick(3);
+        assertEquals(List.of("other thread 1", "owning region 1", "other thread 2", "owning region 2"), ran);
+        assertEquals(0, batches.batchCount());
+    }
+
+    @Test
+    void runsOfOwningRegionSubmissionsMergeWithOtherThreadsInOrder() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        folia.runOnRegion(spawn, () -> {
+            batches.schedule(() -> ran.add("region 1"), spawn, 1L);
+            batches.schedule(() -> ran.add("region 2"), spawn, 1L);
+        });
+        batches.schedule(() -> ran.add("other 1"), spawn, 1L);
+        batches.schedule(() -> ran.add("other 2"), spawn, 1L);
+        folia.runOnRegion(spawn, () -> {
+            batches.schedule(() -> ran.add("region 3"), spawn, 1L);
+            batches.schedule(() -> ran.add("region 4"), spawn, 1L);
+        });
+        batches.schedule(() -> ran.add("other 3"), spawn, 1L);
+
+        folia.tick(2);
+        assertEquals(List.of("region 1", "region 2", "other 1", "other 2", "region 3", "region 4", "other 3"), ran);
+    }
+
+    @Test
+    void memberSubmittedOnTheOwningRegionCanBeCancelled() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<ScheduledTask> local = new AtomicReference<>();
+        folia.runOnRegion(spawn, () -> {
+            local.set(batches.schedule(() -> ran.add("cancelled"), spawn, 1L));
+            batches.schedule(() -> ran.add("kept"), spawn, 1L);
+        });
+
+        assertEquals(ScheduledTask.CancelledState.CANCELLED_BY_CALLER, local.get().cancel());
+        folia.tick(2);
+        assertEquals(List.of("kept"), ran);
+        assertTrue(local.get().isCancelled());
+    }
+
+    @Test
+    void laterSubmissionDoesNotJoinABatchDueEarlierWhenTheClockLags() {
+        // Never started, so the clock stays behind the region ticks, as the global tick can.
+        TickClock laggingClock = new TickClock();
+        DelayedTaskBatches lagging = new DelayedTaskBatches(folia.plugin("FoliaPhantom"), folia.regionScheduler(),
+                folia.globalRegionScheduler(), laggingClock);
+        long start = folia.currentTick();
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        lagging.schedule(() -> ran.add("first " + (folia.currentTick() - start)), spawn, 3L);
+        folia.tick();
+        lagging.schedule(() -> ran.add("second " + (folia.currentTick() - start)), spawn, 3L);
+        folia.runOnRegion(spawn, () -> lagging.schedule(() -> ran.add("third " + (folia.currentTick() - start)), spawn, 3L));
+
+        folia.tick(5);
+        assertEquals(List.of("first 3", "second 4", "third 4"), ran);
+        assertEquals(0, lagging.batchCount());
+    }
+
+    @Test
+    void globalTasksKeepSubmissionOrderToo() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        folia.runOnGlobal(() -> batches.schedule(() -> ran.add("global tick thread"), null, 1L));
+        batches.schedule(() -> ran.add("other thread"), null, 1L);
+        folia.runOnGlobal(() -> batches.schedule(() -> ran.add("global tick thread again"), null, 1L));
+
+        folia.tick(2);
+        assertEquals(List.of("global tick thread", "other thread", "global tick thread again"), ran);
+    }
+
+    @Test
+    void cancelledMemberIsSkippedAndTheRestOfTheBatchRuns() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        ScheduledTask first = batches.schedule(() -> ran.add("first"), spawn, 1L);
+        ScheduledTask second = batches.schedule(() -> ran.add("second"), spawn, 1L);
+        ScheduledTask third = batches.schedule(() -> ran.add("third"), spawn, 1L);
+
+        assertEquals(ScheduledTask.CancelledState.CANCELLED_BY_CALLER, second.cancel());
+        assertEquals(ScheduledTask.CancelledState.CANCELLED_ALREADY, second.cancel());
+        folia.tick(2);
+        assertEquals(List.of("first", "third"), ran);
+        assertTrue(second.isCancelled());
+        assertEquals(ScheduledTask.ExecutionState.FINISHED, first.getExecutionState());
+        assertEquals(ScheduledTask.CancelledState.ALREADY_EXECUTED, third.cancel());
+    }
+
+    @Test
+    void memberCancelledByAnEarlierMemberOfItsBatchNeverRuns() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<ScheduledTask> later = new AtomicReference<>();
+        AtomicReference<ScheduledTask.CancelledState> cancelled = new AtomicReference<>();
+        batches.schedule(() -> {
+            ran.add("canceller");
+            cancelled.set(later.get().cancel());
+        }, spawn, 1L);
+        later.set(batches.schedule(() -> ran.add("cancelled"), spawn, 1L));
+
+        folia.tick(2);
+        assertEquals(List.of("canceller"), ran);
+        assertEquals(ScheduledTask.CancelledState.CANCELLED_BY_CALLER, cancelled.get());
+    }
+
+    @Test
+    void memberSubmittedWhileItsBatchDrainsGoesToAFreshBatch() {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        batches.schedule(() -> {
+            ran.add("draining");
+            batches.schedule(() -> ran.add("next batch"), spawn, 0L);
+        }, spawn, 1L);
+
+        folia.tick(3);
+        assertEquals(List.of("draining", "next batch"), ran);
+        assertEquals(0, batches.batchCount());
+    }
+}
@@ -0,0 +1,546 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import summer.foliaPhantom.testsupport.Fakes;
+import summer.foliaPhantom.testsupport.LogCapture;
+import summer.foliaPhantom.testsupport.SchedulerHarness;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bukkit scheduling semantics of {@link FoliaSchedulerProxy} on a fake Folia server, with timer coalescing and
+ * one-shot batching both on and off.
+ */
+class FoliaSchedulerProxyTest {
+
+    @ParameterizedTest(name = "coalesce={0}, batch={1}")
+    @CsvSource({"false,false", "true,true"})
+    void delayedTaskRunsOnceOnTheSpawnRegionAfterItsDelay(boolean coalesce, boolean batch) {
+        try (SchedulerHarness harness = new SchedulerHarness(2, coalesce, batch, true)) {
+            Plugin plugin = harness.plugin("Sample");
+            Location spawn = harness.folia.world().getSpawnLocation();
+            List<Long> runTicks = new ArrayList<>();
+            AtomicBoolean onSpawnRegion = new AtomicBoolean();
+            BukkitTask task = harness.scheduler.runTaskLater(plugin, () -> {
+                runTicks.add(harness.folia.currentTick());
+                onSpawnRegion.set(Bukkit.isOwnedByCurrentRegion(spawn));
+            }, 3L);
+
+            harness.folia.tick(2);
+            assertTrue(runTicks.isEmpty());
+            assertTrue(harness.scheduler.isQueued(task.getTaskId()));
+            harness.folia.tick(3);
+            assertEquals(List.of(3L), runTicks);
+            assertTrue(onSpawnRegion.get());
+            assertFalse(harness.scheduler.isQueued(task.getTaskId()));
+            assertEquals(0, harness.scheduler.getTaskRegistry().size());
+            assertEquals(0, harness.delegatedCalls());
+        }
+    }
+
+    @ParameterizedTest(name = "coalesce={0}, batch={1}")
+    @CsvSource({"false,false", "true,true"})
+    void timerRunsEveryPeriodUntilItCancelsItself(boolean coalesce, boolean batch) {
+        try (SchedulerHarness harness = new SchedulerHarness(2, coalesce, batch, true)) {
+            Plugin plugin = harness.plugin("Sample");
+            List<Long> runTicks = new ArrayList<>();
+            harness.scheduler.runTaskTimer(plugin, task -> {
+                runTicks.add(harness.folia.currentTick());
+                if (runTicks.size() == 3) task.cancel();
+            }, 2L, 5L);
+
+            harness.folia.tick(30);
+            assertEquals(List.of(2L, 7L, 12L), runTicks);
+            assertEquals(0, harness.scheduler.getTaskRegistry().size());
+        }
+    }
+
+    @ParameterizedTest(name = "coalesce={0}, batch={1}")
+    @CsvSource({"false,false", "true,true"})
+    void cancelledTaskNeverRuns(boolean coalesce, boolean batch) {
+        try (SchedulerHarness harness = new SchedulerHarness(2, coalesce, batch, true)) {
+            Plugin plugin = harness.plugin("Sample");
+            AtomicInteger runs = new AtomicInteger();
+            int oneShot = harness.scheduler.runTaskLater(plugin, runs::incrementAndGet, 2L).getTaskId();
+            int timer = harness.scheduler.runTaskTimer(plugin, runs::incrementAndGet, 2L, 2L).getTaskId();
+            harness.folia.tick();
+            harness.scheduler.cancelTask(oneShot);
+            harness.scheduler.cancelTask(timer);
+
+            harness.folia.tick(10);
+            assertEquals(0, runs.get());
+            assertFalse(harness.scheduler.isQueued(oneShot));
+            assertFalse(harness.scheduler.isQueued(timer));
+            assertEquals(0, harness.scheduler.getTaskRegistry().size());
+        }
+    }
+
+    @Test
+    void asyncTasksRunOffTheTickThreads() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, true, true, true)) {
+            Plugin plugin = harness.plugin("Sample");
+            AtomicBoolean ran = new AtomicBoolean();
+            AtomicBoolean onTickThread = new AtomicBoolean();
+            harness.scheduler.runTaskLaterAsynchronously(plugin, () -> {
+                onTickThread.set(Bukkit.isPrimaryThread());
+                ran.set(true);
+            }, 2L);
+
+            harness.folia.tick(3);
+            assertTrue(ran.get());
+            assertFalse(onTickThread.get());
+        }
+    }
+
+    @Test
+    void cancelTasksOnlyCancelsThatPlugin() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, true, true, true)) {
+            Plugin disabled = harness.plugin("Disabled");
+            Plugin other = harness.plugin("Other");
+            AtomicInteger disabledRuns = new AtomicInteger();
+            AtomicInteger otherRuns = new AtomicInteger();
+            for (int i = 0; i < 10; i++) {
+                harness.scheduler.runTaskLater(disabled, disabledRuns::incrementAndGet, 2L);
+                harness.scheduler.runTaskTimer(disabled, disabledRuns::incrementAndGet, 2L, 1L);
+                harness.scheduler.runTaskLater(other, otherRuns::incrementAndGet, 2L);
+            }
+
+            harness.scheduler.cancelTasks(disabled);
+            harness.folia.tick(5);
+            assertEquals(0, disabledRuns.get());
+            assertEquals(10, otherRuns.get());
+            assertEquals(0, harness.scheduler.getTaskRegistry().sizeOf(disabled));
+            assertTrue(harness.metrics.report("Disabled", false).get(1).startsWith("No tasks recorded"));
+            assertTrue(harness.metrics.report("Other", false).get(1).startsWith("Other: scheduled=10"));
+        }
+    }
+
+    @Test
+    void cancelTasksCancelsATaskWhoseFoliaTaskIsNotBoundYet() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, false, false, false)) {
+            Plugin plugin = harness.plugin("Disabled");
+            AtomicReference<FoliaSchedulerProxy> scheduler = new AtomicReference<>();
+            // Cancels in the middle of the Folia submission: registered, but its Folia task not yet returned.
+            RegionScheduler cancellingRegionScheduler = Fakes.forwarding(RegionScheduler.class, "CancellingRegionScheduler",
+                    () -> {
+                        scheduler.get().cancelTasks(plugin);
+                        return harness.folia.regionScheduler();
+                    });
+            FoliaSchedulerAdapter adapter = new FoliaSchedulerAdapter(harness.phantom, harness.folia.asyncScheduler(),
+                    cancellingRegionScheduler, harness.folia.globalRegionScheduler(), null, null);
+            scheduler.set(new FoliaSchedulerProxy(harness.scheduler, adapter, true, harness.router, null, null));
+            AtomicInteger runs = new AtomicInteger();
+
+            BukkitTask task = scheduler.get().runTaskTimer(plugin, runs::incrementAndGet, 1L, 1L);
+            assertTrue(task.isCancelled());
+            harness.drain(5);
+            assertEquals(0, runs.get());
+        }
+    }
+
+    @Test
+    void pluginThatIsNotEnabledYetIsDelegated() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, true, true, true)) {
+            Plugin plugin = harness.plugin("Loading");
+            harness.folia.setEnabled(plugin, false);
+            harness.scheduler.runTask(plugin, () -> {
+            });
+            assertEquals(1, harness.delegatedCalls());
+            assertEquals(0, harness.scheduler.getTaskRegistry().size());
+        }
+    }
+
+    @Test
+    void delegationIsLoggedOncePerPluginAndInterval() {
+        try (LogCapture log = LogCapture.of("FoliaSchedulerProxy");
+             SchedulerHarness harness = new SchedulerHarness(2, true, true, true)) {
+            Plugin loading = harness.plugin("Loading");
+            Plugin starting = harness.plugin("Starting");
+            harness.folia.setEnabled(loading, false);
+            harness.folia.setEnabled(starting, false);
+            for (int i = 0; i < 100; i++) {
+                harness.scheduler.runTask(loading, () -> {
+                });
+                harness.scheduler.runTaskLater(starting, () -> {
+                }, 1L);
+            }
+            assertEquals(200, harness.delegatedCalls());
+            assertEquals(2, log.matching("not fully enabled").size());
+        }
+    }
+
+    @ParameterizedTest(name = "coalesce={0}, batch={1}")
+    @CsvSource({"false,false", "true,true"})
+    void throwingTaskDoesNotStopTheOthers(boolean coalesce, boolean batch) {
+        try (SchedulerHarness harness = new SchedulerHarness(2, coalesce, batch, true)) {
+            Plugin plugin = harness.plugin("Sample");
+            AtomicInteger runs = new AtomicInteger();
+            harness.scheduler.runTaskLater(plugin, () -> {
+                throw new IllegalStateException("expected by the test");
+            }, 1L);
+            harness.scheduler.runTaskLater(plugin, runs::incrementAndGet, 1L);
+
+            harness.folia.tick(2);
+            assertEquals(1, runs.get());
+            assertEquals(0, harness.scheduler.getTaskRegistry().size());
+        }
+    }
+
+    @Test
+    void coalescedTimerExceptionsAreLoggedWithTheirStackTracePerPlugin() {
+        try (LogCapture log = LogCapture.of("FoliaPhantom");
+             SchedulerHarness harness = new SchedulerHarness(2, true, false, true)) {
+            for (String name : List.of("First", "Second")) {
+                harness.scheduler.runTaskTimer(harness.plugin(name), () -> {
+                    throw new IllegalStateException("expected by the test");
+                }, 1L, 1L);
+            }
+
+            harness.folia.tick(5);
+            List<LogRecord> records = log.matching("generated an exception");
+            assertEquals(2, records.size(), "one record per plugin, repeats rate-limited");
+            for (LogRecord record : records) {
+                assertEquals(Level.SEVERE, record.getLevel());
+                assertTrue(record.getThrown() instanceof IllegalStateException);
+            }
+            assertTrue(records.get(0).getMessage().contains(" for First "), records.get(0).getMessage());
+            assertTrue(records.get(1).getMessage().contains(" for Second "), records.get(1).getMessage());
+        }
+    }
+
+    @Test
+    void oneShotTasksAreBatchedOnlyForPluginsThatOptedIn() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, false, true, true)) {
+            Plugin batched = harness.plugin("Batched");
+            Plugin unbatched = harness.folia.plugin("Unbatched"); // batch-one-shot-tasks left at its default
+            int liveBefore = harness.folia.liveTaskCount();
+            AtomicInteger runs = new AtomicInteger();
+            for (int i = 0; i < 10; i++) {
+                harness.scheduler.runTaskLater(batched, runs::incrementAndGet, 2L);
+                harness.scheduler.runTaskLater(unbatched, runs::incrementAndGet, 2L);
+            }
+            // One batch and its seal for Batched, one Folia task per call for Unbatched.
+            assertEquals(liveBefore + 2 + 10, harness.folia.liveTaskCount());
+
+            harness.folia.tick(3);
+            assertEquals(20, runs.get());
+        }
+    }
+
+    @Test
+    void batchedTaskExceptionsAreLoggedWithTheirStackTracePerPlugin() {
+        try (LogCapture log = LogCapture.of("FoliaPhantom");
+             SchedulerHarness harness = new SchedulerHarness(2, false, true, true)) {
+            for (String name : List.of("First", "Second")) {
+                for (int i = 0; i < 3; i++) {
+                    harness.scheduler.runTaskLater(harness.plugin(name), () -> {
+                        throw new NullPointerException("expected by the test");
+                    }, 1L);
+                }
+            }
+
+            harness.folia.tick(2);
+            List<LogRecord> records = log.matching("generated an exception");
+            assertEquals(2, records.size(), "one record per plugin, repeats rate-limited");
+            for (LogRecord record : records) {
+                assertEquals(Level.SEVERE, record.getLevel());
+                assertTrue(record.getThrown() instanceof NullPointerException);
+            }
+        }
+    }
+
+    // --- callSyncMethod ---
+
+    @Test
+    void callSyncMethodCompletesWithTheCallablesValueOrException() throws Exception {
+        try (SchedulerHarness harness = new SchedulerHarness(2, false, false, true)) {
+            Plugin plugin = harness.plugin("Caller");
+            AtomicBoolean onTickThread = new AtomicBoolean();
+            Future<Integer> value = harness.scheduler.callSyncMethod(plugin, () -> {
+                onTickThread.set(Bukkit.isPrimaryThread());
+                return 42;
+            });
+            Future<Integer> failure = harness.scheduler.callSyncMethod(plugin, () -> {
+                throw new IOException("expected by the test");
+            });
+            assertFalse(value.isDone());
+
+            harness.folia.tick();
+            assertEquals(42, value.get(1, TimeUnit.SECONDS));
+            assertTrue(onTickThread.get());
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> failure.get(1, TimeUnit.SECONDS));
+            assertTrue(thrown.getCause() instanceof IOException, String.valueOf(thrown.getCause()));
+            assertEquals(0, harness.scheduler.getTaskRegistry().sizeOf(plugin));
+        }
+    }
+
+    @Test
+    void cancellingTheFutureCancelsItsTask() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, false, false, true)) {
+            Plugin plugin = harness.plugin("Caller");
+            AtomicInteger calls = new AtomicInteger();
+            Future<Integer> future = harness.scheduler.callSyncMethod(plugin, calls::incrementAndGet);
+            assertEquals(1, harness.scheduler.getTaskRegistry().sizeOf(plugin));
+
+            assertTrue(future.cancel(false));
+            assertEquals(0, harness.scheduler.getTaskRegistry().sizeOf(plugin));
+            harness.drain(3);
+            assertEquals(0, calls.get());
+            assertTrue(future.isCancelled());
+        }
+    }
+
+    @Test
+    void cancelTasksReleasesCallersWaitingForAResult() throws Exception {
+        try (SchedulerHarness harness = new SchedulerHarness(2, false, false, true)) {
+            Plugin plugin = harness.plugin("Disabled");
+            AtomicInteger calls = new AtomicInteger();
+            Future<Integer> future = harness.scheduler.callSyncMethod(plugin, calls::incrementAndGet);
+            AtomicReference<Throwable> released = new AtomicReference<>();
+            Thread waiter = new Thread(() -> {
+                try {
+                    future.get();
+                } catch (Throwable t) {
+                    released.set(t);
+                }
+            }, "Waiter");
+            waiter.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (waiter.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.onSpinWait(); // Until it is parked in get()
+            }
+
+            harness.scheduler.cancelTasks(plugin);
+            waiter.join(TimeUnit.SECONDS.toMillis(5));
+            assertFalse(waiter.isAlive(), "get() still blocked after cancelTasks");
+            assertTrue(released.get() instanceof CancellationException, String.valueOf(released.get()));
+            harness.drain(3);
+            assertEquals(0, calls.get());
+        }
+    }
+
+    @Test
+    void waitingForAResultOnATickThreadIsCountedAndLogged() {
+        try (LogCapture log = LogCapture.of("FoliaSchedulerProxy");
+             SchedulerHarness harness = new SchedulerHarness(2, false, false, true)) {
+            Plugin plugin = harness.plugin("Blocking");
+            Future<Integer> future = harness.scheduler.callSyncMethod(plugin, () -> 1);
+            AtomicReference<Throwable> waited = new AtomicReference<>();
+            harness.folia.runOnGlobal(() -> {
+                try {
+                    future.get(1, TimeUnit.MILLISECONDS);
+                } catch (Throwable t) {
+                    waited.set(t);
+                }
+            });
+
+            assertTrue(waited.get() instanceof TimeoutException, String.valueOf(waited.get()));
+            List<LogRecord> records = log.matching("waits for a callSyncMethod result on tick thread");
+            assertEquals(1, records.size());
+            assertTrue(records.get(0).getMessage().startsWith("[PhantomScheduler] Blocking "), records.get(0).getMessage());
+            assertTrue(harness.metrics.report("Blocking", false).get(1).contains(" blocking-gets=1 "),
+                    harness.metrics.report("Blocking", false).get(1));
+
+            harness.folia.tick();
+            assertFalse(future.isCancelled());
+            assertTrue(future.isDone());
+        }
+    }
+
+    // --- ENTITY routing ---
+
+    @Test
+    void entityModeRunsATaskHoldingAnEntityOnThatEntitysScheduler() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, true, true, true)) {
+            Plugin plugin = harness.plugin("Entities");
+            harness.router.setMode(plugin.getName(), SyncTaskRouter.Mode.ENTITY);
+            Location first = new Location(harness.folia.world(), 4096, 64, 4096);
+            Location second = new Location(harness.folia.world(), -4096, 64, 4096);
+            Entity entity = harness.folia.spawnEntity(first);
+            List<String> ran = Collections.synchronizedList(new ArrayList<>());
+            Runnable followsEntity = () -> {
+                entity.getLocation(); // Holds the entity, as a task acting on it would
+                ran.add(whereAmI(first, second));
+            };
+
+            harness.scheduler.runTaskTimer(plugin, followsEntity, 1L, 1L);
+            harness.folia.tick();
+            harness.folia.moveEntity(entity, second);
+            harness.folia.tick();
+            assertEquals(List.of("first", "second"), ran);
+            assertTrue(harness.metrics.report("Entities", true).stream().anyMatch(line -> line.contains("entity=1")),
+                    String.join("\n", harness.metrics.report("Entities", true)));
+        }
+    }
+
+    @Test
+    void entityModeRoutesATaskWithoutAnEntityLikeContext() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, true, true, true)) {
+            Plugin plugin = harness.plugin("Entities");
+            harness.router.setMode(plugin.getName(), SyncTaskRouter.Mode.ENTITY);
+            Location spawn = harness.folia.world().getSpawnLocation();
+            Location playerRegion = new Location(harness.folia.world(), 4096, 64, 4096);
+            harness.folia.spawnPlayer(playerRegion);
+            List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+            harness.scheduler.runTask(plugin, () -> ran.add("from async: " + whereAmI(spawn, playerRegion)));
+            harness.folia.runOnRegion(playerRegion, () -> harness.scheduler.runTask(plugin,
+                    () -> ran.add("from player region: " + whereAmI(spawn, playerRegion))));
+            harness.drain(3);
+            assertEquals(List.of("from async: first", "from player region: second"), ran.stream().sorted().toList());
+        }
+    }
+
+    @Test
+    void entityModeTimerContinuesOnTheGlobalRegionOnceItsEntityIsRemoved() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, true, true, true)) {
+            Plugin plugin = harness.plugin("Entities");
+            harness.router.setMode(plugin.getName(), SyncTaskRouter.Mode.ENTITY);
+            Location location = new Location(harness.folia.world(), 4096, 64, 4096);
+            Entity entity = harness.folia.spawnEntity(location);
+            List<String> ran = Collections.synchronizedList(new ArrayList<>());
+            Runnable holdsEntity = () -> {
+                entity.getLocation(); // Holds the entity, as a task acting on it would
+                ran.add(whereAmI(location, null));
+            };
+
+            BukkitTask task = harness.scheduler.runTaskTimer(plugin, holdsEntity, 1L, 1L);
+            harness.folia.tick(2);
+            harness.folia.removeEntity(entity);
+            harness.folia.tick(4);
+            assertEquals(List.of("first", "first"), ran.subList(0, 2));
+            assertTrue(ran.size() >= 4, String.valueOf(ran));
+            assertEquals(List.of("global", "global"), ran.subList(ran.size() - 2, ran.size()));
+            assertFalse(task.isCancelled());
+            assertEquals(1, harness.scheduler.getTaskRegistry().sizeOf(plugin));
+
+            task.cancel();
+            int runs = ran.size();
+            harness.folia.tick(2);
+            assertEquals(runs, ran.size());
+        }
+    }
+
+    /**
+     * @return "first" or "second" when the current thread owns that location's region, "global" on the global region
+     */
+    private static String whereAmI(Location first, Location second) {
+        if (Bukkit.isGlobalTickThread()) return "global";
+        if (first != null && Bukkit.isOwnedByCurrentRegion(first)) return "first";
+        if (second != null && Bukkit.isOwnedByCurrentRegion(second)) return "second";
+        return "elsewhere";
+    }
+
+    // --- Tick budget ---
+
+    @Test
+    void pluginOverItsShareIsDeferredOnlyOnceTheTickIsOverBudget() {
+        try (SchedulerHarness harness = new SchedulerHarness(1, false, false, false, 10L, 3)) {
+            TickBudget budget = harness.tickBudget;
+            Plugin heavy = harness.plugin("Heavy");
+            Plugin light = harness.plugin("Light");
+            budget.setWeight(heavy.getName(), 1); // As SchedulerManager does for every wrapped plugin
+            budget.setWeight(light.getName(), 1);
+            harness.folia.tick();
+
+            budget.charge(heavy, millis(6));
+            assertFalse(budget.shouldDefer(heavy, 0), "a lone busy plugin is not held to its share");
+            budget.charge(light, millis(4));
+            assertTrue(budget.shouldDefer(heavy, 0));
+            assertFalse(budget.shouldDefer(light, 0), "still under its share of 5ms");
+            assertFalse(budget.shouldDefer(heavy, 3), "deferred max-deferrals times already");
+        }
+    }
+
+    @Test
+    void weightsChangeTheShares() {
+        try (SchedulerHarness harness = new SchedulerHarness(1, false, false, false, 10L, 3)) {
+            TickBudget budget = harness.tickBudget;
+            Plugin heavy = harness.plugin("Heavy");
+            Plugin light = harness.plugin("Light");
+            budget.setWeight(heavy.getName(), 3);
+            budget.setWeight(light.getName(), 1);
+            harness.folia.tick();
+
+            budget.charge(heavy, millis(6));
+            budget.charge(light, millis(4));
+            assertFalse(budget.shouldDefer(heavy, 0), "6ms is under a 3/4 share of 7.5ms");
+            assertTrue(budget.shouldDefer(light, 0), "4ms is over a 1/4 share of 2.5ms");
+        }
+    }
+
+    @Test
+    void budgetWindowStartsOverOnTheNextClockTick() {
+        try (SchedulerHarness harness = new SchedulerHarness(1, false, false, false, 10L, 3)) {
+            TickBudget budget = harness.tickBudget;
+            Plugin heavy = harness.plugin("Heavy");
+            harness.folia.tick();
+            budget.charge(heavy, millis(12));
+            assertTrue(budget.shouldDefer(heavy, 0));
+
+            long clockTick = harness.tickClock.now();
+            harness.folia.tick();
+            assertEquals(clockTick + 1, harness.tickClock.now());
+            assertFalse(budget.shouldDefer(heavy, 0));
+        }
+    }
+
+    @Test
+    void deferredOneShotStaysRegisteredAndRunsExactlyOnceOnTheNextTick() {
+        try (SchedulerHarness harness = new SchedulerHarness(2, false, false, true, 1L, 5)) {
+            Plugin heavy = harness.plugin("Heavy");
+            List<Long> ranAt = Collections.synchronizedList(new ArrayList<>());
+            Runnable spinning = () -> {
+                ranAt.add(harness.folia.currentTick());
+                long until = System.nanoTime() + millis(3);
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait(); // Uses up the 1ms budget of its region tick
+                }
+            };
+            harness.scheduler.runTask(heavy, spinning);
+            harness.scheduler.runTask(heavy, spinning);
+
+            harness.folia.tick();
+            assertEquals(1, ranAt.size());
+            assertEquals(1, harness.scheduler.getTaskRegistry().sizeOf(heavy), "the deferred run is still registered");
+            harness.folia.tick();
+            assertEquals(2, ranAt.size());
+            assertEquals(ranAt.get(0) + 1, ranAt.get(1));
+            harness.drain(3);
+            assertEquals(2, ranAt.size());
+            assertEquals(0, harness.scheduler.getTaskRegistry().sizeOf(heavy));
+            assertTrue(harness.metrics.report("Heavy", false).get(1).contains(" deferred=1 "),
+                    harness.metrics.report("Heavy", false).get(1));
+        }
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
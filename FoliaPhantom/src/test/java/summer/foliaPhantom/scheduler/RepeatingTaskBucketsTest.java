@@ -0,0 +1,67 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import summer.foliaPhantom.testsupport.FakeFolia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * When members of a {@link RepeatingTaskBuckets} bucket first run, whichever bucket they land in.
+ */
+class RepeatingTaskBucketsTest {
+    private final TickClock tickClock = new TickClock();
+    private FakeFolia folia;
+    private RepeatingTaskBuckets buckets;
+    private Location spawn;
+
+    @BeforeEach
+    void setUp() {
+        folia = new FakeFolia(2).installAsBukkitServer();
+        Plugin phantom = folia.plugin("FoliaPhantom");
+        tickClock.start(phantom, folia.globalRegionScheduler());
+        buckets = new RepeatingTaskBuckets(phantom, folia.regionScheduler(), folia.globalRegionScheduler(), tickClock);
+        spawn = folia.world().getSpawnLocation();
+        folia.tick(); // Let the clock catch up with FakeFolia's tick
+    }
+
+    @AfterEach
+    void tearDown() {
+        tickClock.stop();
+        folia.close();
+    }
+
+    @Test
+    void laterJoinerWithTheSamePhaseStartsOnItsOwnFirstRun() {
+        long start = folia.currentTick();
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        buckets.schedule(() -> ran.add("early " + (folia.currentTick() - start)), spawn, 20L, 20L);
+        folia.tick(10);
+        buckets.schedule(() -> ran.add("late " + (folia.currentTick() - start)), spawn, 30L, 20L);
+        assertEquals(1, buckets.bucketCount());
+
+        folia.tick(50);
+        assertEquals(List.of("early 20", "early 40", "late 40", "early 60", "late 60"), ran);
+    }
+
+    @Test
+    void shortDelayDoesNotWaitForABucketOpenedWithALongOne() {
+        long start = folia.currentTick();
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        buckets.schedule(() -> ran.add("long " + (folia.currentTick() - start)), spawn, 40L, 20L);
+        folia.tick();
+        buckets.schedule(() -> ran.add("short " + (folia.currentTick() - start)), spawn, 19L, 20L);
+        buckets.schedule(() -> ran.add("after short " + (folia.currentTick() - start)), spawn, 39L, 20L);
+
+        folia.tick(60);
+        assertEquals(List.of("short 20", "long 40", "short 40", "after short 40", "long 60", "short 60",
+                "after short 60"), ran);
+    }
+}
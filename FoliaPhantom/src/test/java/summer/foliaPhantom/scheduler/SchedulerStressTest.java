@@ -0,0 +1,200 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import summer.foliaPhantom.testsupport.SchedulerHarness;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives millions of schedule, cancel and isQueued calls from many threads through {@link FoliaSchedulerProxy}
+ * while a fake Folia server ticks underneath, then checks the id and registry invariants and reports throughput
+ * and latency percentiles. Run with {@code mvn test -Pstress}; {@code -Dphantom.stress.ops=N} sets the calls
+ * per thread.
+ */
+@Tag("stress")
+class SchedulerStressTest {
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = Integer.getInteger("phantom.stress.ops", 250_000);
+    private static final int RECENT = 64; // Ids each thread remembers for cancel and isQueued calls
+
+    @ParameterizedTest(name = "coalesce={0}, batch={1}")
+    @CsvSource({"false,false", "true,true"})
+    void manyThreadsScheduleCancelAndQuery(boolean coalesce, boolean batch) throws Exception {
+        try (SchedulerHarness harness = new SchedulerHarness(4, coalesce, batch, true)) {
+            FoliaSchedulerProxy scheduler = harness.scheduler;
+            Plugin[] plugins = {harness.plugin("A"), harness.plugin("B"), harness.plugin("C")};
+            int maxIds = THREADS * OPS_PER_THREAD;
+            AtomicIntegerArray issued = new AtomicIntegerArray(maxIds);
+            AtomicIntegerArray runs = new AtomicIntegerArray(maxIds);
+            AtomicIntegerArray cancelled = new AtomicIntegerArray(maxIds);
+            AtomicIntegerArray repeating = new AtomicIntegerArray(maxIds);
+            long[][] scheduleNanos = new long[THREADS][];
+            long[][] cancelNanos = new long[THREADS][];
+            long[][] queryNanos = new long[THREADS][];
+            int[] duplicateIds = new int[1];
+
+            AtomicBoolean ticking = new AtomicBoolean(true);
+            Thread ticker = new Thread(() -> {
+                while (ticking.get()) harness.folia.tick();
+            }, "ticker");
+            ticker.start();
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                workers.add(new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int[] recent = new int[RECENT];
+                    int recentCount = 0;
+                    LongList schedules = new LongList();
+                    LongList cancels = new LongList();
+                    LongList queries = new LongList();
+                    awaitQuietly(start);
+                    for (int op = 0; op < OPS_PER_THREAD; op++) {
+                        int roll = random.nextInt(100);
+                        Plugin plugin = plugins[random.nextInt(plugins.length)];
+                        if (roll < 57 || recentCount == 0) {
+                            long begin = System.nanoTime();
+                            int id;
+                            AtomicInteger idHolder = new AtomicInteger();
+                            Runnable body = () -> {
+                                int self;
+                                while ((self = idHolder.get()) == 0) {
+                                    Thread.onSpinWait(); // Ran before its scheduling call returned
+                                }
+                                runs.incrementAndGet(self - TaskRegistry.FIRST_TASK_ID);
+                            };
+                            boolean timer = roll < 2;
+                            if (timer) {
+                                id = scheduler.runTaskTimer(plugin, body, 1 + random.nextInt(3), 1 + random.nextInt(3)).getTaskId();
+                            } else if (roll < 7) {
+                                id = scheduler.runTaskLaterAsynchronously(plugin, body, 1 + random.nextInt(5)).getTaskId();
+                            } else if (roll < 17) {
+                                id = scheduler.runTask(plugin, body).getTaskId();
+                            } else {
+                                id = scheduler.runTaskLater(plugin, body, 1 + random.nextInt(5)).getTaskId();
+                            }
+                            schedules.add(System.nanoTime() - begin);
+                            idHolder.set(id);
+                            int index = id - TaskRegistry.FIRST_TASK_ID;
+                            if (issued.getAndSet(index, 1) != 0) {
+                                synchronized (duplicateIds) {
+                                    duplicateIds[0]++;
+                                }
+                            }
+                            if (timer) repeating.set(index, 1);
+                            recent[recentCount++ % RECENT] = id;
+                            if (recentCount == 2 * RECENT) recentCount = RECENT;
+                        } else if (roll < 75) {
+                            int id = recent[random.nextInt(Math.min(recentCount, RECENT))];
+                            long begin = System.nanoTime();
+                            scheduler.cancelTask(id);
+                            cancels.add(System.nanoTime() - begin);
+                            cancelled.set(id - TaskRegistry.FIRST_TASK_ID, 1);
+                        } else {
+                            int id = recent[random.nextInt(Math.min(recentCount, RECENT))];
+                            long begin = System.nanoTime();
+                            scheduler.isQueued(id);
+                            queries.add(System.nanoTime() - begin);
+                        }
+                    }
+                    scheduleNanos[thread] = schedules.toArray();
+                    cancelNanos[thread] = cancels.toArray();
+                    queryNanos[thread] = queries.toArray();
+                }, "worker-" + t));
+            }
+            workers.forEach(Thread::start);
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join(TimeUnit.MINUTES.toMillis(10));
+            }
+            long elapsedNanos = System.nanoTime() - begin;
+            ticking.set(false);
+            ticker.join();
+
+            harness.folia.tick(10); // Every one-shot task is due by now
+            for (Plugin plugin : plugins) {
+                scheduler.cancelTasks(plugin); // Stops the remaining timers
+            }
+            harness.drain(50);
+
+            long totalOps = (long) THREADS * OPS_PER_THREAD;
+            System.out.printf("[stress coalesce=%s batch=%s] %,d calls in %,d ms: %,.0f calls/s%n", coalesce, batch,
+                    totalOps, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), totalOps * 1e9 / elapsedNanos);
+            long[] schedule = report("schedule", scheduleNanos);
+            report("cancelTask", cancelNanos);
+            report("isQueued", queryNanos);
+
+            assertEquals(0, duplicateIds[0], "ids handed out twice");
+            assertEquals(0, harness.delegatedCalls(), "calls passed on to the original scheduler");
+            assertEquals(List.of(), harness.folia.uncaught(), "exceptions thrown by tasks");
+            assertEquals(0, scheduler.getTaskRegistry().size(), "registry entries left after every task ended");
+            for (Plugin plugin : plugins) {
+                assertEquals(0, scheduler.getTaskRegistry().sizeOf(plugin), "per-plugin index entries left");
+            }
+            int lost = 0;
+            for (int i = 0; i < maxIds; i++) {
+                if (issued.get(i) == 0 || repeating.get(i) != 0) continue;
+                int count = runs.get(i);
+                assertTrue(count <= 1, "one-shot task " + (i + TaskRegistry.FIRST_TASK_ID) + " ran " + count + " times");
+                if (count == 0 && cancelled.get(i) == 0) lost++;
+            }
+            assertEquals(0, lost, "one-shot tasks that were never cancelled and never ran");
+            assertTrue(percentile(schedule, 99.0) < TimeUnit.MILLISECONDS.toNanos(10), "p99 schedule latency");
+        }
+    }
+
+    private static long[] report(String operation, long[][] perThread) {
+        long[] all = Arrays.stream(perThread).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("  %-10s n=%,d p50=%,dns p99=%,dns p99.9=%,dns max=%,dns%n", operation, all.length,
+                percentile(all, 50.0), percentile(all, 99.0), percentile(all, 99.9), all.length > 0 ? all[all.length - 1] : 0L);
+        return all;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0L;
+        int index = (int) Math.ceil(sorted.length * percentile / 100.0) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Growable primitive list, so recording latencies does not box or contend.
+     */
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
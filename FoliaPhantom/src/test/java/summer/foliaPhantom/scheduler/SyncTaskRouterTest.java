@@ -0,0 +1,133 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import summer.foliaPhantom.testsupport.FakeFolia;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncTaskRouterTest {
+    private FakeFolia folia;
+    private DefaultLocationCache defaultLocationCache;
+
+    @BeforeEach
+    void setUp() {
+        folia = new FakeFolia(2).installAsBukkitServer();
+        folia.createWorld("world_the_end");
+        folia.createWorld("world_nether");
+        defaultLocationCache = new DefaultLocationCache(Logger.getLogger("FoliaPhantom"));
+        folia.runOnGlobal(defaultLocationCache::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        folia.close();
+    }
+
+    @Test
+    void hashedPinsEachPluginToOneAnchorWhilePlayersComeAndGo() {
+        SyncTaskRouter router = router(SyncTaskRouter.Mode.HASHED, "A", "B", "C", "D", "E", "F");
+        Set<String> worlds = new HashSet<>();
+        for (String name : List.of("A", "B", "C", "D", "E", "F")) {
+            Plugin plugin = folia.plugin(name);
+            Location first = router.route(plugin, false);
+            worlds.add(first.getWorld().getName());
+            for (int i = 0; i < 20; i++) {
+                Player player = folia.spawnPlayer(new Location(folia.world(), i * 300, 64, -i * 300));
+                assertSame(first, router.route(plugin, i % 2 == 0), name + " moved after " + i + " players joined");
+                if (i % 3 == 0) folia.removeEntity(player);
+            }
+            assertEquals(0, Math.floorMod(first.getBlockX() >> 4, 64), "not on the anchor grid: " + first);
+            assertEquals(0, Math.floorMod(first.getBlockZ() >> 4, 64), "not on the anchor grid: " + first);
+        }
+        assertTrue(worlds.size() > 1, "every plugin hashed to " + worlds);
+    }
+
+    @Test
+    void hashedSpreadsPluginsOverRegionsOfOneWorld() {
+        try (FakeFolia singleWorld = new FakeFolia(1)) {
+            singleWorld.installAsBukkitServer();
+            List<String> names = List.of("A", "B", "C", "D", "E", "F");
+            SyncTaskRouter router = router(SyncTaskRouter.Mode.HASHED, names.toArray(new String[0]));
+            Set<String> regions = new HashSet<>();
+            for (String name : names) {
+                regions.add(regionOf(router.route(singleWorld.plugin(name), false)));
+            }
+            assertTrue(regions.size() > 1, "every plugin hashed to " + regions);
+        } finally {
+            folia.installAsBukkitServer();
+        }
+    }
+
+    @Test
+    void hashedChoiceDoesNotDependOnWorldLoadOrder() {
+        List<String> names = List.of("A", "B", "C", "D", "E", "F");
+        SyncTaskRouter router = router(SyncTaskRouter.Mode.HASHED, names.toArray(new String[0]));
+        List<String> chosen = names.stream().map(n -> regionOf(router.route(folia.plugin(n), false))).toList();
+
+        try (FakeFolia reordered = new FakeFolia(1)) {
+            reordered.createWorld("world_nether"); // After "world", before "world_the_end" this time
+            reordered.createWorld("world_the_end");
+            reordered.installAsBukkitServer();
+            SyncTaskRouter other = router(SyncTaskRouter.Mode.HASHED, names.toArray(new String[0]));
+            assertEquals(chosen, names.stream().map(n -> regionOf(other.route(reordered.plugin(n), false))).toList());
+        } finally {
+            folia.installAsBukkitServer();
+        }
+    }
+
+    @Test
+    void contextRoutesToThePlayersRegionFromItsThreadAndToSpawnElsewhere() {
+        SyncTaskRouter router = router(SyncTaskRouter.Mode.CONTEXT, "Events");
+        Plugin plugin = folia.plugin("Events");
+        Location far = new Location(folia.world(), 4096, 64, 4096);
+        folia.spawnPlayer(far);
+        Location spawn = folia.world().getSpawnLocation();
+
+        AtomicReference<Location> onPlayerRegion = new AtomicReference<>();
+        AtomicReference<Location> timerOnPlayerRegion = new AtomicReference<>();
+        folia.runOnRegion(far, () -> {
+            onPlayerRegion.set(router.route(plugin, false));
+            timerOnPlayerRegion.set(router.route(plugin, true));
+        });
+        assertEquals(far.getBlockX(), onPlayerRegion.get().getBlockX());
+        assertEquals(spawn.getBlockX(), timerOnPlayerRegion.get().getBlockX(), "timers never follow the caller");
+
+        AtomicReference<Location> emptyRegion = new AtomicReference<>();
+        folia.runOnRegion(new Location(folia.world(), -4096, 64, -4096), () -> emptyRegion.set(router.route(plugin, false)));
+        assertEquals(spawn.getBlockX(), emptyRegion.get().getBlockX());
+        assertEquals(spawn.getBlockX(), router.route(plugin, false).getBlockX(), "off a region thread");
+    }
+
+    @Test
+    void globalRoutesToNoLocation() {
+        SyncTaskRouter router = router(SyncTaskRouter.Mode.GLOBAL, "Global");
+        assertNull(router.route(folia.plugin("Global"), false));
+    }
+
+    private static String regionOf(Location location) {
+        int shift = 4 + FakeFolia.REGION_SHIFT;
+        return location.getWorld().getName() + "@" + (location.getBlockX() >> shift) + "," + (location.getBlockZ() >> shift);
+    }
+
+    private SyncTaskRouter router(SyncTaskRouter.Mode mode, String... pluginNames) {
+        SyncTaskRouter router = new SyncTaskRouter(defaultLocationCache, Logger.getLogger("FoliaPhantom"));
+        for (String name : pluginNames) {
+            router.setMode(name, mode);
+        }
+        return router;
+    }
+}
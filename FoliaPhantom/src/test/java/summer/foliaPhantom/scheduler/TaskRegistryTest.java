@@ -0,0 +1,160 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import summer.foliaPhantom.testsupport.Fakes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskRegistryTest {
+    private static final int SOAK_TASKS = Integer.getInteger("phantom.soak.tasks", 40_000_000);
+    private static final Runnable NOOP = () -> {
+    };
+
+    @Test
+    void wrapsFromMaxValueBackToFirstIdSkippingLiveIds() {
+        TaskRegistry registry = new TaskRegistry(Integer.MAX_VALUE - 1);
+        Plugin plugin = plugin("Timers");
+        registry.register(task(TaskRegistry.FIRST_TASK_ID, plugin)); // Still live from the previous cycle
+        registry.register(task(TaskRegistry.FIRST_TASK_ID + 1, plugin));
+
+        assertEquals(Integer.MAX_VALUE - 1, registry.allocateId());
+        assertEquals(Integer.MAX_VALUE, registry.allocateId());
+        assertEquals(TaskRegistry.FIRST_TASK_ID + 2, registry.allocateId());
+        assertEquals(TaskRegistry.FIRST_TASK_ID + 3, registry.allocateId());
+    }
+
+    @Test
+    void concurrentAllocationAcrossTheWrapNeverRepeatsAnId() throws InterruptedException {
+        int threads = 8;
+        int perThread = 100_000;
+        TaskRegistry registry = new TaskRegistry(Integer.MAX_VALUE - threads * perThread / 2);
+        int[][] ids = new int[threads][perThread];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int[] out = ids[t];
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    out[i] = registry.allocateId();
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int[] all = Arrays.stream(ids).flatMapToInt(Arrays::stream).sorted().toArray();
+        assertTrue(all[0] >= TaskRegistry.FIRST_TASK_ID, "id below the first task id: " + all[0]);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i] != all[i - 1], "id handed out twice: " + all[i]);
+        }
+        assertEquals(Integer.MAX_VALUE, all[all.length - 1]);
+    }
+
+    @Test
+    void removeAllDropsTheTasksAndThePluginIndex() {
+        TaskRegistry registry = new TaskRegistry();
+        Plugin disabled = plugin("Disabled");
+        Plugin other = plugin("Other");
+        for (int i = 0; i < 100; i++) {
+            registry.register(task(registry.allocateId(), i % 2 == 0 ? disabled : other));
+        }
+
+        assertEquals(50, registry.removeAll(disabled).size());
+        assertEquals(0, registry.sizeOf(disabled));
+        assertEquals(50, registry.size());
+        assertEquals(50, registry.tasksOf(other).size());
+    }
+
+    /**
+     * Tens of millions of one-shot tasks from many threads, with the id counter wrapping halfway through while
+     * long-lived tasks still hold the lowest ids. Most tasks run and remove themselves; some finish behind the
+     * registry's back and must be caught by the amortized sweep.
+     */
+    @Test
+    @Tag("stress")
+    void soakAllocationWraparoundAndEviction() throws InterruptedException {
+        int threads = 8;
+        int perThread = SOAK_TASKS / threads;
+        int liveTasks = 10_000;
+        int bound = liveTasks + 16 * 4096; // Sweeps visit each stripe once per 16 * 4096 registrations
+        TaskRegistry registry = new TaskRegistry(Integer.MAX_VALUE - SOAK_TASKS / 2);
+        Plugin timers = plugin("Timers");
+        Plugin oneShots = plugin("OneShots");
+        FoliaBukkitTask[] live = new FoliaBukkitTask[liveTasks];
+        for (int i = 0; i < liveTasks; i++) {
+            live[i] = task(TaskRegistry.FIRST_TASK_ID + i, timers);
+            registry.register(live[i]);
+        }
+        ScheduledTask finished = Fakes.proxy(ScheduledTask.class, "Finished",
+                Map.of("getExecutionState", args -> ScheduledTask.ExecutionState.FINISHED));
+
+        AtomicInteger reusedLiveIds = new AtomicInteger();
+        AtomicInteger maxSize = new AtomicInteger();
+        AtomicBoolean wrapped = new AtomicBoolean();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    int id = registry.allocateId();
+                    if (id < TaskRegistry.FIRST_TASK_ID || registry.get(id) != null) {
+                        reusedLiveIds.incrementAndGet();
+                        continue;
+                    }
+                    if (id < Integer.MAX_VALUE / 2) wrapped.set(true);
+                    FoliaBukkitTask task = new FoliaBukkitTask(id, oneShots, NOOP, true);
+                    task.attach(registry, false);
+                    registry.register(task);
+                    if (random.nextInt(64) == 0) {
+                        task.bindScheduledTask(finished); // Finished without running through the handle
+                    } else {
+                        task.run(); // A one-shot task removes itself once it ran
+                    }
+                    if ((i & 0xFFFF) == 0) {
+                        maxSize.accumulateAndGet(registry.size(), Math::max);
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(0, reusedLiveIds.get(), "ids handed out while still live");
+        assertTrue(wrapped.get(), "the id counter never wrapped");
+        assertTrue(maxSize.get() <= bound, "registry grew to " + maxSize.get() + " entries");
+        registry.purgeCompleted();
+        assertEquals(0, registry.sizeOf(oneShots));
+        assertEquals(liveTasks, registry.size());
+        for (FoliaBukkitTask task : live) {
+            assertSame(task, registry.get(task.getTaskId()));
+        }
+        assertEquals(liveTasks, registry.removeAll(timers).size());
+        assertEquals(0, registry.size());
+        assertNull(registry.get(TaskRegistry.FIRST_TASK_ID));
+    }
+
+    private static FoliaBukkitTask task(int id, Plugin plugin) {
+        return new FoliaBukkitTask(id, plugin, NOOP, true);
+    }
+
+    private static Plugin plugin(String name) {
+        return Fakes.proxy(Plugin.class, name, Map.of("getName", args -> name));
+    }
+}
@@ -0,0 +1,70 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import summer.foliaPhantom.testsupport.FakeFolia;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * How {@link VirtualThreadAsyncBackend} lanes start virtual threads for their runs.
+ */
+class VirtualThreadAsyncBackendTest {
+    private FakeFolia folia;
+    private VirtualThreadAsyncBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        folia = new FakeFolia(1).installAsBukkitServer();
+        backend = new VirtualThreadAsyncBackend(folia.plugin("FoliaPhantom"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.shutdown();
+        folia.close();
+    }
+
+    @Test
+    void burstQueuesOnTheLaneInsteadOfStartingAThreadPerRun() throws InterruptedException {
+        Plugin plugin = folia.plugin("Burst");
+        backend.enableFor(plugin.getName(), 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(202);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        Runnable blocking = () -> {
+            threads.add(Thread.currentThread().getName());
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            finished.countDown();
+        };
+
+        for (int i = 0; i < 202; i++) {
+            backend.schedule(plugin, blocking, 0L, 0L);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (running.get() < 2 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(2, mostRunning.get());
+        assertTrue(threads.size() <= 4, threads.size() + " virtual threads ran the burst");
+    }
+}
@@ -0,0 +1,48 @@
+package summer.foliaPhantom.testsupport;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Async scheduler of a {@link FakeFolia}. Delays are measured in virtual ticks of 50ms, rounded up, so async
+ * tasks advance with {@link FakeFolia#tick()} like everything else instead of with the wall clock.
+ */
+public final class FakeAsyncScheduler implements AsyncScheduler {
+    private final FakeFolia folia;
+
+    FakeAsyncScheduler(FakeFolia folia) {
+        this.folia = folia;
+    }
+
+    @Override
+    public ScheduledTask runNow(Plugin plugin, Consumer<ScheduledTask> task) {
+        return folia.runAsyncNow(plugin, task);
+    }
+
+    @Override
+    public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, long delay, TimeUnit unit) {
+        if (delay < 0) throw new IllegalArgumentException("delay may not be < 0");
+        return folia.submit(folia.asyncQueue(), plugin, task, toTicks(delay, unit), 0L, null);
+    }
+
+    @Override
+    public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, long initialDelay, long period, TimeUnit unit) {
+        if (initialDelay < 0) throw new IllegalArgumentException("initialDelay may not be < 0");
+        FakeFolia.requirePositive("period", period);
+        return folia.submit(folia.asyncQueue(), plugin, task, toTicks(initialDelay, unit), toTicks(period, unit), null);
+    }
+
+    @Override
+    public void cancelTasks(Plugin plugin) {
+        folia.cancelTasks(folia.asyncQueue(), plugin);
+    }
+
+    private static long toTicks(long delay, TimeUnit unit) {
+        long millis = unit.toMillis(delay);
+        return Math.max(1L, (millis + 49L) / 50L);
+    }
+}
@@ -0,0 +1,49 @@
+package summer.foliaPhantom.testsupport;
+
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.util.function.Consumer;
+
+/**
+ * Scheduler of one {@link FakeFolia} entity. Tasks follow the entity: each run happens on whichever tick thread
+ * ticks the region the entity is in at that tick. Once the entity is removed, pending tasks are cancelled and
+ * their retired callbacks run, and new tasks are refused.
+ */
+public final class FakeEntityScheduler implements EntityScheduler {
+    private final FakeFolia folia;
+    final FakeFolia.TaskQueue queue;
+    volatile boolean retired;
+
+    FakeEntityScheduler(FakeFolia folia) {
+        this.folia = folia;
+        this.queue = new FakeFolia.TaskQueue(folia);
+    }
+
+    @Override
+    public boolean execute(Plugin plugin, Runnable run, Runnable retired, long delay) {
+        return runDelayed(plugin, task -> run.run(), retired, delay) != null;
+    }
+
+    @Override
+    public ScheduledTask run(Plugin plugin, Consumer<ScheduledTask> task, Runnable retired) {
+        return runDelayed(plugin, task, retired, 1L);
+    }
+
+    @Override
+    public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, Runnable retired, long delayTicks) {
+        FakeFolia.requirePositive("delayTicks", delayTicks);
+        if (this.retired) return null;
+        return folia.submit(queue, plugin, task, delayTicks, 0L, retired);
+    }
+
+    @Override
+    public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, Runnable retired,
+                                       long initialDelayTicks, long periodTicks) {
+        FakeFolia.requirePositive("initialDelayTicks", initialDelayTicks);
+        FakeFolia.requirePositive("periodTicks", periodTicks);
+        if (this.retired) return null;
+        return folia.submit(queue, plugin, task, initialDelayTicks, periodTicks, retired);
+    }
+}
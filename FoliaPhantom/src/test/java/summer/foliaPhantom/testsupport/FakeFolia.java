@@ -0,0 +1,469 @@
+package summer.foliaPhantom.testsupport;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory stand-in for a Folia server, for driving FoliaPhantom's scheduler layer outside a running server.
+ * <p>
+ * Nothing happens on its own: every {@link #tick()} advances a virtual tick counter, runs the global region's due
+ * tasks, then every region's due tasks in parallel on a pool of tick threads (one region per thread at a time, as on
+ * Folia), then the due async tasks. Ownership queries ({@code isOwnedByCurrentRegion}, {@code isGlobalTickThread},
+ * {@code isPrimaryThread}) are answered from what the calling thread is ticking. Regions are fixed squares of
+ * {@code 2^REGION_SHIFT} chunks; Folia merges and splits them, which no caller may rely on anyway.
+ * <p>
+ * Exceptions thrown by tasks are caught and kept, like Folia logs and survives them; see {@link #uncaught()}.
+ */
+public final class FakeFolia implements AutoCloseable {
+    public static final int REGION_SHIFT = 3;
+    private static final Object GLOBAL = new Object();
+    private static volatile FakeFolia current;
+
+    private final ExecutorService tickThreads;
+    private final ExecutorService asyncThreads;
+    private final ThreadLocal<Object> ticking = new ThreadLocal<>(); // A RegionKey, GLOBAL, or null
+    private final AtomicLong currentTick = new AtomicLong();
+    private final TaskQueue globalQueue = new TaskQueue(this);
+    private final TaskQueue asyncQueue = new TaskQueue(this);
+    private final ConcurrentHashMap<RegionKey, TaskQueue> regionQueues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Entity, EntityState> entities = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Future<?>> asyncInFlight = new ConcurrentLinkedQueue<>();
+    private final Set<FakeScheduledTask> liveTasks = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Throwable> uncaught = new ConcurrentLinkedQueue<>();
+    private final List<World> worlds = new CopyOnWriteArrayList<>();
+    private final List<Player> players = new CopyOnWriteArrayList<>();
+    private final Map<String, Boolean> enabled = new ConcurrentHashMap<>();
+    private final AtomicInteger entityIds = new AtomicInteger();
+    private final Logger logger = Logger.getLogger("FakeFolia");
+    private final FakeRegionScheduler regionScheduler = new FakeRegionScheduler(this);
+    private final FakeGlobalRegionScheduler globalRegionScheduler = new FakeGlobalRegionScheduler(this);
+    private final FakeAsyncScheduler asyncScheduler = new FakeAsyncScheduler(this);
+    private final Server server;
+    private volatile BukkitScheduler bukkitScheduler;
+
+    record RegionKey(World world, int regionX, int regionZ) {
+        static RegionKey of(World world, int chunkX, int chunkZ) {
+            return new RegionKey(world, chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+        }
+
+        static RegionKey of(Location location) {
+            return of(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        }
+    }
+
+    private static final class EntityState {
+        final FakeEntityScheduler scheduler;
+        volatile Location location;
+        volatile boolean valid = true;
+
+        EntityState(FakeEntityScheduler scheduler, Location location) {
+            this.scheduler = scheduler;
+            this.location = location;
+        }
+    }
+
+    /**
+     * Tasks of one region, the global region, the async pool or one entity, ordered by due tick and then by
+     * submission. Submissions go through a lock-free inbox; only the thread ticking the queue sorts them.
+     */
+    static final class TaskQueue {
+        final FakeFolia owner;
+        private final ConcurrentLinkedQueue<FakeScheduledTask> inbox = new ConcurrentLinkedQueue<>();
+        private final TreeMap<Long, ArrayDeque<FakeScheduledTask>> pending = new TreeMap<>();
+
+        TaskQueue(FakeFolia owner) {
+            this.owner = owner;
+        }
+
+        void add(FakeScheduledTask task) {
+            inbox.add(task);
+        }
+
+        boolean isIdle() {
+            return inbox.isEmpty() && pending.isEmpty();
+        }
+
+        /**
+         * @return the tasks due at or before {@code tick}, in run order
+         */
+        List<FakeScheduledTask> takeDue(long tick) {
+            FakeScheduledTask task;
+            while ((task = inbox.poll()) != null) {
+                pending.computeIfAbsent(task.dueTick, k -> new ArrayDeque<>()).add(task);
+            }
+            List<FakeScheduledTask> due = new ArrayList<>();
+            while (!pending.isEmpty() && pending.firstKey() <= tick) {
+                due.addAll(pending.pollFirstEntry().getValue());
+            }
+            return due;
+        }
+
+        void runDue(long tick) {
+            for (FakeScheduledTask task : takeDue(tick)) {
+                if (task.runOnce()) add(task);
+            }
+        }
+
+        void retireAll() {
+            takeDue(Long.MAX_VALUE).forEach(FakeScheduledTask::retire);
+        }
+    }
+
+    /**
+     * @param tickThreads number of threads regions are ticked on
+     */
+    public FakeFolia(int tickThreads) {
+        AtomicInteger tickThreadIds = new AtomicInteger();
+        AtomicInteger asyncThreadIds = new AtomicInteger();
+        this.tickThreads = Executors.newFixedThreadPool(tickThreads, r -> daemon(r, "Region Scheduler Thread #" + tickThreadIds.incrementAndGet()));
+        this.asyncThreads = Executors.newCachedThreadPool(r -> daemon(r, "Folia Async Scheduler Thread #" + asyncThreadIds.incrementAndGet()));
+        this.server = createServer();
+        createWorld("world");
+    }
+
+    /**
+     * Makes this instance answer the static {@link Bukkit} methods. Bukkit only accepts one server per JVM, so the
+     * first call installs a server that forwards to whichever instance was installed last.
+     */
+    public FakeFolia installAsBukkitServer() {
+        current = this;
+        synchronized (FakeFolia.class) {
+            Server installed = Bukkit.getServer();
+            if (installed == null) {
+                setBukkitServer(Fakes.forwarding(Server.class, "FakeFolia(current)", () -> {
+                    FakeFolia folia = current;
+                    if (folia == null) throw new IllegalStateException("no FakeFolia is installed");
+                    return folia.server;
+                }));
+            } else if (!installed.toString().equals("FakeFolia(current)")) {
+                throw new IllegalStateException("Bukkit already has a server: " + installed);
+            }
+        }
+        return this;
+    }
+
+    // --- World, plugins and entities ---
+
+    public Server server() {
+        return server;
+    }
+
+    public World world() {
+        return worlds.get(0);
+    }
+
+    public World createWorld(String name) {
+        World[] self = new World[1];
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("getName", args -> name);
+        answers.put("getUID", args -> UUID.nameUUIDFromBytes(name.getBytes()));
+        answers.put("getSpawnLocation", args -> new Location(self[0], 0, 64, 0));
+        self[0] = Fakes.proxy(World.class, "World(" + name + ")", answers);
+        worlds.add(self[0]);
+        return self[0];
+    }
+
+    public Plugin plugin(String name) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        Logger pluginLogger = Logger.getLogger(name);
+        answers.put("getName", args -> name);
+        answers.put("isEnabled", args -> enabled.getOrDefault(name, true));
+        answers.put("getServer", args -> server);
+        answers.put("getLogger", args -> pluginLogger);
+        return Fakes.proxy(Plugin.class, "Plugin(" + name + ")", answers);
+    }
+
+    public void setEnabled(Plugin plugin, boolean isEnabled) {
+        enabled.put(plugin.getName(), isEnabled);
+    }
+
+    public Entity spawnEntity(Location location) {
+        return spawn(Entity.class, "Entity", location);
+    }
+
+    /**
+     * Spawns an entity that is also listed by {@code getOnlinePlayers} until it is removed.
+     */
+    public Player spawnPlayer(Location location) {
+        Player player = spawn(Player.class, "Player", location);
+        players.add(player);
+        return player;
+    }
+
+    private <T extends Entity> T spawn(Class<T> type, String label, Location location) {
+        int id = entityIds.incrementAndGet();
+        EntityState state = new EntityState(new FakeEntityScheduler(this), location.clone());
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("getScheduler", args -> state.scheduler);
+        answers.put("getLocation", args -> state.location.clone());
+        answers.put("getWorld", args -> state.location.getWorld());
+        answers.put("isValid", args -> state.valid);
+        answers.put("getEntityId", args -> id);
+        answers.put("getUniqueId", args -> new UUID(0L, id));
+        T entity = Fakes.proxy(type, label + "#" + id, answers);
+        entities.put(entity, state);
+        return entity;
+    }
+
+    public void moveEntity(Entity entity, Location location) {
+        entities.get(entity).location = location.clone();
+    }
+
+    /**
+     * Removes the entity: its scheduler refuses new tasks, and its pending tasks are retired on the next tick.
+     */
+    public void removeEntity(Entity entity) {
+        EntityState state = entities.get(entity);
+        state.valid = false;
+        state.scheduler.retired = true;
+        players.remove(entity);
+    }
+
+    // --- Schedulers ---
+
+    public FakeRegionScheduler regionScheduler() {
+        return regionScheduler;
+    }
+
+    public FakeGlobalRegionScheduler globalRegionScheduler() {
+        return globalRegionScheduler;
+    }
+
+    public FakeAsyncScheduler asyncScheduler() {
+        return asyncScheduler;
+    }
+
+    /**
+     * Sets what {@code getServer().getScheduler()} returns.
+     */
+    public void setBukkitScheduler(BukkitScheduler scheduler) {
+        this.bukkitScheduler = scheduler;
+    }
+
+    // --- Ticking ---
+
+    public long currentTick() {
+        return currentTick.get();
+    }
+
+    /**
+     * Runs one tick and returns once every task due in it, async ones included, has run. Must not be called
+     * concurrently with itself or from a task.
+     */
+    public void tick() {
+        long tick = currentTick.incrementAndGet();
+        await(tickThreads.submit(() -> onThread(GLOBAL, () -> globalQueue.runDue(tick))));
+
+        Map<RegionKey, List<Runnable>> work = new HashMap<>();
+        regionQueues.forEach((key, queue) -> {
+            if (!queue.isIdle()) work.computeIfAbsent(key, k -> new ArrayList<>()).add(() -> queue.runDue(tick));
+        });
+        entities.forEach((entity, state) -> {
+            TaskQueue queue = state.scheduler.queue;
+            if (queue.isIdle()) return;
+            Runnable step = state.valid ? () -> queue.runDue(tick) : queue::retireAll;
+            work.computeIfAbsent(RegionKey.of(state.location), k -> new ArrayList<>()).add(0, step); // Entities tick first
+        });
+        List<Future<?>> regions = new ArrayList<>(work.size());
+        work.forEach((key, steps) -> regions.add(tickThreads.submit(() -> onThread(key, () -> steps.forEach(Runnable::run)))));
+        regions.forEach(FakeFolia::await);
+
+        for (FakeScheduledTask task : asyncQueue.takeDue(tick)) {
+            asyncInFlight.add(asyncThreads.submit(() -> {
+                if (task.runOnce()) asyncQueue.add(task);
+            }));
+        }
+        Future<?> inFlight;
+        while ((inFlight = asyncInFlight.poll()) != null) {
+            await(inFlight);
+        }
+    }
+
+    public void tick(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    /**
+     * Runs {@code action} on a tick thread as if it were ticking the region that owns {@code location}, e.g. to
+     * stand in for an event handler. Must not overlap with {@link #tick()}.
+     */
+    public void runOnRegion(Location location, Runnable action) {
+        await(tickThreads.submit(() -> onThread(RegionKey.of(location), action)));
+    }
+
+    /**
+     * Runs {@code action} on a tick thread as if it were ticking the global region. Must not overlap with {@link #tick()}.
+     */
+    public void runOnGlobal(Runnable action) {
+        await(tickThreads.submit(() -> onThread(GLOBAL, action)));
+    }
+
+    /**
+     * @return tasks that were scheduled and have neither finished nor been cancelled
+     */
+    public int liveTaskCount() {
+        return liveTasks.size();
+    }
+
+    /**
+     * @return exceptions thrown by tasks, in the order they were thrown
+     */
+    public List<Throwable> uncaught() {
+        return new ArrayList<>(uncaught);
+    }
+
+    @Override
+    public void close() {
+        tickThreads.shutdownNow();
+        asyncThreads.shutdownNow();
+        if (current == this) current = null;
+    }
+
+    // --- Internals ---
+
+    static void requirePositive(String name, long value) {
+        if (value < 1) throw new IllegalArgumentException(name + " must be >= 1 (was " + value + ")");
+    }
+
+    TaskQueue regionQueue(World world, int chunkX, int chunkZ) {
+        if (world == null) throw new NullPointerException("world");
+        return regionQueues.computeIfAbsent(RegionKey.of(world, chunkX, chunkZ), k -> new TaskQueue(this));
+    }
+
+    TaskQueue globalQueue() {
+        return globalQueue;
+    }
+
+    TaskQueue asyncQueue() {
+        return asyncQueue;
+    }
+
+    ScheduledTask submit(TaskQueue queue, Plugin plugin, Consumer<ScheduledTask> body, long delayTicks, long periodTicks,
+                         Runnable retired) {
+        FakeScheduledTask task = new FakeScheduledTask(plugin, body, currentTick.get() + delayTicks, periodTicks, retired, queue);
+        liveTasks.add(task);
+        queue.add(task);
+        return task;
+    }
+
+    ScheduledTask runAsyncNow(Plugin plugin, Consumer<ScheduledTask> body) {
+        FakeScheduledTask task = new FakeScheduledTask(plugin, body, currentTick.get(), 0L, null, asyncQueue);
+        liveTasks.add(task);
+        asyncInFlight.add(asyncThreads.submit(task::runOnce));
+        return task;
+    }
+
+    void cancelTasks(TaskQueue queue, Plugin plugin) {
+        for (FakeScheduledTask task : liveTasks) {
+            if (task.queue == queue && task.getOwningPlugin() == plugin) task.cancel();
+        }
+    }
+
+    void finished(FakeScheduledTask task) {
+        liveTasks.remove(task);
+    }
+
+    void uncaught(FakeScheduledTask task, Throwable t) {
+        uncaught.add(t);
+    }
+
+    private void onThread(Object region, Runnable action) {
+        ticking.set(region);
+        try {
+            action.run();
+        } finally {
+            ticking.remove();
+        }
+    }
+
+    private boolean owns(RegionKey key) {
+        return key.equals(ticking.get());
+    }
+
+    private Server createServer() {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("getName", args -> "FakeFolia");
+        answers.put("getVersion", args -> "test");
+        answers.put("getBukkitVersion", args -> "test");
+        answers.put("getLogger", args -> logger);
+        answers.put("getScheduler", args -> bukkitScheduler);
+        answers.put("getRegionScheduler", args -> regionScheduler);
+        answers.put("getGlobalRegionScheduler", args -> globalRegionScheduler);
+        answers.put("getAsyncScheduler", args -> asyncScheduler);
+        answers.put("getWorlds", args -> new ArrayList<>(worlds));
+        answers.put("getOnlinePlayers", args -> List.copyOf(players));
+        answers.put("getCurrentTick", args -> (int) currentTick.get());
+        answers.put("isPrimaryThread", args -> ticking.get() != null);
+        answers.put("isGlobalTickThread", args -> ticking.get() == GLOBAL);
+        answers.put("isOwnedByCurrentRegion", args -> {
+            if (args[0] instanceof Location location) return owns(RegionKey.of(location));
+            if (args[0] instanceof Entity entity) {
+                EntityState state = entities.get(entity);
+                return state != null && owns(RegionKey.of(state.location));
+            }
+            if (args[0] instanceof World world && args.length == 3) {
+                return owns(RegionKey.of(world, (Integer) args[1], (Integer) args[2]));
+            }
+            return false;
+        });
+        return Fakes.proxy(Server.class, "FakeFolia", answers);
+    }
+
+    private static void setBukkitServer(Server server) {
+        try {
+            Field field = Bukkit.class.getDeclaredField("server");
+            field.setAccessible(true);
+            field.set(null, server); // Bukkit.setServer() also logs a version banner that needs a real server
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package summer.foliaPhantom.testsupport;
+
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.util.function.Consumer;
+
+/**
+ * Global region scheduler of a {@link FakeFolia}. Its tasks run first in every tick.
+ */
+public final class FakeGlobalRegionScheduler implements GlobalRegionScheduler {
+    private final FakeFolia folia;
+
+    FakeGlobalRegionScheduler(FakeFolia folia) {
+        this.folia = folia;
+    }
+
+    @Override
+    public void execute(Plugin plugin, Runnable run) {
+        run(plugin, task -> run.run());
+    }
+
+    @Override
+    public ScheduledTask run(Plugin plugin, Consumer<ScheduledTask> task) {
+        return runDelayed(plugin, task, 1L);
+    }
+
+    @Override
+    public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, long delayTicks) {
+        FakeFolia.requirePositive("delayTicks", delayTicks);
+        return folia.submit(folia.globalQueue(), plugin, task, delayTicks, 0L, null);
+    }
+
+    @Override
+    public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, long initialDelayTicks, long periodTicks) {
+        FakeFolia.requirePositive("initialDelayTicks", initialDelayTicks);
+        FakeFolia.requirePositive("periodTicks", periodTicks);
+        return folia.submit(folia.globalQueue(), plugin, task, initialDelayTicks, periodTicks, null);
+    }
+
+    @Override
+    public void cancelTasks(Plugin plugin) {
+        folia.cancelTasks(folia.globalQueue(), plugin);
+    }
+}
@@ -0,0 +1,66 @@
+package summer.foliaPhantom.testsupport;
+
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.function.Consumer;
+
+/**
+ * Region scheduler of a {@link FakeFolia}. Tasks run on whichever tick thread ticks the owning region.
+ */
+public final class FakeRegionScheduler implements RegionScheduler {
+    private final FakeFolia folia;
+
+    FakeRegionScheduler(FakeFolia folia) {
+        this.folia = folia;
+    }
+
+    @Override
+    public void execute(Plugin plugin, World world, int chunkX, int chunkZ, Runnable run) {
+        run(plugin, world, chunkX, chunkZ, task -> run.run());
+    }
+
+    @Override
+    public void execute(Plugin plugin, Location location, Runnable run) {
+        execute(plugin, location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4, run);
+    }
+
+    @Override
+    public ScheduledTask run(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task) {
+        return runDelayed(plugin, world, chunkX, chunkZ, task, 1L);
+    }
+
+    @Override
+    public ScheduledTask run(Plugin plugin, Location location, Consumer<ScheduledTask> task) {
+        return run(plugin, location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4, task);
+    }
+
+    @Override
+    public ScheduledTask runDelayed(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task, long delayTicks) {
+        FakeFolia.requirePositive("delayTicks", delayTicks);
+        return folia.submit(folia.regionQueue(world, chunkX, chunkZ), plugin, task, delayTicks, 0L, null);
+    }
+
+    @Override
+    public ScheduledTask runDelayed(Plugin plugin, Location location, Consumer<ScheduledTask> task, long delayTicks) {
+        return runDelayed(plugin, location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4, task, delayTicks);
+    }
+
+    @Override
+    public ScheduledTask runAtFixedRate(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task,
+                                       long initialDelayTicks, long periodTicks) {
+        FakeFolia.requirePositive("initialDelayTicks", initialDelayTicks);
+        FakeFolia.requirePositive("periodTicks", periodTicks);
+        return folia.submit(folia.regionQueue(world, chunkX, chunkZ), plugin, task, initialDelayTicks, periodTicks, null);
+    }
+
+    @Override
+    public ScheduledTask runAtFixedRate(Plugin plugin, Location location, Consumer<ScheduledTask> task,
+                                       long initialDelayTicks, long periodTicks) {
+        return runAtFixedRate(plugin, location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4,
+                task, initialDelayTicks, periodTicks);
+    }
+}
@@ -0,0 +1,112 @@
+package summer.foliaPhantom.testsupport;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A task of {@link FakeFolia}, with the state machine of Folia's own scheduled tasks: a one-shot task goes
+ * IDLE, RUNNING, FINISHED; a repeating one returns to IDLE after each run; cancelling a running repeating task
+ * only stops its next runs.
+ */
+public final class FakeScheduledTask implements ScheduledTask {
+    private final Plugin plugin;
+    private final Consumer<ScheduledTask> body;
+    private final long periodTicks; // 0 for one-shot tasks
+    final Runnable retired; // Entity tasks only
+    final FakeFolia.TaskQueue queue;
+    long dueTick; // Only touched by the thread ticking the queue
+    private final AtomicReference<ExecutionState> state = new AtomicReference<>(ExecutionState.IDLE);
+
+    FakeScheduledTask(Plugin plugin, Consumer<ScheduledTask> body, long dueTick, long periodTicks,
+                      Runnable retired, FakeFolia.TaskQueue queue) {
+        this.plugin = plugin;
+        this.body = body;
+        this.dueTick = dueTick;
+        this.periodTicks = periodTicks;
+        this.retired = retired;
+        this.queue = queue;
+    }
+
+    @Override
+    public Plugin getOwningPlugin() {
+        return plugin;
+    }
+
+    @Override
+    public boolean isRepeatingTask() {
+        return periodTicks > 0;
+    }
+
+    @Override
+    public CancelledState cancel() {
+        while (true) {
+            ExecutionState current = state.get();
+            switch (current) {
+                case IDLE:
+                    if (state.compareAndSet(current, ExecutionState.CANCELLED)) {
+                        queue.owner.finished(this);
+                        return CancelledState.CANCELLED_BY_CALLER;
+                    }
+                    break;
+                case RUNNING:
+                    if (!isRepeatingTask()) return CancelledState.RUNNING;
+                    if (state.compareAndSet(current, ExecutionState.CANCELLED_RUNNING)) {
+                        return CancelledState.NEXT_RUNS_CANCELLED;
+                    }
+                    break;
+                case CANCELLED_RUNNING:
+                    return CancelledState.NEXT_RUNS_CANCELLED_ALREADY;
+                case CANCELLED:
+                    return CancelledState.CANCELLED_ALREADY;
+                case FINISHED:
+                default:
+                    return CancelledState.ALREADY_EXECUTED;
+            }
+        }
+    }
+
+    @Override
+    public ExecutionState getExecutionState() {
+        return state.get();
+    }
+
+    /**
+     * Runs the task once on the current thread.
+     *
+     * @return whether it has to be queued again
+     */
+    boolean runOnce() {
+        if (!state.compareAndSet(ExecutionState.IDLE, ExecutionState.RUNNING)) {
+            return false; // Cancelled while queued
+        }
+        try {
+            body.accept(this);
+        } catch (Throwable t) {
+            queue.owner.uncaught(this, t);
+        }
+        if (isRepeatingTask()) {
+            if (state.compareAndSet(ExecutionState.RUNNING, ExecutionState.IDLE)) {
+                dueTick += periodTicks;
+                return true;
+            }
+            state.set(ExecutionState.CANCELLED); // Cancelled while running
+        } else {
+            state.set(ExecutionState.FINISHED);
+        }
+        queue.owner.finished(this);
+        return false;
+    }
+
+    /**
+     * Cancels the task because its entity was removed, then runs the retired callback.
+     */
+    void retire() {
+        if (state.compareAndSet(ExecutionState.IDLE, ExecutionState.CANCELLED)) {
+            queue.owner.finished(this);
+            if (retired != null) retired.run();
+        }
+    }
+}
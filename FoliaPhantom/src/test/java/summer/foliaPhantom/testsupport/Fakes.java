@@ -0,0 +1,82 @@
+package summer.foliaPhantom.testsupport;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Builds stand-ins for Bukkit interfaces that are far too large to implement by hand (Server, Plugin, World...).
+ * Methods without an answer return null, zero or false; equality is identity.
+ */
+public final class Fakes {
+    private Fakes() {
+    }
+
+    /**
+     * @param answers method name to answer; overloads share one answer, which gets the call's arguments
+     */
+    public static <T> T proxy(Class<T> type, String label, Map<String, Function<Object[], Object>> answers) {
+        return proxy(type, label, (method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            return (answer != null) ? answer.apply(args) : defaultValue(method.getReturnType());
+        });
+    }
+
+    /**
+     * @param handler answers every call other than {@code equals}, {@code hashCode} and {@code toString}
+     */
+    public static <T> T proxy(Class<T> type, String label, BiFunction<Method, Object[], Object> handler) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            Object[] arguments = (args != null) ? args : new Object[0];
+            if (method.getDeclaringClass() == Object.class) {
+                return identity(self, method, arguments, label);
+            }
+            return handler.apply(method, arguments);
+        });
+        return type.cast(proxy);
+    }
+
+    /**
+     * @return a stand-in that forwards every call to whatever {@code target} returns at the time of the call
+     */
+    public static <T> T forwarding(Class<T> type, String label, Supplier<? extends T> target) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return identity(self, method, args, label);
+            }
+            try {
+                return method.invoke(target.get(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+        return type.cast(proxy);
+    }
+
+    private static Object identity(Object self, Method method, Object[] args, String label) {
+        return switch (method.getName()) {
+            case "equals" -> self == args[0];
+            case "hashCode" -> System.identityHashCode(self);
+            default -> label;
+        };
+    }
+
+    /**
+     * @return what an unanswered method returning {@code type} returns: null, zero or false
+     */
+    public static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0d;
+        if (type == float.class) return 0.0f;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
@@ -0,0 +1,49 @@
+package summer.foliaPhantom.testsupport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Collects what is logged to a {@link Logger} while open.
+ */
+public final class LogCapture extends Handler implements AutoCloseable {
+    private final Logger logger;
+    private final List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+
+    private LogCapture(Logger logger) {
+        this.logger = logger;
+    }
+
+    public static LogCapture of(String loggerName) {
+        LogCapture capture = new LogCapture(Logger.getLogger(loggerName));
+        capture.logger.addHandler(capture);
+        return capture;
+    }
+
+    /**
+     * @return the records whose message contains {@code text}
+     */
+    public List<LogRecord> matching(String text) {
+        synchronized (records) {
+            return records.stream().filter(record -> record.getMessage().contains(text)).toList();
+        }
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        records.add(record);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        logger.removeHandler(this);
+    }
+}
@@ -0,0 +1,105 @@
+package summer.foliaPhantom.testsupport;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import summer.foliaPhantom.metrics.SchedulerMetrics;
+import summer.foliaPhantom.scheduler.FoliaSchedulerAdapter;
+import summer.foliaPhantom.scheduler.FoliaSchedulerProxy;
+import summer.foliaPhantom.scheduler.SyncTaskRouter;
+import summer.foliaPhantom.scheduler.TickBudget;
+import summer.foliaPhantom.scheduler.TickClock;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FoliaPhantom's scheduler layer wired up the way {@code SchedulerManager.installProxy} does it on a Folia server,
+ * but on top of a {@link FakeFolia}.
+ */
+public final class SchedulerHarness implements AutoCloseable {
+    public final FakeFolia folia;
+    public final Plugin phantom; // FoliaPhantom itself, which owns every Folia task
+    public final TickClock tickClock = new TickClock();
+    public final FoliaSchedulerAdapter adapter;
+    public final SyncTaskRouter router;
+    public final SchedulerMetrics metrics;
+    public final TickBudget tickBudget; // Null unless a budget was given
+    public final FoliaSchedulerProxy scheduler;
+    private final AtomicInteger delegatedCalls = new AtomicInteger();
+    private final boolean batchOneShots;
+
+    /**
+     * @param coalesceTimers as {@code scheduler.coalesce-repeating-tasks}
+     * @param batchOneShots  as {@code scheduler.batch-one-shot-tasks}, and for every plugin from {@link #plugin}
+     * @param withMetrics    as {@code scheduler.metrics.enabled}
+     */
+    public SchedulerHarness(int tickThreads, boolean coalesceTimers, boolean batchOneShots, boolean withMetrics) {
+        this(tickThreads, coalesceTimers, batchOneShots, withMetrics, 0L, 0);
+    }
+
+    /**
+     * @param tickBudgetMillis as {@code scheduler.tick-budget.budget-ms}, or 0 to leave tick budgeting disabled
+     * @param maxDeferrals     as {@code scheduler.tick-budget.max-deferrals}
+     */
+    public SchedulerHarness(int tickThreads, boolean coalesceTimers, boolean batchOneShots, boolean withMetrics,
+                            long tickBudgetMillis, int maxDeferrals) {
+        this.batchOneShots = batchOneShots;
+        this.folia = new FakeFolia(tickThreads).installAsBukkitServer();
+        this.phantom = folia.plugin("FoliaPhantom");
+        tickClock.start(phantom, folia.globalRegionScheduler());
+        this.adapter = new FoliaSchedulerAdapter(phantom, folia.asyncScheduler(), folia.regionScheduler(),
+                folia.globalRegionScheduler(), coalesceTimers ? tickClock : null, batchOneShots ? tickClock : null);
+        folia.runOnGlobal(adapter.getDefaultLocationCache()::get); // Resolved from a tick thread, as on startup
+        this.router = new SyncTaskRouter(adapter.getDefaultLocationCache(), phantom.getLogger());
+        this.metrics = withMetrics ? new SchedulerMetrics() : null;
+        this.tickBudget = (tickBudgetMillis > 0) ? new TickBudget(tickClock, tickBudgetMillis, maxDeferrals, phantom.getLogger()) : null;
+        this.scheduler = new FoliaSchedulerProxy(originalScheduler(), adapter, true, router, null, metrics, tickBudget);
+        folia.setBukkitScheduler(scheduler);
+    }
+
+    /**
+     * A wrapped plugin, configured as {@code SchedulerManager.configurePlugin} does when every plugin sets
+     * {@code batch-one-shot-tasks} to the harness's {@code batchOneShots}.
+     */
+    public Plugin plugin(String name) {
+        Plugin plugin = folia.plugin(name);
+        if (batchOneShots) {
+            adapter.getDelayedTaskBatches().enableFor(name);
+        }
+        return plugin;
+    }
+
+    /**
+     * @return how often a call was passed on to the server's original scheduler
+     */
+    public int delegatedCalls() {
+        return delegatedCalls.get();
+    }
+
+    /**
+     * Ticks until FakeFolia has no live task left, or fails after {@code maxTicks}.
+     */
+    public void drain(int maxTicks) {
+        for (int i = 0; i < maxTicks; i++) {
+            if (folia.liveTaskCount() <= 1) return; // The tick clock's driver never ends
+            folia.tick();
+        }
+        throw new AssertionError(folia.liveTaskCount() + " Folia tasks still live after " + maxTicks + " ticks");
+    }
+
+    @Override
+    public void close() {
+        tickClock.stop();
+        folia.close();
+    }
+
+    private BukkitScheduler originalScheduler() {
+        Set<String> lookups = Set.of("cancelTask", "cancelTasks", "isQueued", "isCurrentlyRunning");
+        return Fakes.proxy(BukkitScheduler.class, "OriginalScheduler", (method, args) -> {
+            if (!lookups.contains(method.getName())) {
+                delegatedCalls.incrementAndGet(); // Lookups and cleanup of ids that are not ours are expected
+            }
+            return Fakes.defaultValue(method.getReturnType());
+        });
+    }
+}
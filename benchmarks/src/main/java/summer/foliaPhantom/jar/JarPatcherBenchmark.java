@@ -0,0 +1,113 @@
+package summer.foliaPhantom.jar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * {@link JarPatcher#createFoliaSupportedJar} on synthetic plugin jars of 1, 10 and 50 MB, made of 64 KiB entries
+ * that compress to about half their size, like a shaded plugin's classes and resources. {@link #rawCopy()} and
+ * {@link #reencode()} compare the two copy strategies on the same jar and the same plugin.yml edit: the raw
+ * {@link ZipRewriter} copy the patcher uses, and the inflate/re-deflate fallback it takes for ZIP64 archives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarPatcherBenchmark {
+    private static final int ENTRY_SIZE = 64 * 1024;
+    private static final Predicate<String> PLUGIN_YML = "plugin.yml"::equals;
+    private static final BiFunction<String, byte[], byte[]> ADD_FOLIA_SUPPORT = (name, content) ->
+            (new String(content, StandardCharsets.UTF_8) + "folia-supported: true\n").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Size of the jar on disk.
+     */
+    @Param({"1", "10", "50"})
+    public int sizeMb;
+
+    private File directory;
+    private File originalJar;
+    private File patchedJar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("phantom-jar-bench").toFile();
+        originalJar = new File(directory, "Synthetic-" + sizeMb + "MB.jar");
+        patchedJar = new File(directory, "Synthetic-" + sizeMb + "MB-folia.jar");
+        writeSyntheticJar(originalJar, sizeMb * 1024L * 1024L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public long patch() throws Exception {
+        JarPatcher.createFoliaSupportedJar(originalJar, patchedJar, false);
+        return patchedJar.length();
+    }
+
+    @Benchmark
+    public long rawCopy() throws Exception {
+        ZipRewriter.rewrite(originalJar, patchedJar, PLUGIN_YML, ADD_FOLIA_SUPPORT);
+        return patchedJar.length();
+    }
+
+    @Benchmark
+    public long reencode() throws Exception {
+        JarPatcher.reencodeJar(originalJar, patchedJar, PLUGIN_YML, ADD_FOLIA_SUPPORT);
+        return patchedJar.length();
+    }
+
+    static void writeSyntheticJar(File jar, long targetBytes) throws IOException {
+        Random random = new Random(42); // Same content on every run
+        byte[] entry = new byte[ENTRY_SIZE];
+        try (FileOutputStream file = new FileOutputStream(jar);
+             ZipOutputStream out = new ZipOutputStream(file)) {
+            out.putNextEntry(new ZipEntry("plugin.yml"));
+            out.write("name: Synthetic\nmain: com.example.synthetic.Main\nversion: 1.0\napi-version: 1.21\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; file.getChannel().position() < targetBytes; i++) {
+                for (int j = 0; j < ENTRY_SIZE; j += 2) {
+                    entry[j] = (byte) random.nextInt(256); // Every other byte random: compresses to about half
+                    entry[j + 1] = (byte) (j >> 8);
+                }
+                out.putNextEntry(new ZipEntry("com/example/synthetic/Resource" + i + ".bin"));
+                out.write(entry);
+                out.closeEntry();
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import summer.foliaPhantom.testsupport.FakeFolia;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link DelayedTaskBatches} per submitted one-shot task: a burst of {@value #BURST} submissions for one region and
+ * tick from a thread that does not own the region, then the batch's drain, as when a plugin schedules one task per
+ * block; {@link #submitAndDrainOnOwningRegion} does the same from the region's own thread. Folia is replaced by a
+ * region scheduler that keeps the batch's task so the benchmark can fire it, so the score and
+ * {@code gc.alloc.rate.norm} are FoliaPhantom's cost per task, drain included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DelayedTaskBatchesBenchmark {
+    private static final int BURST = 64;
+    private static final Runnable NOOP = () -> {
+    };
+
+    private FakeFolia folia;
+    private CapturingScheduler regionScheduler;
+    private DelayedTaskBatches batches;
+    private Location location;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folia = new FakeFolia(1).installAsBukkitServer();
+        Plugin phantom = folia.plugin("FoliaPhantom");
+        regionScheduler = new CapturingScheduler();
+        batches = new DelayedTaskBatches(phantom, regionScheduler, new DiscardingFolia().globalRegionScheduler,
+                new TickClock());
+        location = folia.world().getSpawnLocation();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        folia.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void submitAndDrain(Blackhole blackhole) {
+        for (int i = 0; i < BURST; i++) {
+            blackhole.consume(batches.schedule(NOOP, location, 1L));
+        }
+        regionScheduler.fire();
+    }
+
+    /**
+     * The same burst and drain on a thread that owns the region, which takes the confined path.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void submitAndDrainOnOwningRegion(Blackhole blackhole) {
+        folia.runOnRegion(location, () -> submitAndDrain(blackhole));
+    }
+
+    /**
+     * Keeps the last task handed to it and runs it on {@link #fire()}; batching needs only the location variants.
+     */
+    private static final class CapturingScheduler implements RegionScheduler {
+        private Consumer<ScheduledTask> pending;
+
+        void fire() {
+            Consumer<ScheduledTask> task = pending;
+            pending = null;
+            task.accept(null);
+        }
+
+        @Override
+        public void execute(Plugin plugin, World world, int chunkX, int chunkZ, Runnable run) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void execute(Plugin plugin, Location location, Runnable run) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledTask run(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledTask run(Plugin plugin, Location location, Consumer<ScheduledTask> task) {
+            pending = task;
+            return null;
+        }
+
+        @Override
+        public ScheduledTask runDelayed(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task,
+                                        long delayTicks) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledTask runDelayed(Plugin plugin, Location location, Consumer<ScheduledTask> task, long delayTicks) {
+            pending = task;
+            return null;
+        }
+
+        @Override
+        public ScheduledTask runAtFixedRate(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task,
+                                           long initialDelayTicks, long periodTicks) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledTask runAtFixedRate(Plugin plugin, Location location, Consumer<ScheduledTask> task,
+                                           long initialDelayTicks, long periodTicks) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
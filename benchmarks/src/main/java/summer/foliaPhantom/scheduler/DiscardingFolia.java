@@ -0,0 +1,143 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Folia schedulers that accept every task and never run it, so a benchmark measures FoliaPhantom's own work
+ * per submission rather than a scheduler's queues. Each call still allocates the task handle Folia would.
+ */
+final class DiscardingFolia {
+    final RegionScheduler regionScheduler = new Region();
+    final GlobalRegionScheduler globalRegionScheduler = new Global();
+    final AsyncScheduler asyncScheduler = new Async();
+
+    private static final class Task implements ScheduledTask {
+        private final Plugin plugin;
+        private final boolean repeating;
+        private volatile ExecutionState state = ExecutionState.IDLE;
+
+        Task(Plugin plugin, boolean repeating) {
+            this.plugin = plugin;
+            this.repeating = repeating;
+        }
+
+        @Override
+        public Plugin getOwningPlugin() {
+            return plugin;
+        }
+
+        @Override
+        public boolean isRepeatingTask() {
+            return repeating;
+        }
+
+        @Override
+        public CancelledState cancel() {
+            if (state == ExecutionState.CANCELLED) return CancelledState.CANCELLED_ALREADY;
+            state = ExecutionState.CANCELLED;
+            return CancelledState.CANCELLED_BY_CALLER;
+        }
+
+        @Override
+        public ExecutionState getExecutionState() {
+            return state;
+        }
+    }
+
+    private static final class Region implements RegionScheduler {
+        @Override
+        public void execute(Plugin plugin, World world, int chunkX, int chunkZ, Runnable run) {
+        }
+
+        @Override
+        public void execute(Plugin plugin, Location location, Runnable run) {
+        }
+
+        @Override
+        public ScheduledTask run(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task) {
+            return new Task(plugin, false);
+        }
+
+        @Override
+        public ScheduledTask run(Plugin plugin, Location location, Consumer<ScheduledTask> task) {
+            return new Task(plugin, false);
+        }
+
+        @Override
+        public ScheduledTask runDelayed(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task, long delayTicks) {
+            return new Task(plugin, false);
+        }
+
+        @Override
+        public ScheduledTask runDelayed(Plugin plugin, Location location, Consumer<ScheduledTask> task, long delayTicks) {
+            return new Task(plugin, false);
+        }
+
+        @Override
+        public ScheduledTask runAtFixedRate(Plugin plugin, World world, int chunkX, int chunkZ, Consumer<ScheduledTask> task,
+                                           long initialDelayTicks, long periodTicks) {
+            return new Task(plugin, true);
+        }
+
+        @Override
+        public ScheduledTask runAtFixedRate(Plugin plugin, Location location, Consumer<ScheduledTask> task,
+                                           long initialDelayTicks, long periodTicks) {
+            return new Task(plugin, true);
+        }
+    }
+
+    private static final class Global implements GlobalRegionScheduler {
+        @Override
+        public void execute(Plugin plugin, Runnable run) {
+        }
+
+        @Override
+        public ScheduledTask run(Plugin plugin, Consumer<ScheduledTask> task) {
+            return new Task(plugin, false);
+        }
+
+        @Override
+        public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, long delayTicks) {
+            return new Task(plugin, false);
+        }
+
+        @Override
+        public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, long initialDelayTicks, long periodTicks) {
+            return new Task(plugin, true);
+        }
+
+        @Override
+        public void cancelTasks(Plugin plugin) {
+        }
+    }
+
+    private static final class Async implements AsyncScheduler {
+        @Override
+        public ScheduledTask runNow(Plugin plugin, Consumer<ScheduledTask> task) {
+            return new Task(plugin, false);
+        }
+
+        @Override
+        public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, long delay, TimeUnit unit) {
+            return new Task(plugin, false);
+        }
+
+        @Override
+        public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, long initialDelay, long period, TimeUnit unit) {
+            return new Task(plugin, true);
+        }
+
+        @Override
+        public void cancelTasks(Plugin plugin) {
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package summer.foliaPhantom.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import summer.foliaPhantom.testsupport.FakeFolia;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FoliaSchedulerAdapter}'s overhead per submission on top of Folia's schedulers, with Folia replaced by
+ * {@link DiscardingFolia}. Timer coalescing and one-shot batching are off: both only pay off once tasks run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoliaSchedulerAdapterBenchmark {
+    private static final Runnable NOOP = () -> {
+    };
+
+    private FakeFolia folia;
+    private FoliaSchedulerAdapter adapter;
+    private Location location;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folia = new FakeFolia(1).installAsBukkitServer();
+        Plugin phantom = folia.plugin("FoliaPhantom");
+        DiscardingFolia discarding = new DiscardingFolia();
+        adapter = new FoliaSchedulerAdapter(phantom, discarding.asyncScheduler, discarding.regionScheduler,
+                discarding.globalRegionScheduler, null, null);
+        location = folia.world().getSpawnLocation();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        folia.close();
+    }
+
+    @Benchmark
+    public ScheduledTask runRegionSyncTask() {
+        return adapter.runRegionSyncTask(NOOP, location);
+    }
+
+    @Benchmark
+    public ScheduledTask runRegionDelayedTask() {
+        return adapter.runRegionDelayedTask(NOOP, location, 20L);
+    }
+
+    @Benchmark
+    public ScheduledTask runRegionRepeatingTask() {
+        return adapter.runRegionRepeatingTask(NOOP, location, 1L, 20L);
+    }
+
+    @Benchmark
+    public ScheduledTask runGlobalDelayedTask() {
+        return adapter.runRegionDelayedTask(NOOP, null, 20L);
+    }
+
+    @Benchmark
+    public ScheduledTask runAsyncTask() {
+        return adapter.runAsyncTask(NOOP, 0L);
+    }
+}
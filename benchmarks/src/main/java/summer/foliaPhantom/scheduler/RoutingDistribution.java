@@ -0,0 +1,116 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import summer.foliaPhantom.testsupport.FakeFolia;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How each {@link SyncTaskRouter.Mode} spreads a synthetic workload's sync tasks over regions, as tasks per region:
+ * the load each region thread has to tick. Not a JMH benchmark; run it with
+ * {@code java -cp benchmarks/target/benchmarks.jar summer.foliaPhantom.scheduler.RoutingDistribution}.
+ * <p>
+ * The server has three worlds and {@value #PLAYERS} players in {@value #CLUSTERS} groups spread over them. Each
+ * tick, every one of {@value #PLUGINS} plugins schedules a one-shot task from every player's region, as an event
+ * handler would, and runs one timer. Players move every {@value #MOVE_EVERY} ticks. A region is a FakeFolia
+ * region ({@code 2^REGION_SHIFT} chunks square).
+ */
+public final class RoutingDistribution {
+    private static final int PLAYERS = 60;
+    private static final int CLUSTERS = 12;
+    private static final int PLUGINS = 24;
+    private static final int TICKS = 40;
+    private static final int MOVE_EVERY = 10;
+
+    private RoutingDistribution() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%d players in %d groups, %d plugins, %d ticks%n%n", PLAYERS, CLUSTERS, PLUGINS, TICKS);
+        System.out.printf("%-8s %8s %14s %14s %16s%n", "mode", "regions", "busiest tasks", "busiest share",
+                "regions/plugin");
+        for (SyncTaskRouter.Mode mode : SyncTaskRouter.Mode.values()) {
+            if (mode == SyncTaskRouter.Mode.ENTITY) continue; // Routes like CONTEXT unless the task holds an entity
+            run(mode);
+        }
+    }
+
+    private static void run(SyncTaskRouter.Mode mode) {
+        try (FakeFolia folia = new FakeFolia(4).installAsBukkitServer()) {
+            List<World> worlds = List.of(folia.world(), folia.createWorld("world_nether"), folia.createWorld("world_the_end"));
+            Plugin phantom = folia.plugin("FoliaPhantom");
+            DefaultLocationCache defaultLocationCache = new DefaultLocationCache(phantom.getLogger());
+            folia.runOnGlobal(defaultLocationCache::get);
+            SyncTaskRouter router = new SyncTaskRouter(defaultLocationCache, phantom.getLogger());
+            List<Plugin> plugins = new ArrayList<>();
+            for (int i = 0; i < PLUGINS; i++) {
+                Plugin plugin = folia.plugin("Plugin" + i);
+                router.setMode(plugin.getName(), mode);
+                plugins.add(plugin);
+            }
+
+            Map<String, LongAdder> tasksPerRegion = new ConcurrentHashMap<>();
+            Map<String, Set<String>> regionsPerPlugin = new ConcurrentHashMap<>();
+            Random random = new Random(42);
+            List<Location> groups = new ArrayList<>();
+            List<Player> players = new ArrayList<>();
+            for (int tick = 0; tick < TICKS; tick++) {
+                if (tick % MOVE_EVERY == 0) {
+                    groups.clear();
+                    for (int i = 0; i < CLUSTERS; i++) {
+                        World world = worlds.get(i % worlds.size());
+                        groups.add(new Location(world, (random.nextInt(64) - 32) * 512, 64, (random.nextInt(64) - 32) * 512));
+                    }
+                    for (int i = 0; i < PLAYERS; i++) {
+                        Location location = groups.get(i % CLUSTERS);
+                        if (players.size() < PLAYERS) {
+                            players.add(folia.spawnPlayer(location));
+                        } else {
+                            folia.moveEntity(players.get(i), location);
+                        }
+                    }
+                }
+                for (Location group : groups) {
+                    folia.runOnRegion(group, () -> {
+                        for (int player = 0; player < PLAYERS / CLUSTERS; player++) {
+                            for (Plugin plugin : plugins) {
+                                record(router.route(plugin, false), plugin, tasksPerRegion, regionsPerPlugin);
+                            }
+                        }
+                    });
+                }
+                for (Plugin plugin : plugins) {
+                    record(router.route(plugin, true), plugin, tasksPerRegion, regionsPerPlugin);
+                }
+            }
+
+            long total = tasksPerRegion.values().stream().mapToLong(LongAdder::sum).sum();
+            long busiest = tasksPerRegion.values().stream().mapToLong(LongAdder::sum).max().orElse(0L);
+            double regionsPerPluginAvg = regionsPerPlugin.values().stream().mapToInt(Set::size).average().orElse(0.0);
+            System.out.printf("%-8s %8d %14d %13.1f%% %16.1f%n", mode.name().toLowerCase(), tasksPerRegion.size(),
+                    busiest, 100.0 * busiest / total, regionsPerPluginAvg);
+        }
+    }
+
+    private static void record(Location target, Plugin plugin, Map<String, LongAdder> tasksPerRegion,
+                               Map<String, Set<String>> regionsPerPlugin) {
+        String region = regionOf(target);
+        tasksPerRegion.computeIfAbsent(region, k -> new LongAdder()).increment();
+        regionsPerPlugin.computeIfAbsent(plugin.getName(), k -> ConcurrentHashMap.newKeySet()).add(region);
+    }
+
+    private static String regionOf(Location location) {
+        if (location == null) return "global";
+        int shift = 4 + FakeFolia.REGION_SHIFT;
+        return location.getWorld().getName() + "@" + (location.getBlockX() >> shift) + "," + (location.getBlockZ() >> shift);
+    }
+}
@@ -0,0 +1,111 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import summer.foliaPhantom.metrics.SchedulerMetrics;
+import summer.foliaPhantom.testsupport.FakeFolia;
+import summer.foliaPhantom.testsupport.Fakes;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link FoliaSchedulerProxy} call per {@code BukkitScheduler} method, from the plugin's call to the
+ * Folia submission, with Folia itself replaced by {@link DiscardingFolia}. Scheduling benchmarks cancel the task
+ * again so the registry stays at its steady-state size; {@code isQueued} measures a lookup alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerProxyBenchmark {
+    private static final Runnable NOOP = () -> {
+    };
+
+    /**
+     * As {@code scheduler.metrics.enabled}.
+     */
+    @Param({"true", "false"})
+    public boolean metrics;
+
+    private FakeFolia folia;
+    private FoliaSchedulerProxy scheduler;
+    private Plugin plugin;
+    private int queuedTaskId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folia = new FakeFolia(1).installAsBukkitServer(); // Only provides the world, the server and the plugins
+        Plugin phantom = folia.plugin("FoliaPhantom");
+        DiscardingFolia discarding = new DiscardingFolia();
+        FoliaSchedulerAdapter adapter = new FoliaSchedulerAdapter(phantom, discarding.asyncScheduler,
+                discarding.regionScheduler, discarding.globalRegionScheduler, null, null);
+        folia.runOnGlobal(adapter.getDefaultLocationCache()::get);
+        SyncTaskRouter router = new SyncTaskRouter(adapter.getDefaultLocationCache(), phantom.getLogger());
+        BukkitScheduler original = Fakes.proxy(BukkitScheduler.class, "OriginalScheduler", Map.of()); // Never reached
+        scheduler = new FoliaSchedulerProxy(original, adapter, true, router, null,
+                metrics ? new SchedulerMetrics() : null);
+        plugin = folia.plugin("Sample");
+        queuedTaskId = scheduler.runTaskLater(plugin, NOOP, 100L).getTaskId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        folia.close();
+    }
+
+    @Benchmark
+    public int runTaskAndCancel() {
+        int id = scheduler.runTask(plugin, NOOP).getTaskId();
+        scheduler.cancelTask(id);
+        return id;
+    }
+
+    @Benchmark
+    public int runTaskLaterAndCancel() {
+        int id = scheduler.runTaskLater(plugin, NOOP, 20L).getTaskId();
+        scheduler.cancelTask(id);
+        return id;
+    }
+
+    @Benchmark
+    public int runTaskTimerAndCancel() {
+        int id = scheduler.runTaskTimer(plugin, NOOP, 1L, 20L).getTaskId();
+        scheduler.cancelTask(id);
+        return id;
+    }
+
+    @Benchmark
+    public int scheduleSyncDelayedTaskAndCancel() {
+        int id = scheduler.scheduleSyncDelayedTask(plugin, NOOP, 20L);
+        scheduler.cancelTask(id);
+        return id;
+    }
+
+    @Benchmark
+    public int runTaskAsynchronouslyAndCancel() {
+        int id = scheduler.runTaskAsynchronously(plugin, NOOP).getTaskId();
+        scheduler.cancelTask(id);
+        return id;
+    }
+
+    @Benchmark
+    public boolean isQueued() {
+        return scheduler.isQueued(queuedTaskId);
+    }
+}
@@ -0,0 +1,109 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import summer.foliaPhantom.testsupport.FakeFolia;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SyncTaskRouter#route} with {@value #PLAYERS} players online. {@link #route(Routed)} runs each mode off
+ * the region threads, as from an async task. The {@code contextOn*} benchmarks route a {@link SyncTaskRouter.Mode#CONTEXT}
+ * plugin {@value #CALLS} times from a region thread: once on a region with a player, and once on a region
+ * without any, where a lookup that walks every player on each call would show.
+ * <p>
+ * For how the modes spread tasks over regions, run {@link RoutingDistribution}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyncTaskRouterBenchmark {
+    private static final int PLAYERS = 100;
+    private static final int CALLS = 1000;
+
+    private FakeFolia folia;
+    private SyncTaskRouter router;
+    private Plugin contextPlugin;
+    private Location playerRegion;
+    private Location emptyRegion;
+
+    /**
+     * The plugin {@link #route(Routed)} routes; a separate state so only that benchmark runs once per mode.
+     */
+    @State(Scope.Benchmark)
+    public static class Routed {
+        @Param({"SPAWN", "GLOBAL", "HASHED", "CONTEXT"})
+        public SyncTaskRouter.Mode mode;
+
+        private Plugin plugin;
+
+        @Setup(Level.Trial)
+        public void setUp(SyncTaskRouterBenchmark benchmark) {
+            plugin = benchmark.folia.plugin("Routed-" + mode);
+            benchmark.router.setMode(plugin.getName(), mode);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folia = new FakeFolia(1).installAsBukkitServer();
+        folia.createWorld("world_nether");
+        folia.createWorld("world_the_end");
+        DefaultLocationCache defaultLocationCache = new DefaultLocationCache(folia.plugin("FoliaPhantom").getLogger());
+        folia.runOnGlobal(defaultLocationCache::get);
+        router = new SyncTaskRouter(defaultLocationCache, folia.plugin("FoliaPhantom").getLogger());
+        contextPlugin = folia.plugin("Context");
+        router.setMode(contextPlugin.getName(), SyncTaskRouter.Mode.CONTEXT);
+        for (int i = 0; i < PLAYERS; i++) {
+            folia.spawnPlayer(new Location(folia.world(), 1024 + i * 256, 64, 1024));
+        }
+        playerRegion = new Location(folia.world(), 1024 + (PLAYERS - 1) * 256, 64, 1024); // Walked last
+        emptyRegion = new Location(folia.world(), -4096, 64, -4096);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        folia.close();
+    }
+
+    @Benchmark
+    public Location route(Routed routed) {
+        return router.route(routed.plugin, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void contextOnPlayerRegion(Blackhole blackhole) {
+        folia.runOnRegion(playerRegion, () -> routeRepeatedly(blackhole));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void contextOnEmptyRegion(Blackhole blackhole) {
+        folia.runOnRegion(emptyRegion, () -> routeRepeatedly(blackhole));
+    }
+
+    private void routeRepeatedly(Blackhole blackhole) {
+        for (int i = 0; i < CALLS; i++) {
+            blackhole.consume(router.route(contextPlugin, false));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package summer.foliaPhantom.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import summer.foliaPhantom.testsupport.Fakes;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task id allocation and registry operations, alone and from 4 threads sharing one registry. The registry holds
+ * {@value #LIVE_TASKS} long-lived tasks throughout, as a server with many timers would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskRegistryBenchmark {
+    static final int LIVE_TASKS = 10_000;
+    private static final Runnable NOOP = () -> {
+    };
+
+    private TaskRegistry registry;
+    private Plugin plugin;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new TaskRegistry();
+        plugin = Fakes.proxy(Plugin.class, "Sample", Map.of("getName", args -> "Sample"));
+        for (int i = 0; i < LIVE_TASKS; i++) {
+            registry.register(new FoliaBukkitTask(registry.allocateId(), plugin, NOOP, true));
+        }
+    }
+
+    @Benchmark
+    public int allocateId() {
+        return registry.allocateId();
+    }
+
+    /**
+     * The registry's share of scheduling and then cancelling (or finishing) a one-shot task.
+     */
+    @Benchmark
+    public boolean allocateRegisterRemove() {
+        FoliaBukkitTask task = new FoliaBukkitTask(registry.allocateId(), plugin, NOOP, true);
+        registry.register(task);
+        return registry.remove(task);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean allocateRegisterRemoveContended() {
+        return allocateRegisterRemove();
+    }
+
+    @Benchmark
+    public FoliaBukkitTask get() {
+        return registry.get(TaskRegistry.FIRST_TASK_ID + ThreadLocalRandom.current().nextInt(LIVE_TASKS));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public FoliaBukkitTask getContended() {
+        return get();
+    }
+}